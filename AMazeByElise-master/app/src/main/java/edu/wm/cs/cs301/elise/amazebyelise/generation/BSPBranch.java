@@ -15,8 +15,9 @@ import edu.wm.cs.cs301.elise.amazebyelise.generation.MazeFileWriter;
  * Refactored by Peter Kemper
  */
 public class BSPBranch extends BSPNode {
-    // left and right branches of the binary tree
-    private BSPNode lbranch, rbranch;
+    // left and right branches of the binary tree,
+    // a DynamicMaze may replace a child while the FirstPersonDrawer traverses the tree
+    private volatile BSPNode lbranch, rbranch;
     // (x,y) coordinates and (dx,dy) direction
     private int x;
     private int y;
@@ -67,6 +68,21 @@ public class BSPBranch extends BSPNode {
         return rbranch;
     }
 
+    /**
+     * Replaces a child, e.g. a leaf that a DynamicMaze partitions again.
+     * Bounds are not updated, the caller makes sure they cover the replacement.
+     * @param child left or right branch
+     * @param replacement new subtree
+     */
+    void replaceChild(BSPNode child, BSPNode replacement) {
+        if (child == lbranch)
+            lbranch = replacement;
+        else if (child == rbranch)
+            rbranch = replacement;
+        else
+            throw new RuntimeException("BSPBranch: node to replace is not a child");
+    }
+
     /**
      * Store the content of a branch node, in particular its left and right children
      *
@@ -23,6 +23,7 @@ public class BSPBuilder {
     // only usage is in updateProgressBar to estimate progress made in the BSP tree construction
     int partiters = 0 ; // relocated from MazeBuilder attribute partiters here.
     private final Order order ; 		// current order
+    private Order.Partition partition = Order.Partition.Balanced; // heuristic to pick segments in findPartitionCandidate
     /**
      * Constructor
      * @param order
@@ -46,15 +47,24 @@ public class BSPBuilder {
         partiters = 0 ; // counter for keeping track of progress made in BSP calculation, starts at 0
     }
 
+    /**
+     * Selects the heuristic to pick the segment that splits a node.
+     * @param partition Balanced (default) or Coverage
+     */
+    public void setPartition(Order.Partition partition) {
+        this.partition = partition;
+    }
+
     /**
      * Method generates the nodes. In every node, it has two section, left and right. It chooses the segment
      * which has the minimum grade value and then split this node into two nodes through this segment.
      * If all the segments in one node are partitioned, it will stop to split.
      * @param sl
+     * @param lazy true to stop after one split and leave BSPLazyNodes for both branches
      * @return root node for BSP tree
      * @throws InterruptedException
      */
-    private BSPNode genNodes(ArrayList<Seg> sl) throws InterruptedException {
+    private BSPNode genNodes(ArrayList<Seg> sl, boolean lazy) throws InterruptedException {
         // if there is no segment with a partition bit set to false, there is nothing else to do and we are at a leaf node
         if (countNonPartitions(sl) == 0)
             return new BSPLeaf(sl);
@@ -126,7 +136,25 @@ public class BSPBuilder {
             return new BSPLeaf(rsl);
         if (rsl.size() == 0)
             return new BSPLeaf(lsl);
-        return new BSPBranch(x, y, dx, dy, genNodes(lsl), genNodes(rsl)); // recursion on both branches
+        if (lazy)
+            return new BSPBranch(x, y, dx, dy, new BSPLazyNode(this, lsl), new BSPLazyNode(this, rsl));
+        return new BSPBranch(x, y, dx, dy, genNodes(lsl, false), genNodes(rsl, false)); // recursion on both branches
+    }
+
+    /**
+     * Partitions the segments of a BSPLazyNode once.
+     * Only used with a builder that has no order, so there is no progress to report
+     * and no reason to sleep.
+     * @param sl segments of the lazy node
+     * @return a leaf or a branch with BSPLazyNodes as children
+     */
+    BSPNode splitOnce(ArrayList<Seg> sl) {
+        try {
+            return genNodes(sl, true);
+        } catch (InterruptedException e) {
+            // only thrown by updateProgressBar with an order
+            throw new RuntimeException("BSPBuilder: lazy split interrupted", e);
+        }
     }
 
     /**
@@ -153,6 +181,17 @@ public class BSPBuilder {
     private Seg findPartitionCandidate(ArrayList<Seg> sl) throws InterruptedException {
         Seg result = null ;
         int bestgrade = 5000; // used to compute the minimum of all observed grade values, set to some high initial value
+        // bounds of the node for the coverage grade
+        int xl = Integer.MAX_VALUE, yl = Integer.MAX_VALUE, xu = Integer.MIN_VALUE, yu = Integer.MIN_VALUE;
+        if (Order.Partition.Coverage == partition) {
+            bestgrade = Integer.MAX_VALUE; // grades are not bounded by 5000
+            for (Seg se : sl) {
+                xl = Math.min(xl, Math.min(se.getStartPositionX(), se.getEndPositionX()));
+                yl = Math.min(yl, Math.min(se.getStartPositionY(), se.getEndPositionY()));
+                xu = Math.max(xu, Math.max(se.getStartPositionX(), se.getEndPositionX()));
+                yu = Math.max(yu, Math.max(se.getStartPositionY(), se.getEndPositionY()));
+            }
+        }
         final int maxtries = 50; // constant, only used to determine skip
         // consider a subset of segments proportional to the number of tries, here 50, seems to randomize the access a bit
         int skip = (sl.size() / maxtries);
@@ -170,7 +209,8 @@ public class BSPBuilder {
                 updateProgressBar(partiters); // side effect: update progress bar
             }
             // check grade and keep track of minimum
-            int grade = grade_partition(sl, element);
+            int grade = (Order.Partition.Coverage == partition) ?
+                    element.calculateCoverageGrade(sl, xl, yl, xu, yu) : grade_partition(sl, element);
             if (grade < bestgrade) {
                 bestgrade = grade;
                 result = element; // determine segment with smallest grade
@@ -186,8 +226,8 @@ public class BSPBuilder {
     private void updateProgressBar(int partiters) throws InterruptedException {
         // During maze generation, the most time consuming part needs to occasionally update the current screen
         //
-        int percentage = partiters*100/expectedPartiters ;
         if (null != order) {
+            int percentage = partiters*100/expectedPartiters ;
             order.updateProgress(percentage) ;
             if (percentage < 100) {
                 // give main thread a chance to process keyboard events
@@ -212,10 +252,12 @@ public class BSPBuilder {
 
 
     /**
-     * Identifies segments of continuous walls on the maze and fills the segment list
+     * Identifies segments of continuous walls on the maze and fills the segment list.
+     * Also used by the RaycastDrawer to obtain segments with the same colors
+     * without building a tree.
      * @return vector of segments
      */
-    private ArrayList<Seg> generateSegments() {
+    ArrayList<Seg> generateSegments() {
         ArrayList<Seg> sl = new ArrayList<Seg>();
         // this is left over from changes made in a refactoring step
         // it is an example to show how one can operate the old and the new
@@ -493,16 +535,30 @@ public class BSPBuilder {
      * @throws InterruptedException
      */
     public BSPNode generateBSPNodes() throws InterruptedException {
+        return generateBSPNodes(false);
+    }
+    /**
+     * Generate tree of BSP nodes for a given maze, either completely or lazily.
+     * A lazy tree starts as a single BSPLazyNode that carries all segments,
+     * subtrees are built when the FirstPersonDrawer traverses into them.
+     * Players see only part of a large maze, so most of the tree is never built.
+     * @param lazy true to build subtrees on demand
+     * @return root node of the tree
+     * @throws InterruptedException
+     */
+    public BSPNode generateBSPNodes(boolean lazy) throws InterruptedException {
         // determine segments, i.e. walls over multiple cells in a vertical or horizontal direction
         ArrayList<Seg> seglist = generateSegments();
 
         setPartitionBitForCertainSegments(seglist); // partition bit true means that those are not considered any further for node generation
 
-        // TODO: check why this is done. It creates a top wall on position (0,0). This may even corrupt a maze and block its exit!
-        Wall wall = new Wall(0, 0, CardinalDirection.North) ;
-        cells.addWall(wall, false);
-
-        return genNodes(seglist); // creates a data structure to quickly search for segments
+        if (lazy) {
+            // splits happen on the render thread after delivery, so progress is not reported to the order
+            BSPBuilder splitter = new BSPBuilder(null, dists, cells, width, height, colchange, expectedPartiters);
+            splitter.setPartition(partition);
+            return new BSPLazyNode(splitter, seglist);
+        }
+        return genNodes(seglist, false); // creates a data structure to quickly search for segments
     }
     /**
      * Provides the sign of a given integer number
@@ -0,0 +1,112 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.ArrayList;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * A placeholder in a tree of BSPNodes for a subtree that has not been built yet.
+ * It carries the list of segments that are not partitioned yet and its bounds
+ * are computed from that list, which gives the same bounds as the subtree would have.
+ *
+ * The FirstPersonDrawer calls expand when it traverses into this node for the first time.
+ * That partitions the segments once with the BSPBuilder, the result is a leaf or
+ * a branch whose children are again placeholders, and keeps it for later frames.
+ * Partitioning a list does not depend on other parts of the tree, so the
+ * expanded tree is the same as the one the BSPBuilder builds up front.
+ */
+public class BSPLazyNode extends BSPNode {
+
+    private ArrayList<Seg> slist; // segments of the subtree, null once expanded
+    private BSPBuilder builder; // partitions the segments, null once expanded
+    private volatile BSPNode expanded; // subtree, null till first call of expand
+
+    /**
+     * Constructor
+     * stores reference to given list of segments and updates bounds
+     * @param builder partitions the segments on expand, should not report progress to an order
+     * @param sl is a list of segments, can not be empty
+     */
+    public BSPLazyNode(BSPBuilder builder, ArrayList<Seg> sl) {
+        this.builder = builder;
+        slist = sl;
+        assert (!sl.isEmpty()) : "BSPLazyNode needs segments, list is empty!" ;
+        setLowerBoundX(Integer.MAX_VALUE);
+        setUpperBoundX(Integer.MIN_VALUE);
+        setLowerBoundY(Integer.MAX_VALUE);
+        setUpperBoundY(Integer.MIN_VALUE);
+        for (Seg se: sl) {
+            fix_bounds(se.getStartPositionX(), se.getStartPositionY());
+            fix_bounds(se.getEndPositionX(), se.getEndPositionY());
+        }
+    }
+
+    /**
+     * Gives the subtree for this node, partitions the segments on the first call.
+     * Safe to call from several threads, e.g. strips of the FirstPersonDrawer.
+     * @return leaf or branch, never a BSPLazyNode
+     */
+    public BSPNode expand() {
+        BSPNode result = expanded;
+        if (null != result)
+            return result;
+        synchronized (this) {
+            if (null == expanded) {
+                expanded = builder.splitOnce(slist);
+                // the segments now belong to the subtree
+                slist = null;
+                builder = null;
+            }
+            return expanded;
+        }
+    }
+
+    /**
+     * Gives the segments that are not partitioned yet, e.g. for a DynamicMaze
+     * to patch them. Only expand reads the list, so it may be changed in place
+     * while holding the lock of this node. It must not become empty.
+     * Bounds are not updated, the caller makes sure they cover new segments.
+     * @return segments, null once expanded
+     */
+    synchronized ArrayList<Seg> getPendingSlist() {
+        return slist;
+    }
+
+    /**
+     * Replaces the subtree of an expanded node, e.g. a leaf that a DynamicMaze
+     * partitions again.
+     * @param subtree leaf or branch
+     */
+    synchronized void replaceExpanded(BSPNode subtree) {
+        expanded = subtree;
+    }
+
+    /**
+     * @return tells if the subtree has been built
+     */
+    public boolean isExpanded() {
+        return null != expanded;
+    }
+
+    /**
+     * Store the content of the subtree, builds all of it
+     * as the file format has no notion of placeholders.
+     * @param doc document to add data to
+     * @param mazeXML element to add data to
+     * @param number is an index number for this node in the XML format
+     * @return the highest used index number
+     */
+    @Override
+    public int store(Document doc, Element mazeXML, int number) {
+        return expand().store(doc, mazeXML, number);
+    }
+
+    /**
+     * @return tells if object is a leaf node, depends on the subtree
+     */
+    @Override
+    public boolean isIsleaf() {
+        return expand().isIsleaf();
+    }
+}
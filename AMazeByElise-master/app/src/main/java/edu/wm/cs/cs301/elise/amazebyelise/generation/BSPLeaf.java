@@ -16,7 +16,9 @@ import org.w3c.dom.Element;
  */
 public class BSPLeaf extends BSPNode {
 
-    private ArrayList<Seg> slist; // list of segments
+    // list of segments, a DynamicMaze replaces it with a patched copy
+    // such that a FirstPersonDrawer that draws the old list is not disturbed
+    private volatile ArrayList<Seg> slist;
 
     /**
      * Constructor
@@ -94,6 +96,16 @@ public class BSPLeaf extends BSPNode {
         return slist;
     }
 
+    /**
+     * Replaces the list of segments, e.g. after a DynamicMaze opened or closed a wall.
+     * Bounds are not updated, the caller makes sure they cover the new segments,
+     * bounds that are too large only cost a little time in the FirstPersonDrawer.
+     * @param sl new list of segments, may be empty
+     */
+    void setSlist(ArrayList<Seg> sl) {
+        slist = sl;
+    }
+
 }
 
 
@@ -5,6 +5,9 @@ import edu.wm.cs.cs301.elise.amazebyelise.generation.Cells;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.MazeConfiguration;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.Constants.UserInput;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * Class: BasicRobot
  *
@@ -32,6 +35,8 @@ public class BasicRobot implements Robot {
     protected StatePlaying mazeController;
     private MazeConfiguration mazeConfig;
     protected Cells mazeCells;
+    // distances to walls for all cells and directions, filled once per maze
+    private SensorTable sensorTable;
     /* initialize a battery and the constants related
      * to energy requirements for certain operations such as
      * sensing distance, rotating, and moving forward
@@ -53,6 +58,13 @@ public class BasicRobot implements Robot {
     private boolean rightSensor;
     private boolean leftSensor;
     private CardinalDirection adjDir;
+    // counts for a simulation, see RobotSimulation
+    private int rotationCount; // 90 degree turns, a turn around counts twice
+    private int sensorCount; // distance sensor readings, canSeeExit included
+    // fingerprint of the cells the sensor table is for, walls of a DynamicMaze can change
+    private long sensorFingerprint;
+    // records operations for a replay, null if not recording, see startTrace
+    private RobotTraceWriter trace;
 
     /**
      * Constructor where all sensors are on.
@@ -104,6 +116,7 @@ public class BasicRobot implements Robot {
             case LEFT:
                 if (getBatteryLevel() >= ENERGY_TO_ROTATE_90DEG) {
                     batteryLevel = batteryLevel - ENERGY_TO_ROTATE_90DEG;
+                    rotationCount++;
                     mazeController.keyDown(UserInput.Left, 0);
                 } else {
                     hasStopped = true;
@@ -112,6 +125,7 @@ public class BasicRobot implements Robot {
             case RIGHT:
                 if (getBatteryLevel() >= ENERGY_TO_ROTATE_90DEG) {
                     batteryLevel = batteryLevel - ENERGY_TO_ROTATE_90DEG;
+                    rotationCount++;
                     mazeController.keyDown(UserInput.Right, 0);
                 } else {
                     hasStopped = true;
@@ -120,6 +134,7 @@ public class BasicRobot implements Robot {
             case AROUND:
                 if (getBatteryLevel() >= ENERGY_TO_ROTATE_180DEG) {
                     batteryLevel = batteryLevel - ENERGY_TO_ROTATE_180DEG;
+                    rotationCount += 2;
                     mazeController.keyDown(UserInput.Left, 0);
                     mazeController.keyDown(UserInput.Left, 0);
                 } else {
@@ -127,6 +142,8 @@ public class BasicRobot implements Robot {
                 }
                 break;
         }
+        if (null != trace)
+            trace.rotated(turn, getCurrentDirection(), batteryLevel);
     }
 
     /**
@@ -139,16 +156,22 @@ public class BasicRobot implements Robot {
      */
     @Override
     public void move(int distance, boolean manual) {
+        final int odometerBefore = odometerCounter;
         while (!hasStopped() && (distance != 0)){
             batteryLevel = batteryLevel - ENERGY_TO_STEP_FORWARD;
             if (batteryLevel < 0) {
                 hasStopped = true;
             } else {
-                mazeController.keyDown(UserInput.Up, 0);
+                // count the step first, so the view posted for it shows the new reading
                 odometerCounter = odometerCounter + 1;
                 distance = distance - 1;
+                mazeController.keyDown(UserInput.Up, 0);
             }
         }
+        if (null != trace) {
+            int[] pos = mazeController.getCurrentPosition();
+            trace.moved(odometerCounter - odometerBefore, pos[0], pos[1], getCurrentDirection(), batteryLevel);
+        }
     }
 
     /**
@@ -181,6 +204,33 @@ public class BasicRobot implements Robot {
         this.mazeController = controller;
         this.mazeConfig = this.mazeController.getMazeConfiguration();
         this.mazeCells = this.mazeConfig.getMazecells();
+        this.sensorTable = new SensorTable(mazeCells, mazeConfig.getWidth(), mazeConfig.getHeight());
+        sensorFingerprint = mazeCells.getFingerprint();
+    }
+
+    /**
+     * Starts to record all rotations, moves and distance sensor readings
+     * from the current position on, see RobotTraceWriter.
+     * The caller closes the returned writer when the run is over.
+     * @param out stream to write the trace to
+     * @return writer that records the operations
+     * @throws IOException if the header of the trace can not be written
+     * @precondition setMaze has been called
+     */
+    public RobotTraceWriter startTrace(OutputStream out) throws IOException {
+        int[] pos = mazeController.getCurrentPosition();
+        trace = new RobotTraceWriter(out, mazeConfig.getWidth(), mazeConfig.getHeight(),
+                pos[0], pos[1], getCurrentDirection(), batteryLevel);
+        return trace;
+    }
+
+    /**
+     * Gives the maze the robot operates in, e.g. for a Wizard that plans
+     * its path with the maze instead of sensors.
+     * @return maze configuration given with setMaze
+     */
+    MazeConfiguration getMazeConfiguration() {
+        return mazeConfig;
     }
 
     /**
@@ -190,9 +240,7 @@ public class BasicRobot implements Robot {
      */
     @Override
     public boolean isAtExit() {
-        int[] currentPosition = mazeController.getCurrentPosition();
-        int x = currentPosition[0]; int y = currentPosition[1];
-        return mazeCells.isExitPosition(x, y);
+        return mazeCells.isExitPosition(mazeController.getCurrentPositionX(), mazeController.getCurrentPositionY());
     }
 
     /**
@@ -222,9 +270,7 @@ public class BasicRobot implements Robot {
     @Override
     public boolean isInsideRoom() throws UnsupportedOperationException {
         if (hasRoomSensor() == true) {
-            int[] currentPosition = mazeController.getCurrentPosition();
-            int x = currentPosition[0]; int y = currentPosition[1];
-            return mazeCells.isInRoom(x, y);
+            return mazeCells.isInRoom(mazeController.getCurrentPositionX(), mazeController.getCurrentPositionY());
         } else {
             throw new UnsupportedOperationException("No room sensor!");
         }
@@ -290,6 +336,22 @@ public class BasicRobot implements Robot {
         return odometerCounter;
     }
 
+    /**
+     * Gives the number of 90 degree turns so far, a turn around counts as two.
+     * @return number of turns
+     */
+    public int getRotationCount() {
+        return rotationCount;
+    }
+
+    /**
+     * Gives the number of distance sensor readings so far, including those for canSeeExit.
+     * @return number of readings
+     */
+    public int getSensorCount() {
+        return sensorCount;
+    }
+
     /**
      * Resets the odomoter counter to zero.
      * The robot has an odometer that calculates the distance the robot has moved.
@@ -345,10 +407,17 @@ public class BasicRobot implements Robot {
         if (hasDistanceSensor(direction)) {
 
             batteryLevel = batteryLevel - ENERGY_TO_SENSE_DISTANCE;
+            sensorCount++;
             if (batteryLevel < 0) {
                 hasStopped = true;
                 throw new UnsupportedOperationException("No more battery!");
             }
+            // walls that opened or closed invalidate the table,
+            // comparing fingerprints takes constant time
+            if (mazeCells.getFingerprint() != sensorFingerprint) {
+                sensorTable = new SensorTable(mazeCells, mazeConfig.getWidth(), mazeConfig.getHeight());
+                sensorFingerprint = mazeCells.getFingerprint();
+            }
 
 
 			/* Compare with Cells.java for consistency
@@ -385,56 +454,14 @@ public class BasicRobot implements Robot {
 
 			cd = CardinalDirection.getDirection(dirX, dirY);
 			*/
-            boolean obstacleFound = false;
-            int distance = 0;
-            int[] currentPosition = mazeController.getCurrentPosition();
-            int curX = currentPosition[0]; int curY = currentPosition[1];
-
-            /* Current mapping between cardinal directions and (dx,dy)
-             * east  = (1,0)
-             * south = (0,1)
-             * west  = (-1,0)
-             * north = (0,-1)
-             */
-            while (obstacleFound == false) {
-
-                if (adjDir == CardinalDirection.West) {
-                    if (mazeCells.hasWall(curX, curY, CardinalDirection.West)) {
-                        obstacleFound = true;
-                    } else {
-                        curX = curX - 1;
-                        distance = distance + 1;
-                    }
-
-                } else if (adjDir == CardinalDirection.East) {
-                    if (mazeCells.hasWall(curX, curY, CardinalDirection.East)) {
-                        obstacleFound = true;
-                    } else {
-                        curX = curX + 1;
-                        distance = distance + 1;
-                    }
-
-                } else if (adjDir == CardinalDirection.North){
-                    if (mazeCells.hasWall(curX, curY, CardinalDirection.North)) {
-                        obstacleFound = true;
-                    } else {
-                        curY = curY - 1;
-                        distance = distance + 1;
-                    }
-
-                } else if (adjDir == CardinalDirection.South) {
-                    if (mazeCells.hasWall(curX, curY, CardinalDirection.South)) {
-                        obstacleFound = true;
-                    } else {
-                        curY = curY + 1;
-                        distance = distance + 1;
-                    }
-                }
-                if (curX < 0 || curX >= mazeConfig.getWidth() || curY < 0 || curY >= mazeConfig.getHeight()) {
-                    return Integer.MAX_VALUE;
-                }
-            }
-
+            // read the position without allocating an array for every reading
+            int curX = mazeController.getCurrentPositionX();
+            int curY = mazeController.getCurrentPositionY();
+
+            // the table gives the same value as walking cell by cell towards the next wall
+            final int distance = sensorTable.getDistance(curX, curY, adjDir);
+            if (null != trace)
+                trace.sensed(direction, distance, cd, batteryLevel);
             return distance;
 
         } else {
@@ -84,6 +84,20 @@ public class Cells {
     // as position (i,j) would be column i and row j which is opposite to the normal
     // use of rows and columns indices for matrices.
 
+    // bounding box of cells that received walls by addWallsForSegment since the last
+    // call to clearChangedArea(), empty if changedMinX > changedMaxX
+    // used by the MapDrawer to recognize which parts of its cached map are outdated
+    private int changedMinX = Integer.MAX_VALUE;
+    private int changedMinY = Integer.MAX_VALUE;
+    private int changedMaxX = Integer.MIN_VALUE;
+    private int changedMaxY = Integer.MIN_VALUE;
+
+    // Zobrist hash of the cell content: the xor of a random looking 64 bit key for every
+    // bit that is set in any cell, where the key depends on position and bit only.
+    // Setting or clearing a bit xors its key, so the hash is kept up to date in
+    // setBitToOne and setBitToZero at constant cost and never needs a pass over all cells.
+    private long zobrist;
+
     /**
      * Constructor
      * @param w width
@@ -108,6 +122,9 @@ public class Cells {
         cells = new int[width][];
         for(int i = 0; i < width; i++)
             cells[i] = input[i].clone();
+        for (int i = 0; i < width; i++)
+            for (int j = 0; j < height; j++)
+                updateZobrist(i, j, cells[i][j]);
 		/* Basic version
 		this(input.length, input[0].length);
 		for (int i = 0; i < width; i++) {
@@ -160,6 +177,9 @@ public class Cells {
         final Cells o = (Cells)other ; // type cast safe after checking class objects
         if ((width != o.width)||(height != o.height))
             return false ;
+        // different hashes imply different content, equal hashes need a full comparison
+        if (zobrist != o.zobrist)
+            return false ;
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < height; j++) {
                 if (cells[i][j] != o.cells[i][j])
@@ -169,14 +189,24 @@ public class Cells {
         return true ;
     }
     /**
-     * Hashcode method is not implemented as it is not needed here.
-     * Dummy method to recognize common pitfall from overriding equals() but
-     * not hashcode() method.
+     * Hashcode method that is consistent with equals, takes constant time
+     * as it folds the incrementally maintained fingerprint.
      */
     @Override
     public int hashCode() {
-        assert false : "hashCode not designed";
-        return 42; // any arbitrary constant will do
+        final long f = getFingerprint();
+        return (int)(f ^ (f >>> 32));
+    }
+    /**
+     * Gives a 64 bit fingerprint of dimensions and content.
+     * Cells with equal content have equal fingerprints, cells with different content
+     * have equal fingerprints with a probability of about 2^-64.
+     * The fingerprint is the same in every run of the app, so it can be stored,
+     * e.g. to recognize a maze in a file or as a key of a cache.
+     * @return fingerprint, takes constant time
+     */
+    public long getFingerprint() {
+        return zobrist ^ mix(((long)width << 32) | height);
     }
     /**
      * Get the value of a cell at the given position (x,y).
@@ -628,12 +658,49 @@ public class Cells {
             wall.setWall(sx, sy, cd);
             //seencells.addWall(wall, false) ;
             addWall(wall, false) ;
+            updateChangedArea(sx, sy);
             // move to neighbor cell in the direction of the segment
             // note that exactly one of sdsx or sdsy is not 0
             sx += sdsx;
             sy += sdsy;
         }
     }
+    /**
+     * Extends the bounding box of changed cells to include (x,y).
+     * @param x coordinate of cell
+     * @param y coordinate of cell
+     */
+    private void updateChangedArea(int x, int y) {
+        changedMinX = Math.min(changedMinX, x);
+        changedMinY = Math.min(changedMinY, y);
+        changedMaxX = Math.max(changedMaxX, x);
+        changedMaxY = Math.max(changedMaxY, y);
+    }
+    /**
+     * Tells if addWallsForSegment added walls since the last call to clearChangedArea().
+     * @return true if there are changed cells, false otherwise
+     */
+    public boolean hasChangedArea() {
+        return changedMinX <= changedMaxX;
+    }
+    /**
+     * Gives the bounding box of all cells that received walls by addWallsForSegment
+     * since the last call to clearChangedArea().
+     * @precondition hasChangedArea() is true
+     * @return array of length 4 with [minX, minY, maxX, maxY], bounds are inclusive
+     */
+    public int[] getChangedArea() {
+        return new int[] { changedMinX, changedMinY, changedMaxX, changedMaxY };
+    }
+    /**
+     * Resets the bounding box of changed cells to an empty area.
+     */
+    public void clearChangedArea() {
+        changedMinX = Integer.MAX_VALUE;
+        changedMinY = Integer.MAX_VALUE;
+        changedMaxX = Integer.MIN_VALUE;
+        changedMaxY = Integer.MIN_VALUE;
+    }
     //////////////////// get methods (is..., has...) for various attributes ///////////////////////
     /**
      * Tells if the given position has a wall in the given direction.
@@ -854,6 +921,7 @@ public class Cells {
      * @precondition 0 <= x < width, 0 <= y < height
      */
     private void setBitToZero(int x, int y, int cw_bit) {
+        updateZobrist(x, y, cells[x][y] & cw_bit);
         cells[x][y] &= ~cw_bit;
     }
     /**
@@ -908,8 +976,33 @@ public class Cells {
      * @precondition 0 <= x < width, 0 <= y < height
      */
     private void setBitToOne(int x, int y, int bitmask) {
+        updateZobrist(x, y, ~cells[x][y] & bitmask);
         cells[x][y] |= bitmask ;
     }
+    /**
+     * Updates the Zobrist hash for bits that flip in the given cell.
+     * @param x coordinate of cell
+     * @param y coordinate of cell
+     * @param flipped bitmask of the bits that change their value
+     */
+    private void updateZobrist(int x, int y, int flipped) {
+        while (flipped != 0) {
+            final int bit = Integer.numberOfTrailingZeros(flipped);
+            flipped &= flipped - 1;
+            zobrist ^= mix(((long)x << 40) ^ ((long)y << 16) ^ (bit + 1));
+        }
+    }
+    /**
+     * Computes the key for a bit of a cell, the finalizer of the SplitMix64 generator,
+     * so keys need no table that grows with the maze.
+     * @param z position and bit
+     * @return random looking key
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 
     ///////////////// code for debugging ///////////////////////////////////////
     private void dbg(String str) {
@@ -16,6 +16,25 @@ public class Constants {
     public static final int MAP_UNIT = 128;
     public static final int VIEW_OFFSET = MAP_UNIT/8;
     public static final int STEP_SIZE = MAP_UNIT/4;
+    // Time between two frames of an animated move or rotation in milliseconds
+    public static final int FRAME_PERIOD = 25;
+    // Speeds to watch a robot driver, see StatePlaying.setPlayback.
+    // Normal shows 4 intermediate views per move or rotation, Fast only the final one,
+    // Turbo runs TURBO_STEPS_PER_FRAME operations per frame and shows the latest,
+    // Instant runs the driver at full speed and shows the latest state per frame
+    public enum Playback { Normal, Fast, Turbo, Instant }
+    public static final int TURBO_STEPS_PER_FRAME = 8;
+    // Number of frames a robot driver may run ahead of the screen at Normal and Fast speed
+    public static final int PLAYBACK_FRAMES_AHEAD = 8;
+    // Number of frames the screen may fall behind the game, e.g. for fast key input in manual play.
+    // At least PLAYBACK_FRAMES_AHEAD plus the 4 views of a move, such that Normal playback keeps all views
+    public static final int MAX_FRAMES_QUEUED = 16;
+    // Number of vertical strips of the first person view that are drawn in parallel,
+    // 1 draws the whole view on the render thread
+    public static final int FIRST_PERSON_STRIPS = 1;
+    // Build subtrees of the BSP tree when the FirstPersonDrawer first traverses into them
+    // instead of building the whole tree during maze generation
+    public static final boolean LAZY_BSP = true;
     // Skill-level
     // The user picks a skill level between 0 - 9, a-f
     // The following arrays transform this into corresponding dimensions (x,y) for the resulting maze as well as the number of rooms and parts
@@ -1,5 +1,7 @@
 package edu.wm.cs.cs301.elise.amazebyelise.generation;
 
+import java.util.Arrays;
+
 /**
  * This class has the responsibility to provide the distance for each cell to the exit of a maze.
  * It encapsulates the distance matrix.
@@ -19,6 +21,18 @@ public class Distance {
     private int[] exitposition = null ;
     private int[] startposition = null ;
     private int maxDistance = 0 ;
+    // direction towards the exit for each position, 2 bits per position holding the ordinal of a CardinalDirection,
+    // position (x,y) is at index x + y*width, null if not computed yet
+    private byte[] nextHops = null ;
+    private static final CardinalDirection[] DIRECTIONS = CardinalDirection.values() ; // avoids a copy per lookup
+    // work space for repairOpenedWall and repairClosedWall, allocated on first use,
+    // positions are at index x + y*width as in nextHops
+    private int[] queue = null ;
+    private int[] affected = null ;
+    private int[] marks = null ; // marks[i] == mark + QUEUED or mark + AFFECTED in the current repair
+    private int mark = 0 ;
+    private static final int QUEUED = 1 ;
+    private static final int AFFECTED = 2 ;
 
     /**
      * Constructor
@@ -56,6 +70,7 @@ public class Distance {
      */
     public void setDists(int[][] dists) {
         this.dists = dists;
+        nextHops = null ; // derived from old distance values
     }
 
     /**
@@ -68,6 +83,313 @@ public class Distance {
         return dists[x][y] ;
     }
 
+    /**
+     * Computes the direction towards the exit for all positions and keeps it in a table
+     * with 2 bits per position. The direction for a position leads to the neighbor
+     * that getNeighborCloserToExit in MazeContainer would select.
+     * Requires that distances have been computed beforehand.
+     * @param cells provide information on walls between positions
+     */
+    public void computeNextHops(Cells cells) {
+        byte[] hops = new byte[(width*height+3)/4] ;
+        for (int x = 0; x != width; x++) {
+            for (int y = 0; y != height; y++) {
+                setNextHop(hops, cells, x, y) ;
+            }
+        }
+        nextHops = hops ;
+    }
+    /**
+     * Computes the direction towards the exit for a single position.
+     * @param hops table to store the direction in
+     * @param cells provide information on walls between positions
+     * @param x
+     * @param y
+     */
+    private void setNextHop(byte[] hops, Cells cells, int x, int y) {
+        // find neighbor with smallest distance, first one wins on ties
+        int dnext = dists[x][y] ;
+        int best = 0 ; // exit position has no next hop, keeps default
+        for (CardinalDirection cd : DIRECTIONS) {
+            if (cells.hasWall(x, y, cd))
+                continue ;
+            int[] dir = cd.getDirection() ;
+            int nx = x+dir[0] ;
+            int ny = y+dir[1] ;
+            if (0 <= nx && nx < width && 0 <= ny && ny < height && dists[nx][ny] < dnext) {
+                dnext = dists[nx][ny] ;
+                best = cd.ordinal() ;
+            }
+        }
+        int i = x + y*width ;
+        int shift = (i & 3) << 1 ;
+        hops[i >> 2] = (byte) ((hops[i >> 2] & ~(3 << shift)) | (best << shift)) ;
+    }
+    /**
+     * Tells if computeNextHops() has been called for the current distance values.
+     */
+    public boolean hasNextHops() {
+        return null != nextHops ;
+    }
+    /**
+     * Gets the direction towards the exit for the given (x,y) position.
+     * @precondition computeNextHops() was called before, (x,y) is not the exit position
+     * @param x
+     * @param y
+     * @return direction to the neighbor that is one step closer to the exit
+     */
+    public CardinalDirection getNextHop(int x, int y) {
+        int i = x + y*width ;
+        return DIRECTIONS[(nextHops[i >> 2] >> ((i & 3) << 1)) & 3] ;
+    }
+
+    /**
+     * Updates the distances after the wall between (x,y) and its neighbor in direction cd
+     * has been removed from the cells, e.g. for a door that opens during play.
+     * Distances can only get smaller: if one side of the wall is more than one step further
+     * from the exit than the other, it gets closer and a breadth first search from it lowers
+     * the distances of all positions that now have a shorter path. The search stops at
+     * positions that keep their distance, so it only visits the positions that change
+     * and their neighbors. A position that could not reach the exit before gets a distance
+     * if it can now. Next hops are updated as well if they have been computed.
+     * @param cells provide information on walls between positions, without the wall
+     * @param x
+     * @param y
+     * @param cd direction of the wall, the neighbor must be inside the maze
+     * @return number of positions whose distance changed
+     */
+    public int repairOpenedWall(Cells cells, int x, int y, CardinalDirection cd) {
+        int[] dir = cd.getDirection() ;
+        final int nx = x+dir[0] ;
+        final int ny = y+dir[1] ;
+        int sx, sy ; // side of the wall that gets closer to the exit
+        if (dists[nx][ny] != INFINITY && dists[nx][ny]+1 < dists[x][y]) {
+            sx = x ;
+            sy = y ;
+            dists[x][y] = dists[nx][ny]+1 ;
+        }
+        else if (dists[x][y] != INFINITY && dists[x][y]+1 < dists[nx][ny]) {
+            sx = nx ;
+            sy = ny ;
+            dists[nx][ny] = dists[x][y]+1 ;
+        }
+        else {
+            // distances stay, but a next hop may change on a tie
+            updateNextHops(cells, x, y, nx, ny, 0) ;
+            return 0 ;
+        }
+        allocateWorkSpace() ;
+        int head = 0 ;
+        int tail = 0 ;
+        queue[tail++] = sx + sy*width ;
+        // positions enter the queue in order of their new distance,
+        // so each one gets its final value when it is first lowered
+        while (head < tail) {
+            final int i = queue[head++] ;
+            final int cx = i % width ;
+            final int cy = i / width ;
+            final int next = dists[cx][cy]+1 ;
+            for (CardinalDirection c : DIRECTIONS) {
+                if (cells.hasWall(cx, cy, c))
+                    continue ;
+                int[] d = c.getDirection() ;
+                int ex = cx+d[0] ;
+                int ey = cy+d[1] ;
+                if (0 <= ex && ex < width && 0 <= ey && ey < height && dists[ex][ey] > next) {
+                    dists[ex][ey] = next ;
+                    queue[tail++] = ex + ey*width ;
+                }
+            }
+        }
+        // next hops of changed positions and their neighbors
+        System.arraycopy(queue, 0, affected, 0, tail) ;
+        updateNextHops(cells, x, y, nx, ny, tail) ;
+        return tail ;
+    }
+    /**
+     * Updates the distances after a wall between (x,y) and its neighbor in direction cd
+     * has been added to the cells, e.g. for a corridor that collapses during play.
+     * Distances can only get larger and only for positions whose shortest paths all
+     * went through the wall. The repair works in two phases:
+     * (1) Starting from the side of the wall that is further from the exit, it collects
+     * the affected positions in order of their old distance. A position is affected
+     * if none of its neighbors that is one step closer to the exit is unaffected.
+     * Positions that keep a path of the same length stop the search.
+     * (2) Affected positions start with one more than the smallest distance of an
+     * unaffected neighbor and, sorted by that value, spread it among each other as
+     * in a breadth first search. Positions that are cut off from the exit end up
+     * with INFINITY.
+     * Both phases only visit affected positions and their neighbors.
+     * Next hops are updated as well if they have been computed.
+     * @param cells provide information on walls between positions, with the wall
+     * @param x
+     * @param y
+     * @param cd direction of the wall, the neighbor must be inside the maze
+     * @return number of positions whose distance changed
+     */
+    public int repairClosedWall(Cells cells, int x, int y, CardinalDirection cd) {
+        int[] dir = cd.getDirection() ;
+        final int nx = x+dir[0] ;
+        final int ny = y+dir[1] ;
+        int ux, uy ; // side of the wall that may lose its shortest path
+        if (dists[nx][ny] != INFINITY && dists[x][y] == dists[nx][ny]+1) {
+            ux = x ;
+            uy = y ;
+        }
+        else if (dists[x][y] != INFINITY && dists[nx][ny] == dists[x][y]+1) {
+            ux = nx ;
+            uy = ny ;
+        }
+        else {
+            // the wall was on no shortest path
+            updateNextHops(cells, x, y, nx, ny, 0) ;
+            return 0 ;
+        }
+        allocateWorkSpace() ;
+        mark += 4 ; // values of earlier repairs are out of date
+        if (mark < 0) {
+            // wrapped around after many repairs, start over
+            Arrays.fill(marks, 0) ;
+            mark = 4 ;
+        }
+        // phase 1: collect affected positions in order of their old distance,
+        // when a position is decided, all positions one step closer to the exit are decided
+        int count = 0 ;
+        int head = 0 ;
+        int tail = 0 ;
+        queue[tail++] = ux + uy*width ;
+        marks[ux + uy*width] = mark + QUEUED ;
+        while (head < tail) {
+            final int i = queue[head++] ;
+            final int cx = i % width ;
+            final int cy = i / width ;
+            if (hasUnaffectedPredecessor(cells, cx, cy))
+                continue ;
+            marks[i] = mark + AFFECTED ;
+            affected[count++] = i ;
+            for (CardinalDirection c : DIRECTIONS) {
+                if (cells.hasWall(cx, cy, c))
+                    continue ;
+                int[] d = c.getDirection() ;
+                int ex = cx+d[0] ;
+                int ey = cy+d[1] ;
+                if (0 <= ex && ex < width && 0 <= ey && ey < height && dists[ex][ey] == dists[cx][cy]+1
+                        && marks[ex + ey*width] < mark) {
+                    marks[ex + ey*width] = mark + QUEUED ;
+                    queue[tail++] = ex + ey*width ;
+                }
+            }
+        }
+        // phase 2: forget distances of affected positions, then seed them from unaffected neighbors
+        for (int k = 0; k != count; k++)
+            dists[affected[k] % width][affected[k] / width] = INFINITY ;
+        long[] seeds = new long[count] ; // distance in the upper half, position in the lower half
+        int seedCount = 0 ;
+        for (int k = 0; k != count; k++) {
+            final int cx = affected[k] % width ;
+            final int cy = affected[k] / width ;
+            int best = INFINITY ;
+            for (CardinalDirection c : DIRECTIONS) {
+                if (cells.hasWall(cx, cy, c))
+                    continue ;
+                int[] d = c.getDirection() ;
+                int ex = cx+d[0] ;
+                int ey = cy+d[1] ;
+                if (0 <= ex && ex < width && 0 <= ey && ey < height && dists[ex][ey] < best)
+                    best = dists[ex][ey] ;
+            }
+            if (best != INFINITY) {
+                dists[cx][cy] = best+1 ;
+                seeds[seedCount++] = ((long) (best+1) << 32) | affected[k] ;
+            }
+        }
+        Arrays.sort(seeds, 0, seedCount) ;
+        // merge the sorted seeds with a queue of positions reached from them,
+        // always taking the smaller distance, like Dijkstra's algorithm for steps of one
+        int s = 0 ;
+        head = 0 ;
+        tail = 0 ;
+        while (s < seedCount || head < tail) {
+            int i ;
+            if (head == tail || (s < seedCount
+                    && (int) (seeds[s] >>> 32) <= dists[queue[head] % width][queue[head] / width])) {
+                i = (int) seeds[s] ;
+                if ((int) (seeds[s++] >>> 32) != dists[i % width][i / width])
+                    continue ; // lowered by a neighbor in the meantime
+            }
+            else
+                i = queue[head++] ;
+            final int cx = i % width ;
+            final int cy = i / width ;
+            final int next = dists[cx][cy]+1 ;
+            for (CardinalDirection c : DIRECTIONS) {
+                if (cells.hasWall(cx, cy, c))
+                    continue ;
+                int[] d = c.getDirection() ;
+                int ex = cx+d[0] ;
+                int ey = cy+d[1] ;
+                // only affected positions can get a smaller value
+                if (0 <= ex && ex < width && 0 <= ey && ey < height && dists[ex][ey] > next) {
+                    dists[ex][ey] = next ;
+                    queue[tail++] = ex + ey*width ;
+                }
+            }
+        }
+        updateNextHops(cells, x, y, nx, ny, count) ;
+        return count ;
+    }
+    /**
+     * Tells if (x,y) has an open neighbor that is one step closer to the exit
+     * and not affected in the current repair.
+     */
+    private boolean hasUnaffectedPredecessor(Cells cells, int x, int y) {
+        final int prev = dists[x][y]-1 ;
+        for (CardinalDirection c : DIRECTIONS) {
+            if (cells.hasWall(x, y, c))
+                continue ;
+            int[] d = c.getDirection() ;
+            int ex = x+d[0] ;
+            int ey = y+d[1] ;
+            if (0 <= ex && ex < width && 0 <= ey && ey < height && dists[ex][ey] == prev
+                    && marks[ex + ey*width] != mark + AFFECTED)
+                return true ;
+        }
+        return false ;
+    }
+    /**
+     * Allocates the work space for repairs once, each position
+     * enters a queue at most once per repair.
+     */
+    private void allocateWorkSpace() {
+        if (null != queue)
+            return ;
+        queue = new int[width*height] ;
+        affected = new int[width*height] ;
+        marks = new int[width*height] ;
+    }
+    /**
+     * Updates next hops after a repair, if they have been computed, for both sides
+     * of the changed wall and for the first count entries of affected and their neighbors.
+     */
+    private void updateNextHops(Cells cells, int x, int y, int nx, int ny, int count) {
+        if (null == nextHops)
+            return ;
+        setNextHop(nextHops, cells, x, y) ;
+        setNextHop(nextHops, cells, nx, ny) ;
+        for (int k = 0; k != count; k++) {
+            final int cx = affected[k] % width ;
+            final int cy = affected[k] / width ;
+            setNextHop(nextHops, cells, cx, cy) ;
+            for (CardinalDirection c : DIRECTIONS) {
+                int[] d = c.getDirection() ;
+                int ex = cx+d[0] ;
+                int ey = cy+d[1] ;
+                if (0 <= ex && ex < width && 0 <= ey && ey < height)
+                    setNextHop(nextHops, cells, ex, ey) ;
+            }
+        }
+    }
+
     /**
      * Finds the most remote point in the maze somewhere on the border.
      * Requires that distances have been computed beforehand.
@@ -327,6 +649,7 @@ public class Distance {
         exitposition = getPositionWithMaxDistanceOnBorder();
         // recompute distances for an exit point (x,y) = (remotex,remotey)
         computeDists(cells, exitposition[0], exitposition[1]);
+        nextHops = null ; // derived from old distance values
 
         return exitposition ;
     }
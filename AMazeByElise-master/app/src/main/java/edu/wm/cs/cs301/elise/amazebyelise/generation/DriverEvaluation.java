@@ -0,0 +1,205 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares robot drivers on many mazes without graphics.
+ *
+ * For each skill level the evaluation generates a number of mazes with the MazeFactory,
+ * maze i with seed i+1, and optionally adds mazes loaded with the MazeFileReader. Then every
+ * driver runs on every maze with a RobotSimulation, spread over a pool of threads.
+ * Generation happens one maze at a time since all builders share the SingleRandom
+ * generator, the simulations only read the maze and run in parallel.
+ *
+ * The report gives for each skill level and driver the number of runs, the failure rate,
+ * e.g. when the battery runs out, and mean, median and 99th percentile of energy consumption
+ * and path length over the successful runs.
+ *
+ * Runs on a plain JVM, e.g.
+ * java -cp classes edu.wm.cs.cs301.elise.amazebyelise.generation.DriverEvaluation 1 5 mazes=1000 drivers=wallfollower threads=8 builder=prim load=maze.xml
+ * with skill levels as arguments, the number of mazes per level (default 100), a comma separated list
+ * of drivers (default all), the number of threads (default number of processors), the builder
+ * algorithm (dfs, prim or kruskal, default dfs) and files of mazes to add to each level.
+ */
+public class DriverEvaluation {
+
+    public static void main(String[] args) throws InterruptedException {
+        ArrayList<Integer> levels = new ArrayList<Integer>();
+        ArrayList<String> files = new ArrayList<String>();
+        List<String> drivers = Arrays.asList(RobotSimulation.DRIVERS);
+        int mazes = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Order.Builder builder = Order.Builder.DFS;
+        for (String arg : args) {
+            if (arg.startsWith("mazes="))
+                mazes = Integer.parseInt(arg.substring("mazes=".length()));
+            else if (arg.startsWith("drivers="))
+                drivers = Arrays.asList(arg.substring("drivers=".length()).split(","));
+            else if (arg.startsWith("threads="))
+                threads = Integer.parseInt(arg.substring("threads=".length()));
+            else if (arg.equalsIgnoreCase("builder=prim"))
+                builder = Order.Builder.Prim;
+            else if (arg.equalsIgnoreCase("builder=kruskal"))
+                builder = Order.Builder.Kruskal;
+            else if (arg.equalsIgnoreCase("builder=dfs"))
+                builder = Order.Builder.DFS;
+            else if (arg.startsWith("load="))
+                files.add(arg.substring("load=".length()));
+            else
+                levels.add(Integer.parseInt(arg));
+        }
+        if (levels.isEmpty())
+            levels.addAll(Arrays.asList(1, 5, 9));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int level : levels) {
+                long t0 = System.nanoTime();
+                List<MazeConfiguration> configs = generateMazes(level, mazes, builder);
+                for (String file : files)
+                    configs.add(new MazeFileReader(file).getMazeConfiguration());
+                long t1 = System.nanoTime();
+                List<Summary> summaries = evaluate(configs, drivers, pool);
+                long t2 = System.nanoTime();
+                System.out.println("skill " + level + ": " + configs.size() + " mazes, generated in "
+                        + (t1 - t0) / 1000000 + "ms, simulated in " + (t2 - t1) / 1000000 + "ms on " + threads + " threads");
+                for (Summary summary : summaries)
+                    System.out.println("  " + summary);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Generates mazes for a skill level with seeds 1, 2, ..., count.
+     * @param skillLevel 0 to 15
+     * @param count number of mazes
+     * @param builder algorithm to generate mazes with
+     * @return list of mazes without tree of BSP nodes, which a simulation does not need
+     */
+    public static List<MazeConfiguration> generateMazes(int skillLevel, int count, Order.Builder builder) {
+        ArrayList<MazeConfiguration> result = new ArrayList<MazeConfiguration>(count);
+        for (int i = 0; i != count; i++) {
+            MazeFactory factory = new MazeFactory(i+1);
+            factory.setQuiet(true); // keep the report readable
+            StubOrder order = new StubOrder(builder, skillLevel, false, Order.Renderer.Raycast);
+            factory.order(order);
+            factory.waitTillDelivered();
+            result.add(order.getMazeConfiguration());
+        }
+        return result;
+    }
+
+    /**
+     * Runs every driver on every maze with a RobotSimulation on the given pool.
+     * @param mazes to drive through
+     * @param drivers names of drivers as accepted by RobotSimulation.createDriver
+     * @param pool runs the simulations
+     * @return a summary per driver in the given order
+     * @throws InterruptedException if interrupted while waiting for simulations
+     */
+    public static List<Summary> evaluate(List<MazeConfiguration> mazes, List<String> drivers, ExecutorService pool)
+            throws InterruptedException {
+        // submit all simulations first such that they run in parallel
+        ArrayList<Future<RobotSimulation.Result>> futures = new ArrayList<Future<RobotSimulation.Result>>();
+        for (final String driver : drivers) {
+            for (final MazeConfiguration mazeConfig : mazes) {
+                futures.add(pool.submit(new Callable<RobotSimulation.Result>() {
+                    @Override
+                    public RobotSimulation.Result call() {
+                        return RobotSimulation.run(mazeConfig, RobotSimulation.createDriver(driver));
+                    }
+                }));
+            }
+        }
+        ArrayList<Summary> result = new ArrayList<Summary>();
+        int next = 0;
+        for (String driver : drivers) {
+            Summary summary = new Summary(driver, mazes.size());
+            for (int i = 0; i != mazes.size(); i++) {
+                try {
+                    summary.add(futures.get(next++).get());
+                } catch (ExecutionException e) {
+                    // the driver crashed, which counts as a failure
+                    summary.add(null);
+                }
+            }
+            result.add(summary);
+        }
+        return result;
+    }
+
+    /**
+     * Distribution of measurements for a driver over many mazes.
+     */
+    public static class Summary {
+        private final String driver;
+        private final float[] energy; // of successful runs
+        private final int[] pathLength; // of successful runs
+        private int successes;
+        private int failures;
+
+        Summary(String driver, int capacity) {
+            this.driver = driver;
+            energy = new float[capacity];
+            pathLength = new int[capacity];
+        }
+
+        /**
+         * Adds the result of a run.
+         * @param result of a run, null if the run ended with an exception
+         */
+        void add(RobotSimulation.Result result) {
+            if (null == result || !result.isSuccess()) {
+                failures++;
+                return;
+            }
+            energy[successes] = result.getEnergy();
+            pathLength[successes] = result.getPathLength();
+            successes++;
+        }
+
+        /**
+         * @return fraction of runs that did not get out of the maze
+         */
+        public double getFailureRate() {
+            return (double) failures / Math.max(1, successes + failures);
+        }
+
+        @Override
+        public String toString() {
+            double[] e = new double[successes];
+            double[] p = new double[successes];
+            for (int i = 0; i != successes; i++) {
+                e[i] = energy[i];
+                p[i] = pathLength[i];
+            }
+            return driver + ": " + (successes + failures) + " runs, failure rate "
+                    + String.format("%.1f%%", 100 * getFailureRate())
+                    + ", energy " + summary(e) + ", path length " + summary(p);
+        }
+
+        /**
+         * @return mean, median and 99th percentile
+         */
+        private static String summary(double[] values) {
+            if (0 == values.length)
+                return "-";
+            Arrays.sort(values);
+            double sum = 0;
+            for (double v : values)
+                sum += v;
+            final int n = values.length;
+            return String.format("mean %.1f p50 %.0f p99 %.0f", sum / n, values[n/2],
+                    values[Math.min(n-1, n*99/100)]);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.ArrayList;
+
+/**
+ * This class opens and closes walls of a maze while it is played, e.g. for doors
+ * that open and close on a timer or corridors that collapse, and keeps the data
+ * that depends on the walls up to date without computing it again for the whole maze.
+ *
+ * A change updates the cells and repairs the distances to the exit with
+ * Distance.repairOpenedWall or Distance.repairClosedWall, which only visit the
+ * positions whose distance changes and their neighbors. The tree of BSP nodes is
+ * patched where the wall is:
+ * (1) Opening a wall removes the part of the segments on both sides that covers it,
+ * in the few leaves and lazy nodes whose bounds contain the wall. A segment over
+ * several cells is cut into the pieces left and right of the wall.
+ * (2) Closing a wall adds a segment for each side. It descends the tree as the
+ * BSPBuilder would have partitioned it. A segment that ends up on a partition line
+ * joins the leaf, otherwise the leaf is replaced by a BSPLazyNode that partitions
+ * the leaf's segments again when it becomes visible.
+ * Leaves get patched copies of their lists and bounds only grow, so a FirstPersonDrawer
+ * that traverses the tree on the render thread at the same time is not disturbed.
+ * Segments of a BSPLazyNode that has not been expanded yet are patched in place as
+ * only its expansion reads them, so a change does not copy large parts of a lazy tree.
+ * Segments that stay keep the color they got for their distance when the maze was built.
+ *
+ * The RaycastDrawer reads walls from the cells and needs no update. A BasicRobot,
+ * the MapTileCache with its MapLevelOfDetail and the SolutionPath of the MapDrawer
+ * notice changed walls by the fingerprint of the cells and build their data again.
+ * The DynamicMazeBenchmark, which comes with the unit tests, measures the time per change.
+ */
+public class DynamicMaze {
+    private final MazeConfiguration mazeConfig;
+    private final Cells cells;
+    private final Distance distance;
+    private final int width;
+    private final int height;
+    private final int colchange; // color change value for new segments
+    private final BSPBuilder splitter; // partitions leaves that get a wall off their partition lines
+    private int changedDistances; // positions whose distance changed with the last change
+
+    /**
+     * Constructor
+     * @param mazeConfig maze to change, its distances must have been computed
+     */
+    public DynamicMaze(MazeConfiguration mazeConfig) {
+        this.mazeConfig = mazeConfig;
+        cells = mazeConfig.getMazecells();
+        distance = mazeConfig.getMazedists();
+        width = mazeConfig.getWidth();
+        height = mazeConfig.getHeight();
+        colchange = mazeConfig.getColorChange();
+        // no order, so splits neither report progress nor sleep
+        splitter = new BSPBuilder(null, distance, cells, width, height, colchange, 0);
+    }
+
+    /**
+     * Removes the wall between (x,y) and its neighbor in direction cd.
+     * @param x coordinate of cell
+     * @param y coordinate of cell
+     * @param cd direction of the wall
+     * @return true if the wall was there and has been removed, false otherwise
+     * @throws RuntimeException if the wall is on the border of the maze
+     */
+    public boolean openWall(int x, int y, CardinalDirection cd) {
+        checkInternal(x, y, cd);
+        if (cells.hasNoWall(x, y, cd))
+            return false;
+        cells.deleteWall(new Wall(x, y, cd));
+        changedDistances = distance.repairOpenedWall(cells, x, y, cd);
+        BSPNode root = mazeConfig.getRootnode();
+        if (null != root) {
+            // both sides of a wall are on the line of its North or West side
+            int[] edge = getEdge(x, y, cd);
+            removeEdge(root, null, edge[0], edge[1], edge[2], edge[3]);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a wall between (x,y) and its neighbor in direction cd.
+     * @param x coordinate of cell
+     * @param y coordinate of cell
+     * @param cd direction of the wall
+     * @return true if there was no wall and it has been added, false otherwise
+     * @throws RuntimeException if the wall is on the border of the maze
+     */
+    public boolean closeWall(int x, int y, CardinalDirection cd) {
+        checkInternal(x, y, cd);
+        if (cells.hasWall(x, y, cd))
+            return false;
+        cells.addWall(new Wall(x, y, cd), true);
+        changedDistances = distance.repairClosedWall(cells, x, y, cd);
+        BSPNode root = mazeConfig.getRootnode();
+        if (null != root) {
+            int[] edge = getEdge(x, y, cd);
+            // same start, direction and distance as the segments of the BSPBuilder
+            final int mu = Constants.MAP_UNIT;
+            if (edge[1] == edge[3]) {
+                // horizontal: going left it is the North wall of the cell below,
+                // going right the South wall of the cell above
+                final int cx = edge[0]/mu;
+                final int cy = edge[1]/mu;
+                insert(root, new Seg(edge[2], edge[1], -mu, 0, distance.getDistance(cx, cy), colchange));
+                insert(root, new Seg(edge[0], edge[1], mu, 0, distance.getDistance(cx, cy-1), colchange));
+            } else {
+                // vertical: going down it is the West wall of the cell to the right,
+                // going up the East wall of the cell to the left
+                final int cx = edge[0]/mu;
+                final int cy = edge[1]/mu;
+                insert(root, new Seg(edge[0], edge[1], 0, mu, distance.getDistance(cx, cy), colchange));
+                insert(root, new Seg(edge[0], edge[3], 0, -mu, distance.getDistance(cx-1, cy), colchange));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells if the wall can be opened and closed, i.e. if it is not on the border.
+     * @param x coordinate of cell
+     * @param y coordinate of cell
+     * @param cd direction of the wall
+     * @return true if (x,y) and its neighbor in direction cd are inside the maze
+     */
+    public boolean isInternal(int x, int y, CardinalDirection cd) {
+        int[] dir = cd.getDirection();
+        return mazeConfig.isValidPosition(x, y) && mazeConfig.isValidPosition(x+dir[0], y+dir[1]);
+    }
+
+    /**
+     * @return number of positions whose distance to the exit changed with the last change
+     */
+    public int getChangedDistanceCount() {
+        return changedDistances;
+    }
+
+    private void checkInternal(int x, int y, CardinalDirection cd) {
+        if (!isInternal(x, y, cd))
+            throw new RuntimeException("DynamicMaze: wall at (" + x + "," + y + ") " + cd + " is on the border");
+    }
+
+    /**
+     * Gives the end points of a wall in map coordinates, the same for both
+     * sides of the wall.
+     * @return array of length 4 with [x0, y0, x1, y1] where x0 <= x1, y0 <= y1
+     */
+    private int[] getEdge(int x, int y, CardinalDirection cd) {
+        // move to the cell that has the wall on its North or West side
+        if (CardinalDirection.South == cd) {
+            y++;
+            cd = CardinalDirection.North;
+        } else if (CardinalDirection.East == cd) {
+            x++;
+            cd = CardinalDirection.West;
+        }
+        final int mu = Constants.MAP_UNIT;
+        if (CardinalDirection.North == cd)
+            return new int[] { x*mu, y*mu, (x+1)*mu, y*mu };
+        return new int[] { x*mu, y*mu, x*mu, (y+1)*mu };
+    }
+
+    ////////////////// opening a wall: remove segments ///////////////////////
+
+    /**
+     * Removes the given edge from all segments in the subtree that cover it.
+     * Only descends into nodes whose bounds contain the edge, segments that
+     * cover the edge have it in their leaf's bounds as partition lines are
+     * on cell borders and do not cut a wall.
+     * @param node root of subtree
+     * @param parent branch or lazy node above node, null for the root
+     */
+    private void removeEdge(BSPNode node, BSPNode parent, int x0, int y0, int x1, int y1) {
+        if (x0 < node.getLowerBoundX() || node.getUpperBoundX() < x1
+                || y0 < node.getLowerBoundY() || node.getUpperBoundY() < y1)
+            return;
+        if (node instanceof BSPLazyNode) {
+            BSPLazyNode lazy = (BSPLazyNode) node;
+            synchronized (lazy) {
+                ArrayList<Seg> sl = lazy.getPendingSlist();
+                if (null != sl) {
+                    // an edge is covered by at most one segment per side
+                    if (sl.size() > 2 || null == parent) {
+                        cutEdge(sl, x0, y0, x1, y1);
+                        return;
+                    }
+                    ArrayList<Seg> patched = new ArrayList<Seg>(sl);
+                    if (cutEdge(patched, x0, y0, x1, y1) && patched.isEmpty()) {
+                        // nothing left to partition, keep an empty leaf with the old bounds
+                        BSPLeaf leaf = new BSPLeaf(sl);
+                        leaf.setSlist(patched);
+                        replace(parent, lazy, leaf);
+                    } else {
+                        sl.clear();
+                        sl.addAll(patched);
+                    }
+                    return;
+                }
+            }
+            removeEdge(lazy.expand(), lazy, x0, y0, x1, y1);
+            return;
+        }
+        if (node.isIsleaf()) {
+            BSPLeaf leaf = (BSPLeaf) node;
+            ArrayList<Seg> patched = new ArrayList<Seg>(leaf.getSlist());
+            if (cutEdge(patched, x0, y0, x1, y1))
+                leaf.setSlist(patched);
+            return;
+        }
+        BSPBranch branch = (BSPBranch) node;
+        removeEdge(branch.getLeftBranch(), branch, x0, y0, x1, y1);
+        removeEdge(branch.getRightBranch(), branch, x0, y0, x1, y1);
+    }
+
+    /**
+     * Cuts the given edge out of the segments in a list, in place.
+     * The pieces of a segment take its place in the list.
+     * @return true if a segment covered the edge
+     */
+    private boolean cutEdge(ArrayList<Seg> sl, int x0, int y0, int x1, int y1) {
+        boolean changed = false;
+        for (int i = 0; i < sl.size(); i++) {
+            Seg se = sl.get(i);
+            final int sx = se.getStartPositionX();
+            final int sy = se.getStartPositionY();
+            final int ex = se.getEndPositionX();
+            final int ey = se.getEndPositionY();
+            final boolean covers = (y0 == y1)
+                    ? (sy == y0 && ey == y0 && Math.min(sx, ex) <= x0 && x1 <= Math.max(sx, ex))
+                    : (sx == x0 && ex == x0 && Math.min(sy, ey) <= y0 && y1 <= Math.max(sy, ey));
+            if (!covers)
+                continue;
+            changed = true;
+            sl.remove(i);
+            // pieces before and after the edge in the direction of the segment
+            if (se.getExtensionX() > 0 || se.getExtensionY() > 0) {
+                i += addPiece(sl, i, se, sx, sy, x0, y0);
+                i += addPiece(sl, i, se, x1, y1, ex, ey);
+            } else {
+                i += addPiece(sl, i, se, sx, sy, x1, y1);
+                i += addPiece(sl, i, se, x0, y0, ex, ey);
+            }
+            i--; // continue after the pieces
+        }
+        return changed;
+    }
+
+    /**
+     * Inserts the part of a segment from (ax,ay) to (bx,by) into the list at the given
+     * index, unless it is empty.
+     * @return number of inserted segments, 0 or 1
+     */
+    private int addPiece(ArrayList<Seg> sl, int index, Seg se, int ax, int ay, int bx, int by) {
+        if (ax == bx && ay == by)
+            return 0;
+        Seg piece = new Seg(ax, ay, bx-ax, by-ay, se.getDistance(), colchange);
+        piece.setPartition(se.isPartition());
+        piece.setSeen(se.isSeen());
+        sl.add(index, piece);
+        return 1;
+    }
+
+    ////////////////// closing a wall: insert segments ///////////////////////
+
+    /**
+     * Inserts a segment into the tree. Descends from the root with the same decisions
+     * as BSPBuilder.genNodes and extends the bounds of all nodes on the way.
+     * @param root of the tree
+     * @param seg segment of one cell's length
+     */
+    private void insert(BSPNode root, Seg seg) {
+        final int sx = seg.getStartPositionX();
+        final int sy = seg.getStartPositionY();
+        final int ex = seg.getEndPositionX();
+        final int ey = seg.getEndPositionY();
+        BSPNode node = root;
+        BSPNode parent = null;
+        while (true) {
+            node.fix_bounds(sx, sy);
+            node.fix_bounds(ex, ey);
+            if (node instanceof BSPLazyNode) {
+                BSPLazyNode lazy = (BSPLazyNode) node;
+                synchronized (lazy) {
+                    ArrayList<Seg> sl = lazy.getPendingSlist();
+                    if (null != sl) {
+                        sl.add(seg);
+                        return;
+                    }
+                }
+                parent = lazy;
+                node = lazy.expand();
+                continue;
+            }
+            if (node.isIsleaf()) {
+                BSPLeaf leaf = (BSPLeaf) node;
+                ArrayList<Seg> patched = new ArrayList<Seg>(leaf.getSlist());
+                patched.add(seg);
+                // a leaf that is the root of an eager tree can not be replaced,
+                // only happens for a maze without internal walls
+                if (seg.isPartition() || null == parent)
+                    leaf.setSlist(patched);
+                else
+                    replace(parent, leaf, new BSPLazyNode(splitter, patched));
+                return;
+            }
+            BSPBranch branch = (BSPBranch) node;
+            // side of the partition line as in BSPBuilder.genNodes,
+            // a segment of one cell's length does not cross a partition line on a cell border
+            final int nx = branch.getDy();
+            final int ny = -branch.getDx();
+            int dot1 = (sx - branch.getX()) * nx + (sy - branch.getY()) * ny;
+            final int dot2 = (ex - branch.getX()) * nx + (ey - branch.getY()) * ny;
+            if (0 == dot1)
+                dot1 = dot2;
+            if (0 == dot1)
+                seg.setPartition(true); // on the partition line
+            final boolean sameDirection = Integer.signum(seg.getExtensionX()) == Integer.signum(branch.getDx())
+                    && Integer.signum(seg.getExtensionY()) == Integer.signum(branch.getDy());
+            parent = branch;
+            node = (dot1 > 0 || (0 == dot1 && sameDirection)) ? branch.getRightBranch() : branch.getLeftBranch();
+        }
+    }
+
+    /**
+     * Replaces a node in its parent, a branch or an expanded lazy node.
+     */
+    private void replace(BSPNode parent, BSPNode node, BSPNode replacement) {
+        if (parent instanceof BSPLazyNode)
+            ((BSPLazyNode) parent).replaceExpanded(replacement);
+        else
+            ((BSPBranch) parent).replaceChild(node, replacement);
+    }
+}
@@ -1,7 +1,5 @@
 package edu.wm.cs.cs301.elise.amazebyelise.generation;
 
-import android.graphics.Point;
-
 import edu.wm.cs.cs301.elise.amazebyelise.generation.Constants.StateGUI;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.BSPBranch;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.BSPLeaf;
@@ -13,6 +11,12 @@ import edu.wm.cs.cs301.elise.amazebyelise.generation.Seg;
 //import java.awt.Graphics2D;
 //import java.awt.Point;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This class encapsulates all functionality for drawing the current view
@@ -25,7 +29,7 @@ import java.util.ArrayList;
  * Paul Falstad granted permission to modify and use code for teaching purposes.
  * Refactored by Peter Kemper
  */
-public class FirstPersonDrawer {
+public class FirstPersonDrawer implements FirstPersonView {
     // keep local copies of values determined in StatePlaying.java,
     // all values are set in the constructor call
     // values are basically constants or shared data structures across
@@ -47,7 +51,7 @@ public class FirstPersonDrawer {
     // used in bounding box
     private int zscale = view_height/2;
 
-    MazePanel mazePanel ; // the graphics object for the buffer image this class draws on
+    MazeGraphics mazePanel ; // the graphics object for the buffer image this class draws on
     // note: updating the panel that is on screen with the buffer image
     // is the responsibility of the StatePlaying class
 
@@ -60,18 +64,20 @@ public class FirstPersonDrawer {
     // view direction (view_dx,view_dy)
     private int view_dx ; // set in redraw_play
     private int view_dy ; // set in redraw_play
-    // set of ranges
-    private RangeSet rset ; // set in redraw_play
+
+    // the view is split into vertical strips that are traversed independently,
+    // strip i covers columns [i*view_width/n, (i+1)*view_width/n - 1] for n strips
+    private Strip[] strips = { new Strip() };
+    private ExecutorService stripExecutor; // draws strips 1..n-1, null for a single strip
 
     // debug stuff
     private boolean deepdebug = false;
     private boolean all_visible = false;
-    private int traverse_node_ct;
-    private int traverse_ssector_ct;
-    private int drawrect_ct ;
-    private int drawrect_late_ct ;
-    private int drawrect_segment_ct ;
-    private int nesting = 0;
+
+    // statistics for the frame in progress, always counted as it costs a few increments
+    private final RenderStats stats = new RenderStats();
+    private boolean statsEnabled = false; // if true, frames are timed and a copy is published
+    private volatile RenderStats lastStats; // copy for last finished frame, null if disabled
 
     /**
      * Constructor
@@ -108,13 +114,13 @@ public class FirstPersonDrawer {
      * @param walk_step, only used to get viewx and viewy
      * @param view_offset, only used to get viewx and viewy
      */
-    public void redraw(MazePanel mazePanel, StateGUI state, int px, int py, int view_dx,
+    @Override
+    public void redraw(MazeGraphics mazePanel, StateGUI state, int px, int py, int view_dx,
                        int view_dy, int walk_step, int view_offset, RangeSet rset, int ang) {
         // if notified by model that state has changed
         // Query model for parameters
         //dbg("viewer.redraw called");
         this.mazePanel = mazePanel;
-        this.rset = rset ;
         this.view_dx = view_dx ;
         this.view_dy = view_dy ;
         this.angle = ang ;
@@ -127,23 +133,216 @@ public class FirstPersonDrawer {
         drawBackground(mazePanel);
         // set color to white and draw what ever can be seen from the current position
         mazePanel.setColor("White");
-        rset.set(0, view_width-1); // reset set of ranges to set with single new element (0,width-1)
-        // debug: reset counters
-        traverse_node_ct = traverse_ssector_ct =
-                drawrect_ct = drawrect_late_ct = drawrect_segment_ct = 0;
-        //
-        drawAllVisibleSectors(bsp_root);
+        stats.reset();
+        final long start = statsEnabled ? System.nanoTime() : 0;
+        // reset set of ranges of each strip to a single element that covers the strip
+        // the first strip works with the given set of ranges
+        final Strip[] strips = this.strips; // setStripCount may replace the array meanwhile
+        strips[0].rset = rset;
+        for (int i = 0; i != strips.length; i++) {
+            strips[i].begin(i*view_width/strips.length, (i+1)*view_width/strips.length - 1);
+        }
+        drawAllStrips(strips);
+        // composite strips in order, walls are batched by color, polygons do not overlap
+        // as each screen column is covered at most once
+        compositeStrips(strips);
+        for (Strip strip : strips) {
+            markSeen(strip.seen);
+            stats.add(strip.stats);
+            if (statsEnabled)
+                stats.columnsUncovered += strip.rset.countValues();
+        }
+        mazePanel.flushBatches();
+        if (statsEnabled) {
+            stats.frameNanos = System.nanoTime() - start;
+            lastStats = stats.copy();
+        }
+    }
+
+    /**
+     * Sets the number of vertical strips the view is split into. Each strip is traversed
+     * front-to-back with its own set of uncovered columns, strips after the first one
+     * are drawn by worker threads while the calling thread draws the first one.
+     * @param n number of strips, 1 draws the whole view on the calling thread
+     */
+    public void setStripCount(int n) {
+        if (n < 1 || n > view_width)
+            throw new IllegalArgumentException("Illegal number of strips: " + n);
+        if (n == strips.length)
+            return;
+        shutdown();
+        strips = new Strip[n];
+        for (int i = 0; i != n; i++)
+            strips[i] = new Strip();
+        if (n > 1) {
+            stripExecutor = Executors.newFixedThreadPool(n - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "FirstPersonDrawer strip");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
     }
 
+    /**
+     * @return number of vertical strips the view is split into
+     */
+    public int getStripCount() {
+        return strips.length;
+    }
+
+    /**
+     * Stops the worker threads for strips, the drawer falls back to a single strip.
+     */
+    @Override
+    public void shutdown() {
+        if (null != stripExecutor) {
+            stripExecutor.shutdown();
+            stripExecutor = null;
+        }
+        if (strips.length > 1)
+            strips = new Strip[] { new Strip() };
+    }
 
+    /**
+     * Switches frame statistics on or off. If on, each redraw measures its time
+     * and the number of uncovered columns and publishes its statistics.
+     * @param enabled true to publish statistics, false otherwise
+     */
+    @Override
+    public void setStatsEnabled(boolean enabled) {
+        statsEnabled = enabled;
+        if (!enabled)
+            lastStats = null;
+    }
+
+    /**
+     * Gives the statistics of the last frame that was finished while statistics were enabled.
+     * The returned object is not modified anymore and may be read on any thread.
+     * @return statistics of last frame, null if disabled or no frame has been drawn yet
+     */
+    @Override
+    public RenderStats getLastFrameStats() {
+        return lastStats;
+    }
+
+    /**
+     * Gives the statistics that the drawer counts into, valid after redraw returns
+     * and until the next redraw starts. Frame time and uncovered columns are 0
+     * unless statistics are enabled.
+     * @return statistics of the current frame
+     */
+    RenderStats getStats() {
+        return stats;
+    }
 
     ////////////////////////////// internal, private methods ///////////////////////////////
+    /**
+     * Traverses the BSP tree for all strips, strips after the first one on worker threads.
+     * Returns when all strips are done.
+     * @param strips parts of the view to draw
+     */
+    private void drawAllStrips(Strip[] strips) {
+        final ExecutorService executor = stripExecutor;
+        if (1 == strips.length || null == executor) {
+            for (Strip strip : strips)
+                drawAllVisibleSectors(strip, bsp_root);
+            return;
+        }
+        ArrayList<Future<?>> pending = new ArrayList<Future<?>>(strips.length - 1);
+        for (int i = 1; i < strips.length; i++) {
+            final Strip strip = strips[i];
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    drawAllVisibleSectors(strip, bsp_root);
+                }
+            };
+            try {
+                pending.add(executor.submit(task));
+            } catch (RejectedExecutionException e) {
+                task.run(); // shut down while drawing, finish the frame on this thread
+            }
+        }
+        drawAllVisibleSectors(strips[0], bsp_root);
+        try {
+            for (Future<?> f : pending)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("FirstPersonDrawer: drawing a strip failed", e.getCause());
+        }
+    }
+    /**
+     * Hands the quads of all strips to the graphics.
+     * A wall that crosses the border between two strips is cut into two quads whose corners
+     * are rounded independently. Such quads are joined again into the single quad that
+     * would result for a single strip, so the picture does not depend on the number of strips.
+     * @param strips parts of the view that have been drawn
+     */
+    private void compositeStrips(Strip[] strips) {
+        final int[] pending = new int[9]; // quad that reaches the right border of the previous strip
+        final int[] quad = new int[9];
+        Seg open = null; // segment of pending quad, null if there is none
+        for (int i = 0; i != strips.length; i++) {
+            final QuadList quads = strips[i].quads;
+            final int right = (i+1 == strips.length) ? -1 : strips[i].max + 1;
+            int joined = -1; // index of quad that continues the pending one
+            if (null != open) {
+                for (int k = 0; k != quads.size() && joined < 0; k++) {
+                    if (quads.getSeg(k) == open && quads.getLeft(k) == strips[i].min)
+                        joined = k;
+                }
+                if (joined >= 0)
+                    quads.extend(pending, joined);
+                if (joined < 0 || quads.getRight(joined) != right) {
+                    addQuad(pending);
+                    open = null;
+                }
+            }
+            for (int k = 0; k != quads.size(); k++) {
+                if (k == joined)
+                    continue;
+                if (quads.getRight(k) == right) {
+                    quads.get(k, pending);
+                    open = quads.getSeg(k);
+                    continue;
+                }
+                quads.get(k, quad);
+                addQuad(quad);
+            }
+        }
+    }
+    /**
+     * Hands a quad of 9 entries, color and 4 corners, to the graphics.
+     */
+    private void addQuad(int[] q) {
+        mazePanel.addQuad(q[0], q[1], q[2], q[3], q[4], q[5], q[6], q[7], q[8]);
+    }
+    /**
+     * Marks the given segments as seen and records their walls in seencells.
+     * Done after traversal such that strips do not modify shared data.
+     * @param segs segments that have been drawn
+     */
+    private void markSeen(ArrayList<Seg> segs) {
+        for (Seg seg : segs) {
+            if (!seg.isSeen()) {
+                seg.setSeen(true); // updates the segment
+                // set the seencells bit for all cells of a segment
+                // seg is not modified
+                seencells.addWallsForSegment(seg, map_unit); // updates seencells
+            }
+        }
+    }
     /**
      * Draws a black and a grey rectangle to provide a background.
      * Note that this also erases previous drawings of maze or map.
      * @param mazePanel
      */
-    private void drawBackground(MazePanel mazePanel) {
+    private void drawBackground(MazeGraphics mazePanel) {
         mazePanel.setColor("Black");
         mazePanel.fillRect(0, 0, view_width, view_height/2);
         mazePanel.setColor("DarkGray");
@@ -152,14 +351,23 @@ public class FirstPersonDrawer {
     /**
      * Recursive method to explore tree of BSP nodes and draw all segments in leaf nodes
      * where the bounding box is visible
+     * @param strip part of the view to draw
      * @param nn is the current node of interest
      */
-    private void drawAllVisibleSectors(BSPNode nn) {
-        traverse_node_ct++; // debug
+    private void drawAllVisibleSectors(Strip strip, BSPNode nn) {
+        strip.stats.nodesVisited++;
+
+        // a subtree of a lazy tree is built the first time it is visible
+        if (nn instanceof BSPLazyNode) {
+            BSPLazyNode lazy = (BSPLazyNode) nn;
+            if (!lazy.isExpanded())
+                strip.stats.nodesExpanded++;
+            nn = lazy.expand();
+        }
 
         // Anchor, stop recursion at leaf nodes
         if (nn.isIsleaf()) {
-            drawAllSegmentsOfASector((BSPLeaf) nn);
+            drawAllSegmentsOfASector(strip, (BSPLeaf) nn);
             return;
         }
 
@@ -168,34 +376,35 @@ public class FirstPersonDrawer {
 
         // debug code
         if (deepdebug) {
-            dbg("                               ".substring(0, nesting) +
+            dbg("                               ".substring(0, strip.nesting) +
                     "traverse_node "+n.getX()+" "+n.getY()+" "+n.getDx()+" "+n.getDy()+" "+
                     n.getLowerBoundX()+" "+n.getLowerBoundY()+" "+n.getUpperBoundX()+" "+n.getUpperBoundY());
         }
-        nesting++; // debug
+        strip.nesting++; // debug
 
         int dot = (viewx-n.getX())*n.getDy()-(viewy-n.getY())*n.getDx();
         BSPNode lch = n.getLeftBranch();
         BSPNode rch = n.getRightBranch();
         // The type of tree traversal depends on the value of dot
         // if dot >= 0 consider right node before left node
-        if ((dot >= 0) && (boundingBoxIsVisible(rch))) {
-            drawAllVisibleSectors(rch);
+        if ((dot >= 0) && (boundingBoxIsVisible(strip.rset, rch))) {
+            drawAllVisibleSectors(strip, rch);
         }
         // consider left node
-        if (boundingBoxIsVisible(lch))
-            drawAllVisibleSectors(lch);
+        if (boundingBoxIsVisible(strip.rset, lch))
+            drawAllVisibleSectors(strip, lch);
         // if dot < 0 consider right node now (after left node)
-        if ((dot < 0) && (boundingBoxIsVisible(rch))) {
-            drawAllVisibleSectors(rch);
+        if ((dot < 0) && (boundingBoxIsVisible(strip.rset, rch))) {
+            drawAllVisibleSectors(strip, rch);
         }
-        nesting--; // debug
+        strip.nesting--; // debug
     }
     /**
      * Decide if the bounding box is visible
+     * @param rset columns that are not covered yet
      * @return
      */
-    private boolean boundingBoxIsVisible(BSPNode b) {
+    private boolean boundingBoxIsVisible(RangeSet rset, BSPNode b) {
         int ymax = b.getUpperBoundY();
         int ymin = b.getLowerBoundY();
         int xmin = b.getLowerBoundX();
@@ -266,14 +475,14 @@ public class FirstPersonDrawer {
 
     /**
      * Traverses all segments of this leaf and draws corresponding rectangles on screen
+     * @param strip part of the view to draw
      * @param n is the leaf node
      */
-    private void drawAllSegmentsOfASector(BSPLeaf n) {
+    private void drawAllSegmentsOfASector(Strip strip, BSPLeaf n) {
         ArrayList<Seg> sl = n.getSlist();
-        // debug
-        traverse_ssector_ct++;
+        strip.stats.leavesVisited++;
         if (deepdebug) {
-            dbg("                               ".substring(0, nesting) +
+            dbg("                               ".substring(0, strip.nesting) +
                     "traverse_ssector "+n.getLowerBoundX()+" "+n.getLowerBoundY()+" "+n.getUpperBoundX()+" "+n.getUpperBoundY());
         }
         // for all segments of this node
@@ -281,10 +490,10 @@ public class FirstPersonDrawer {
             Seg seg = (Seg) sl.get(i);
             // draw rectangle
             // before: drawSegment(seg, seg.getStartPositionX(), seg.getStartPositionY(), seg.getEndPositionX(), seg.getEndPositionY());
-            drawSegment(seg);
+            drawSegment(strip, seg);
             // debug
             if (deepdebug) {
-                dbg("                               ".substring(0, nesting) +
+                dbg("                               ".substring(0, strip.nesting) +
                         " traverse_ssector(" + i +") "+
                         seg.getStartPositionX()+" "+seg.getStartPositionY()+" "+
                         seg.getExtensionX()+" "+seg.getExtensionY());
@@ -297,9 +506,10 @@ public class FirstPersonDrawer {
     /**
      * Draws segment on screen via graphics attribute gc
      * Helper method for traverse_ssector
-     * @param seg whose seen attribute may be set to true
+     * @param strip part of the view to draw, receives the polygons
+     * @param seg that is added to the strip's seen segments if drawn
      */
-    private void drawSegment(Seg seg) {
+    private void drawSegment(Strip strip, Seg seg) {
         int ox1 = seg.getStartPositionX();
         int y1 = seg.getStartPositionY() ;
         int ox2 = seg.getEndPositionX();
@@ -307,7 +517,6 @@ public class FirstPersonDrawer {
         int z1 = 0;
         int z2 = 100;
 
-        drawrect_ct++; // debug, counter
         ox1 -= viewx;
         y1 -= viewy;
         z1 -= viewz;
@@ -327,8 +536,10 @@ public class FirstPersonDrawer {
         z2 = -viewd_unscale(view_dx*ox2+view_dy*y2);
 
         RangePair rp = new RangePair(x1, z1, x2, z2);
-        if (!rp.clip3d(rp))
+        if (!rp.clip3d(rp)) {
+            strip.stats.segmentsClipped++;
             return;
+        }
 
         y11 = y11*zscale/rp.z1+(view_height/2); // constant from here
         y12 = y12*zscale/rp.z1+(view_height/2); // constant from here
@@ -336,13 +547,14 @@ public class FirstPersonDrawer {
         y22 = y22*zscale/rp.z2+(view_height/2); // constant from here
         x1 = rp.x1*zscale/rp.z1+(view_width/2); // constant from here
         x2 = rp.x2*zscale/rp.z2+(view_width/2); // constant from here
-        if (x1 >= x2) /* reject backfaces */
+        if (x1 >= x2) { /* reject backfaces */
+            strip.stats.segmentsRejected++;
             return;
+        }
         int x1i = x1;
         int xd = x2-x1;
-        mazePanel.setColor(seg.color);
         boolean drawn = false;
-        drawrect_late_ct++; // debug, counter
+        final RangeSet rset = strip.rset;
         // loop variable is x1i, upper limit x2 is fixed
         while (x1i <= x2) {
             // check if there is an intersection,
@@ -354,15 +566,14 @@ public class FirstPersonDrawer {
             x1i = p[0];
             int x2i = p[1];
             // let's work on the intersection (x1i,x2i)
-            int[] xps = { x1i, x1i, x2i+1, x2i+1 };
-            int[] yps = { y11+(x1i-x1)*(y21-y11)/xd,
-                    y12+(x1i-x1)*(y22-y12)/xd+1,
-                    y22+(x2i-x2)*(y22-y12)/xd+1,
-                    y21+(x2i-x2)*(y21-y11)/xd };
+            // polygon corners: (x1i,yp0), (x1i,yp1), (x2i+1,yp2), (x2i+1,yp3)
+            int yp0 = y11+(x1i-x1)*(y21-y11)/xd;
+            int yp1 = y12+(x1i-x1)*(y22-y12)/xd+1;
+            int yp2 = y22+(x2i-x2)*(y22-y12)/xd+1;
+            int yp3 = y21+(x2i-x2)*(y21-y11)/xd;
             // debug
-            //System.out.println("polygon-x: " + xps[0] + ", " + xps[1] + ", " + xps[2] + ", " + xps[3]) ;
-            //System.out.println("polygon-y: " + yps[0] + ", " + yps[1] + ", " + yps[2] + ", " + yps[3]) ;
-            mazePanel.fillPolygon(xps, yps, 4);
+            //System.out.println("polygon-y: " + yp0 + ", " + yp1 + ", " + yp2 + ", " + yp3) ;
+            strip.quads.add(seg, x1i, yp0, x1i, yp1, x2i+1, yp2, x2i+1, yp3);
             // for debugging purposes, code will draw a red line around polygon
             // this makes individual segments visible
 			/*
@@ -374,14 +585,15 @@ public class FirstPersonDrawer {
             drawn = true;
             rset.remove(x1i, x2i);
             x1i = x2i+1;
-            drawrect_segment_ct++; // debug, counter
+            strip.stats.polygonsEmitted++;
         }
-        if (drawn && !seg.isSeen()) {
-            seg.setSeen(true); // updates the segment
-            // set the seencells bit for all cells of a segment
-            // seg is not modified
-            seencells.addWallsForSegment(seg, map_unit); // updates seencells
+        if (drawn) {
+            strip.stats.segmentsDrawn++;
+            if (!seg.isSeen())
+                strip.seen.add(seg); // marked as seen after all strips are done
         }
+        else
+            strip.stats.segmentsRejected++; // hidden behind walls drawn before
     }
 
     ////////////////////////////// static methods that do not rely on instance fields //////
@@ -402,6 +614,110 @@ public class FirstPersonDrawer {
         System.out.println("FirstPersonDrawer:"+ str);
     }
 
+    /**
+     * Holds everything that changes while a part of the view is drawn, such that
+     * strips can be drawn at the same time: the columns that are not covered yet,
+     * the polygons to draw, the segments that were drawn and the statistics.
+     */
+    private static class Strip {
+        RangeSet rset = new RangeSet(); // columns of this strip that are not covered yet
+        final QuadList quads = new QuadList(); // polygons in drawing order
+        final ArrayList<Seg> seen = new ArrayList<Seg>(); // drawn segments that were not seen before
+        final RenderStats stats = new RenderStats();
+        int min; // first column of the strip
+        int max; // last column of the strip
+        int nesting; // debug
+
+        /**
+         * Prepares the strip for a new frame.
+         * @param min first column of the strip
+         * @param max last column of the strip
+         */
+        void begin(int min, int max) {
+            this.min = min;
+            this.max = max;
+            rset.set(min, max);
+            quads.clear();
+            seen.clear();
+            stats.reset();
+            nesting = 0;
+        }
+    }
+
+    /**
+     * Growing buffer of colored quadrilaterals together with the segments they show,
+     * 9 entries per quad: color followed by 4 corners in drawing order, which are
+     * (x0,y0), (x0,y1), (x2,y2), (x2,y3) for the quads of the FirstPersonDrawer.
+     */
+    private static class QuadList {
+        private int[] data = new int[9*32];
+        private Seg[] segs = new Seg[32];
+        private int size; // number of quads
+
+        void add(Seg seg, int x0, int y0, int x1, int y1, int x2, int y2, int x3, int y3) {
+            if (size == segs.length) {
+                int[] grownData = new int[data.length * 2];
+                System.arraycopy(data, 0, grownData, 0, data.length);
+                data = grownData;
+                Seg[] grownSegs = new Seg[segs.length * 2];
+                System.arraycopy(segs, 0, grownSegs, 0, segs.length);
+                segs = grownSegs;
+            }
+            segs[size] = seg;
+            int i = 9*size++;
+            data[i++] = seg.color;
+            data[i++] = x0;
+            data[i++] = y0;
+            data[i++] = x1;
+            data[i++] = y1;
+            data[i++] = x2;
+            data[i++] = y2;
+            data[i++] = x3;
+            data[i] = y3;
+        }
+
+        void clear() {
+            java.util.Arrays.fill(segs, 0, size, null);
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Seg getSeg(int k) {
+            return segs[k];
+        }
+
+        /**
+         * @return left x coordinate of the k-th quad
+         */
+        int getLeft(int k) {
+            return data[9*k+1];
+        }
+
+        /**
+         * @return right x coordinate of the k-th quad, exclusive
+         */
+        int getRight(int k) {
+            return data[9*k+5];
+        }
+
+        /**
+         * Copies the k-th quad into the given array of 9 entries.
+         */
+        void get(int k, int[] quad) {
+            System.arraycopy(data, 9*k, quad, 0, 9);
+        }
+
+        /**
+         * Replaces the right corners of the given quad by those of the k-th quad.
+         */
+        void extend(int[] quad, int k) {
+            System.arraycopy(data, 9*k+5, quad, 5, 4);
+        }
+    }
+
     /**
      * Trivial class to hold 4 integer values. Used only in FirstPersonDrawer.
      */
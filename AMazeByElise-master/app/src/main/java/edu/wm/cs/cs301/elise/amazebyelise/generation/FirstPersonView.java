@@ -0,0 +1,45 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import edu.wm.cs.cs301.elise.amazebyelise.generation.Constants.StateGUI;
+
+/**
+ * A renderer for the view at the maze from a first person perspective.
+ * StatePlaying draws with one of its implementations for a game session:
+ * the FirstPersonDrawer finds visible walls with a tree of BSP nodes,
+ * the RaycastDrawer casts a ray per screen column through the cells of the maze.
+ * Both mark the walls they draw as seen for the map.
+ */
+public interface FirstPersonView {
+    /**
+     * Draws the first person view for the given position and direction.
+     * @param mazePanel graphics to draw on
+     * @param state the current state of the GUI
+     * @param px x coordinate of current position
+     * @param py y coordinate of current position
+     * @param view_dx view direction, x coordinate
+     * @param view_dy view direction, y coordinate
+     * @param walk_step intermediate step of a move
+     * @param view_offset distance of viewer behind the current position
+     * @param rset set of ranges to work with, content is overwritten
+     * @param ang angle of view direction
+     */
+    void redraw(MazeGraphics mazePanel, StateGUI state, int px, int py, int view_dx,
+                int view_dy, int walk_step, int view_offset, RangeSet rset, int ang);
+
+    /**
+     * Switches frame statistics on or off.
+     * @param enabled true to publish statistics, false otherwise
+     */
+    void setStatsEnabled(boolean enabled);
+
+    /**
+     * Gives the statistics of the last frame that was finished while statistics were enabled.
+     * @return statistics of last frame, null if disabled or no frame has been drawn yet
+     */
+    RenderStats getLastFrameStats();
+
+    /**
+     * Releases threads or other resources the renderer holds, it can still draw afterwards.
+     */
+    void shutdown();
+}
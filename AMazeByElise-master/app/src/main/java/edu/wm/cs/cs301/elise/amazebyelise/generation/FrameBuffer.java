@@ -0,0 +1,227 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.Arrays;
+
+/**
+ * Plain Java implementation of the drawing operations in MazeGraphics.
+ * Draws into an array of ARGB pixels without any dependency on the Android framework,
+ * such that the FirstPersonDrawer and the MapDrawer can run on a desktop JVM,
+ * e.g. to measure drawing performance or to compare frames for regressions.
+ *
+ * Rasterization follows simple and deterministic rules: a pixel is filled if its
+ * center is inside a rectangle, polygon or oval, lines are drawn with Bresenham's
+ * algorithm including both end points. Results are not meant to match an Android Canvas
+ * pixel by pixel, but frames drawn with this class are comparable with each other
+ * by their checksum. Batched primitives are drawn right away, so flushBatches()
+ * has nothing left to do.
+ */
+public class FrameBuffer implements MazeGraphics {
+    private final int width;
+    private final int height;
+    private final int[] pixels; // pixel (x,y) at x + y*width
+    private int color = MazeColors.BLACK; // current color
+    // scratch arrays for polygon fills, reused to avoid allocations per primitive
+    private final int[] quadX = new int[4];
+    private final int[] quadY = new int[4];
+    private double[] crossings = new double[8];
+
+    /**
+     * Constructor
+     * @param width of frame in pixels
+     * @param height of frame in pixels
+     */
+    public FrameBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gives direct access to the pixels, pixel (x,y) is at index x + y*width.
+     * @return array of ARGB color-int values
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Sets all pixels to the given color.
+     * @param c color-int value
+     */
+    public void clear(int c) {
+        Arrays.fill(pixels, c);
+    }
+
+    /**
+     * Computes a 64 bit FNV-1a hash over all pixels.
+     * Two frames with the same content have the same checksum.
+     * @return checksum of current content
+     */
+    public long checksum() {
+        long h = 0xcbf29ce484222325L;
+        for (int p : pixels) {
+            h ^= p;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    @Override
+    public void setColor(String c) {
+        color = MazeColors.getColorEncoding(c, color); // unknown names keep the color
+    }
+
+    @Override
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    @Override
+    public int getColor() {
+        return color;
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        final int x0 = Math.max(0, x);
+        final int x1 = Math.min(this.width, x + width);
+        final int y0 = Math.max(0, y);
+        final int y1 = Math.min(this.height, y + height);
+        if (x0 >= x1)
+            return;
+        for (int row = y0; row < y1; row++) {
+            Arrays.fill(pixels, row*this.width + x0, row*this.width + x1, color);
+        }
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        if (nPoints < 3)
+            return;
+        int ymin = yPoints[0];
+        int ymax = yPoints[0];
+        for (int i = 1; i < nPoints; i++) {
+            ymin = Math.min(ymin, yPoints[i]);
+            ymax = Math.max(ymax, yPoints[i]);
+        }
+        if (crossings.length < nPoints)
+            crossings = new double[nPoints];
+        ymin = Math.max(0, ymin);
+        ymax = Math.min(height, ymax);
+        for (int row = ymin; row < ymax; row++) {
+            // intersections of the row's center line with all edges
+            final double sy = row + 0.5;
+            int n = 0;
+            for (int i = 0, j = nPoints-1; i < nPoints; j = i++) {
+                final int ya = yPoints[j];
+                final int yb = yPoints[i];
+                if ((ya <= sy && sy < yb) || (yb <= sy && sy < ya)) {
+                    final double x = xPoints[j] + (sy - ya) * (xPoints[i] - xPoints[j]) / (double) (yb - ya);
+                    // insertion sort, polygons have few edges
+                    int k = n++;
+                    while (k > 0 && crossings[k-1] > x) {
+                        crossings[k] = crossings[k-1];
+                        k--;
+                    }
+                    crossings[k] = x;
+                }
+            }
+            // fill between pairs of crossings, even-odd rule
+            for (int k = 0; k+1 < n; k += 2) {
+                final int xa = Math.max(0, (int) Math.ceil(crossings[k] - 0.5));
+                final int xb = Math.min(width, (int) Math.ceil(crossings[k+1] - 0.5));
+                if (xa < xb)
+                    Arrays.fill(pixels, row*width + xa, row*width + xb, color);
+            }
+        }
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        final int dx = Math.abs(x2 - x1);
+        final int dy = -Math.abs(y2 - y1);
+        final int sx = (x1 < x2) ? 1 : -1;
+        final int sy = (y1 < y2) ? 1 : -1;
+        int err = dx + dy;
+        int x = x1;
+        int y = y1;
+        while (true) {
+            if (0 <= x && x < width && 0 <= y && y < height)
+                pixels[x + y*width] = color;
+            if (x == x2 && y == y2)
+                return;
+            final int e2 = 2*err;
+            if (e2 >= dy) {
+                err += dy;
+                x += sx;
+            }
+            if (e2 <= dx) {
+                err += dx;
+                y += sy;
+            }
+        }
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0)
+            return;
+        final double rx = width / 2.0;
+        final double ry = height / 2.0;
+        final double cx = x + rx;
+        final double cy = y + ry;
+        for (int row = Math.max(0, y); row < Math.min(this.height, y + height); row++) {
+            final double ny = (row + 0.5 - cy) / ry;
+            if (ny * ny > 1)
+                continue;
+            final double half = rx * Math.sqrt(1 - ny * ny);
+            final int xa = Math.max(0, (int) Math.ceil(cx - half - 0.5));
+            final int xb = Math.min(this.width, (int) Math.ceil(cx + half - 0.5));
+            if (xa < xb)
+                Arrays.fill(pixels, row*this.width + xa, row*this.width + xb, color);
+        }
+    }
+
+    @Override
+    public void addLine(int color, int x1, int y1, int x2, int y2) {
+        final int saved = this.color;
+        this.color = color;
+        drawLine(x1, y1, x2, y2);
+        this.color = saved;
+    }
+
+    @Override
+    public void addQuad(int color, int x0, int y0, int x1, int y1, int x2, int y2, int x3, int y3) {
+        quadX[0] = x0;
+        quadY[0] = y0;
+        quadX[1] = x1;
+        quadY[1] = y1;
+        quadX[2] = x2;
+        quadY[2] = y2;
+        quadX[3] = x3;
+        quadY[3] = y3;
+        final int saved = this.color;
+        this.color = color;
+        fillPolygon(quadX, quadY, 4);
+        this.color = saved;
+    }
+
+    @Override
+    public void flushBatches() {
+        // primitives are drawn right away
+    }
+
+    @Override
+    public MapTiles createMapTiles(MazeConfiguration mazeConfig, Cells seencells, int viewWidth, int viewHeight) {
+        // walls are drawn one by one, which keeps frames independent of cached content
+        return null;
+    }
+}
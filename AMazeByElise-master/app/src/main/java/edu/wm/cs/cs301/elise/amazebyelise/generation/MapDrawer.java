@@ -23,15 +23,19 @@ public class MapDrawer {
     int view_width = 400;
     int view_height = 400;
     int map_unit = 128;
-    int map_scale = 10 ;
+    volatile int map_scale = 10 ; // changed on the UI thread, drawing uses the scale of a ViewState
     int step_size = map_unit/4;
+    // colors are resolved once, draw_map uses them for every wall on display
+    private static final int SEEN_WALL_COLOR = MazeColors.getColorEncoding("White");
+    private static final int UNSEEN_WALL_COLOR = MazeColors.getColorEncoding("Gray");
+    private static final int SOLUTION_COLOR = MazeColors.getColorEncoding("Yellow");
     /**
      * Seencells contains information on walls that are seen from the current point of view.
      * The field is set by the constructor. The referenced object is shared with
      * the FirstPersonDrawer that writes content into it. The MapDrawer only
      * reads content to decide which lines to draw and in which color.
      */
-    Cells seencells ;
+    final Cells seencells ;
 
     /**
      * Contains all necessary information about current maze, i.e.
@@ -49,6 +53,21 @@ public class MapDrawer {
      */
     StatePlaying controller;
 
+    /**
+     * Keeps the walls of the map pre-rendered, e.g. in bitmap tiles.
+     * Only used on the thread that draws, like solutionPath.
+     * Created on first use by the graphics target, which may not support it,
+     * then draw_map draws each visible wall on every redraw.
+     */
+    MapTiles tileCache;
+
+    /**
+     * Keeps the path from the current position to the exit for draw_solution,
+     * created on first use and again if walls of the maze change.
+     */
+    SolutionPath solutionPath;
+    private long solutionFingerprint; // fingerprint of the maze cells solutionPath is for
+
     /**
      * Constructor
      * @param width of display
@@ -72,6 +91,35 @@ public class MapDrawer {
         assert mazeConfig != null : "MapDrawer: maze configuration is null in given maze object!" ;
     }
 
+    /**
+     * Constructor for drawing without a controller, e.g. for benchmarks.
+     * Without a controller redraw does nothing, callers use draw_map directly.
+     * @param width of display
+     * @param height of display
+     * @param map_unit
+     * @param step_size
+     * @param seencells
+     * @param map_scale
+     * @param mazeConfig the maze to draw
+     */
+    public MapDrawer(int width, int height, int map_unit, int step_size, Cells seencells, int map_scale, MazeConfiguration mazeConfig){
+        view_width = width ;
+        view_height = height ;
+        this.map_unit = map_unit ;
+        this.step_size = step_size ;
+        this.seencells = seencells ;
+        this.map_scale = map_scale ;
+        controller = null ;
+        this.mazeConfig = mazeConfig ;
+    }
+
+    /**
+     * @return current map scale in pixels per cell, to hand over to the drawing thread with a ViewState
+     */
+    public int getMapScale() {
+        return map_scale ;
+    }
+
     public void incrementMapScale() {
         if (null != controller) {
             if (controller.isInMapMode())
@@ -91,17 +139,20 @@ public class MapDrawer {
     }
 
 
-    public void redraw(MazePanel mazePanel, StateGUI state, int px, int py,
-                       int view_dx, int view_dy, int walk_step, int view_offset,
-                       RangeSet rset, int ang) {
+    /**
+     * Draws the map for the given snapshot if the map is on display.
+     * Position, direction and map settings all come from the snapshot
+     * since the game changes them while the frame is drawn.
+     */
+    public void redraw(MazeGraphics mazePanel, StateGUI state, ViewState s) {
         //dbg("redraw") ;
         if (state != StateGUI.STATE_PLAY)
             return ;
         if (null != controller) {
-            if (controller.isInMapMode()) {
-                draw_map(mazePanel, px, py, walk_step, view_dx, view_dy,
-                        controller.isInShowMazeMode(), controller.isInShowSolutionMode()) ;
-                draw_currentlocation(mazePanel, view_dx, view_dy) ;
+            if (s.mapMode) {
+                draw_map(mazePanel, s.px, s.py, s.walkStep, s.viewdx, s.viewdy,
+                        s.showMaze, s.showSolution, s.mapScale) ;
+                draw_currentlocation(mazePanel, s.viewdx, s.viewdy, s.mapScale) ;
             }
         }
     }
@@ -111,14 +162,19 @@ public class MapDrawer {
      * The map is drawn only on a small rectangle inside the maze area such that only a part of the map is actually shown.
      * Of course a part covering the current location needs to be displayed.
      */
-    public void draw_map(MazePanel mazePanel, int px, int py, int walk_step,
+    public void draw_map(MazeGraphics mazePanel, int px, int py, int walk_step,
                          int view_dx, int view_dy, boolean showMaze, boolean showSolution) {
-        // dimensions of the maze
-        final int mazew = mazeConfig.getWidth() ;
+        draw_map(mazePanel, px, py, walk_step, view_dx, view_dy, showMaze, showSolution, map_scale) ;
+    }
+    /**
+     * Draws the map at the given scale, see draw_map above.
+     * @param map_scale pixels per cell
+     */
+    public void draw_map(MazeGraphics mazePanel, int px, int py, int walk_step,
+                         int view_dx, int view_dy, boolean showMaze, boolean showSolution, int map_scale) {
+        // height of the maze
         final int mazeh = mazeConfig.getHeight() ;
 
-        mazePanel.setColor("White");
-
         // determine offsets for x and y
         int vx = px*map_unit+map_unit/2;
         vx += viewd_unscale(view_dx*(step_size*walk_step));
@@ -127,6 +183,32 @@ public class MapDrawer {
         int offx = -vx*map_scale/map_unit + view_width/2;
         int offy = -vy*map_scale/map_unit + view_height/2;
 
+        if (null == tileCache)
+            tileCache = mazePanel.createMapTiles(mazeConfig, seencells, view_width, view_height) ;
+        if (null != tileCache) {
+            // tiles are in map space where the top row of the maze is at y = 0
+            tileCache.draw(offx, view_height-1-offy-mazeh*map_scale,
+                    view_width, view_height, map_scale, showMaze) ;
+        }
+        else {
+            draw_walls(mazePanel, offx, offy, showMaze, map_scale) ;
+        }
+
+        if (showSolution) {
+            draw_solution(mazePanel, offx, offy, px, py, map_scale) ;
+        }
+        // walls and solution are batched, put them on the canvas before the current location
+        mazePanel.flushBatches();
+    }
+    /**
+     * Draws all walls of the map that are visible on the screen, one line each.
+     * Lines are batched, the caller is responsible to flush the panel's batches.
+     */
+    private void draw_walls(MazeGraphics mazePanel, int offx, int offy, boolean showMaze, int map_scale) {
+        // dimensions of the maze
+        final int mazew = mazeConfig.getWidth() ;
+        final int mazeh = mazeConfig.getHeight() ;
+
         // compute minimum for x,y
         int xmin = -offx/map_scale;
         int ymin = -offy/map_scale;
@@ -146,34 +228,58 @@ public class MapDrawer {
                 int ny1 = view_height-1-(y*map_scale + offy);
                 int nx2 = nx1 + map_scale;
                 int ny2 = ny1 - map_scale;
-                boolean theCondition = (x >= mazew) ? false : ((y < mazeh) ?
-                        mazeConfig.hasWall(x,y, CardinalDirection.North) :
-                        mazeConfig.hasWall(x,y-1, CardinalDirection.South));
+                boolean theCondition = hasNorthWall(mazeConfig, x, y);
 
-                mazePanel.setColor(seencells.hasWall(x,y, CardinalDirection.North) ? "White" : "Gray");
-                if ((seencells.hasWall(x,y, CardinalDirection.North) || showMaze) && theCondition)
-                    mazePanel.drawLine(nx1, ny1, nx2, ny1);
+                boolean seen = seencells.hasWall(x,y, CardinalDirection.North);
+                if ((seen || showMaze) && theCondition)
+                    mazePanel.addLine(seen ? SEEN_WALL_COLOR : UNSEEN_WALL_COLOR, nx1, ny1, nx2, ny1);
 
-                theCondition = (y >= mazeh) ? false : ((x < mazew) ?
-                        mazeConfig.hasWall(x,y, CardinalDirection.West) :
-                        mazeConfig.hasWall((x-1),y, CardinalDirection.East));
+                theCondition = hasWestWall(mazeConfig, x, y);
 
-                mazePanel.setColor(seencells.hasWall(x,y, CardinalDirection.West) ? "White" : "Gray");
-                if ((seencells.hasWall(x,y, CardinalDirection.West) || showMaze) && theCondition)
-                    mazePanel.drawLine(nx1, ny1, nx1, ny2);
+                seen = seencells.hasWall(x,y, CardinalDirection.West);
+                if ((seen || showMaze) && theCondition)
+                    mazePanel.addLine(seen ? SEEN_WALL_COLOR : UNSEEN_WALL_COLOR, nx1, ny1, nx1, ny2);
             }
+    }
 
-        if (showSolution) {
-            draw_solution(mazePanel, offx, offy, px, py) ;
-        }
+    /**
+     * Tells if the map shows a wall on the north side of cell (x,y),
+     * with (width,y) and (x,height) being positions just outside the maze.
+     */
+    static boolean hasNorthWall(MazeConfiguration mazeConfig, int x, int y) {
+        if (x >= mazeConfig.getWidth())
+            return false;
+        return (y < mazeConfig.getHeight()) ?
+                mazeConfig.hasWall(x, y, CardinalDirection.North) :
+                mazeConfig.hasWall(x, y-1, CardinalDirection.South);
+    }
+
+    /**
+     * Tells if the map shows a wall on the west side of cell (x,y),
+     * with (width,y) and (x,height) being positions just outside the maze.
+     */
+    static boolean hasWestWall(MazeConfiguration mazeConfig, int x, int y) {
+        if (y >= mazeConfig.getHeight())
+            return false;
+        return (x < mazeConfig.getWidth()) ?
+                mazeConfig.hasWall(x, y, CardinalDirection.West) :
+                mazeConfig.hasWall(x-1, y, CardinalDirection.East);
     }
+
     /**
      * Draws an oval red shape with and arrow for the current position
      * and direction on the maze.
      * It always reside on the center of the screen.
      * The map drawing moves if the user changes location.
      */
-    public void draw_currentlocation(MazePanel mazePanel, int view_dx, int view_dy) {
+    public void draw_currentlocation(MazeGraphics mazePanel, int view_dx, int view_dy) {
+        draw_currentlocation(mazePanel, view_dx, view_dy, map_scale) ;
+    }
+    /**
+     * Draws the current position at the given scale, see draw_currentlocation above.
+     * @param map_scale pixels per cell
+     */
+    public void draw_currentlocation(MazeGraphics mazePanel, int view_dx, int view_dy, int map_scale) {
         mazePanel.setColor("Red");
         // draw oval of appropriate size at the center of the screen
         int ctrx = view_width/2; // center x
@@ -200,48 +306,53 @@ public class MapDrawer {
      * Draws a yellow line to show the solution on the overall map.
      * Method is only called if in state playing and map_mode
      * and showSolution are true.
+     * Lines are batched, the caller is responsible to flush the panel's batches.
      * Since the current position is fixed at the center of the screen,
      * all lines on the map are drawn with some offset.
      */
-    public void draw_solution(MazePanel mazePanel, int offx, int offy, int px, int py) {
+    public void draw_solution(MazeGraphics mazePanel, int offx, int offy, int px, int py, int map_scale) {
 
         if (!mazeConfig.isValidPosition(px, py)) {
             dbg(" Parameter error: position out of bounds: (" + px + "," + py + ") for maze of size " + mazeConfig.getWidth() + "," + mazeConfig.getHeight()) ;
             return ;
         }
-        // current position on the solution path (sx,sy)
-        int sx = px;
-        int sy = py;
-        int distance = mazeConfig.getDistanceToExit(sx, sy);
-
-        mazePanel.setColor("Yellow");
-
-        // while we are more than 1 step away from the final position
-        while (distance > 1) {
-            // find neighbor closer to exit (with no wall in between)
-            int[] neighbor = mazeConfig.getNeighborCloserToExit(sx, sy) ;
-            if (null == neighbor)
-                return ; // error
-            // scale coordinates, original calculation:
-            // x-coordinates
-            // nx1     == sx*map_scale + offx + map_scale/2;
-            // nx1+ndx == sx*map_scale + offx + map_scale/2 + dx*map_scale == (sx+dx)*map_scale + offx + map_scale/2;
-            // y-coordinates
-            // ny1     == view_height-1-(sy*map_scale + offy) - map_scale/2;
-            // ny1+ndy == view_height-1-(sy*map_scale + offy) - map_scale/2 + -dy * map_scale == view_height-1 -((sy+dy)*map_scale + offy) - map_scale/2
-            // current position coordinates
-            int nx1 = sx*map_scale + offx + map_scale/2;
-            int ny1 = view_height-1-(sy*map_scale + offy) - map_scale/2;
-            // neighbor position coordinates
-            int nx2 = neighbor[0]*map_scale + offx + map_scale/2;
-            int ny2 = view_height-1-(neighbor[1]*map_scale + offy) - map_scale/2;
-            mazePanel.drawLine(nx1, ny1, nx2, ny2);
-
-            // update loop variables for current position (sx,sy) and distance d for next iteration
-            sx = neighbor[0];
-            sy = neighbor[1];
-            distance = mazeConfig.getDistanceToExit(sx, sy) ;
-
+        // a DynamicMaze changes walls and distances, the path follows the distances
+        final long fingerprint = mazeConfig.getMazecells().getFingerprint() ;
+        if (null == solutionPath || fingerprint != solutionFingerprint) {
+            solutionPath = new SolutionPath(mazeConfig) ;
+            solutionFingerprint = fingerprint ;
+        }
+        solutionPath.update(px, py) ;
+        final int n = solutionPath.size() ;
+        if (n < 2)
+            return ; // at exit or no path
+        // draw one line per straight run of the path, runs end where the direction changes
+        // scale coordinates:
+        // x-coordinates: sx*map_scale + offx + map_scale/2
+        // y-coordinates: view_height-1-(sy*map_scale + offy) - map_scale/2
+        int startx = solutionPath.getX(0) ; // start of current run
+        int starty = solutionPath.getY(0) ;
+        int prevx = startx ;
+        int prevy = starty ;
+        int dx = solutionPath.getX(1) - startx ; // direction of current run
+        int dy = solutionPath.getY(1) - starty ;
+        for (int i = 1; i <= n; i++) {
+            int sx = (i < n) ? solutionPath.getX(i) : prevx ;
+            int sy = (i < n) ? solutionPath.getY(i) : prevy ;
+            if (i == n || sx - prevx != dx || sy - prevy != dy) {
+                // run ends at previous position
+                int nx1 = startx*map_scale + offx + map_scale/2;
+                int ny1 = view_height-1-(starty*map_scale + offy) - map_scale/2;
+                int nx2 = prevx*map_scale + offx + map_scale/2;
+                int ny2 = view_height-1-(prevy*map_scale + offy) - map_scale/2;
+                mazePanel.addLine(SOLUTION_COLOR, nx1, ny1, nx2, ny2);
+                startx = prevx ;
+                starty = prevy ;
+                dx = sx - prevx ;
+                dy = sy - prevy ;
+            }
+            prevx = sx ;
+            prevy = sy ;
         }
     }
     /**
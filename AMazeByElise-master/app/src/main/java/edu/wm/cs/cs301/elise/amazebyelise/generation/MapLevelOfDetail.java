@@ -0,0 +1,173 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * This class holds a multi-resolution representation of the walls on the top-down map
+ * for drawing the map at scales where single walls are only a pixel or two apart.
+ *
+ * Level k aggregates square blocks of 2^k by 2^k cells, k = 1,2,..., and keeps
+ * for each block the number of walls in the maze and the number of walls that have
+ * been seen. Walls are counted the way the map shows them, i.e. the north and west wall
+ * of each position (x,y) with 0 <= x <= width and 0 <= y <= height.
+ * Level k+1 is the sum of 4 blocks of level k, such that the whole pyramid is built in
+ * time proportional to the number of cells and takes about 2/3 of a count per cell.
+ *
+ * Instead of individual walls the map then shows one rectangle per block of the chosen
+ * level whose opacity reflects the wall density of the block, so the number of
+ * primitives on display is bounded by the screen size and not by the maze size.
+ */
+public class MapLevelOfDetail {
+    /**
+     * Blocks on display are at least this many pixels wide, the map
+     * draws individual walls for map scales of this size and above.
+     */
+    static final int MIN_BLOCK_PIXELS = 4;
+
+    private final MazeConfiguration mazeConfig; // source for walls of the maze
+    private final Cells seencells; // source for walls seen so far
+    private final int levels; // number of levels, level 0 is not stored
+    private final int[] widths; // number of blocks per row, by level
+    private final int[] heights; // number of blocks per column, by level
+    private final int[][] total; // number of walls in block, by level, block (bx,by) at bx + by*widths[k]
+    private final int[][] seen; // number of seen walls in block, same layout as total
+
+    /**
+     * Constructor, builds all levels from the current content of the maze and seencells.
+     * @param mazeConfig gives the walls of the maze
+     * @param seencells gives the walls that have been seen, same object as in MapDrawer
+     * @param levels number of levels, at least 1
+     */
+    public MapLevelOfDetail(MazeConfiguration mazeConfig, Cells seencells, int levels) {
+        this.mazeConfig = mazeConfig;
+        this.seencells = seencells;
+        this.levels = levels;
+        widths = new int[levels+1];
+        heights = new int[levels+1];
+        total = new int[levels+1][];
+        seen = new int[levels+1][];
+        // positions range over [0,width] and [0,height]
+        widths[0] = mazeConfig.getWidth() + 1;
+        heights[0] = mazeConfig.getHeight() + 1;
+        for (int k = 1; k <= levels; k++) {
+            widths[k] = (widths[k-1] + 1) / 2;
+            heights[k] = (heights[k-1] + 1) / 2;
+            total[k] = new int[widths[k] * heights[k]];
+            seen[k] = new int[widths[k] * heights[k]];
+        }
+        update(0, 0, widths[0]-1, heights[0]-1);
+    }
+
+    /**
+     * Gives the level of detail for the given map scale.
+     * @param mapScale number of pixels per cell
+     * @return 0 if single walls are to be drawn, level to use otherwise
+     */
+    public static int getLevelForScale(int mapScale) {
+        int k = 0;
+        while ((mapScale << k) < MIN_BLOCK_PIXELS)
+            k++;
+        return k;
+    }
+
+    /**
+     * Gives the number of levels that are necessary to support all map scales
+     * down to 1 pixel per cell.
+     */
+    public static int getMaxLevel() {
+        return getLevelForScale(1);
+    }
+
+    /**
+     * Recomputes counts for all blocks that contain the given area of positions.
+     * Needs to be called when seencells receives new walls.
+     * @param minX lower bound of x coordinates, inclusive
+     * @param minY lower bound of y coordinates, inclusive
+     * @param maxX upper bound of x coordinates, inclusive
+     * @param maxY upper bound of y coordinates, inclusive
+     */
+    public void update(int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(widths[0]-1, maxX);
+        maxY = Math.min(heights[0]-1, maxY);
+        if (minX > maxX || minY > maxY)
+            return;
+        // level 1 from single positions
+        for (int by = minY >> 1; by <= maxY >> 1; by++) {
+            for (int bx = minX >> 1; bx <= maxX >> 1; bx++) {
+                int t = 0;
+                int s = 0;
+                for (int y = 2*by; y < Math.min(2*by+2, heights[0]); y++) {
+                    for (int x = 2*bx; x < Math.min(2*bx+2, widths[0]); x++) {
+                        if (MapDrawer.hasNorthWall(mazeConfig, x, y)) {
+                            t++;
+                            if (seencells.hasWall(x, y, CardinalDirection.North))
+                                s++;
+                        }
+                        if (MapDrawer.hasWestWall(mazeConfig, x, y)) {
+                            t++;
+                            if (seencells.hasWall(x, y, CardinalDirection.West))
+                                s++;
+                        }
+                    }
+                }
+                total[1][bx + by*widths[1]] = t;
+                seen[1][bx + by*widths[1]] = s;
+            }
+        }
+        // higher levels from 4 blocks of the level below
+        for (int k = 2; k <= levels; k++) {
+            for (int by = minY >> k; by <= maxY >> k; by++) {
+                for (int bx = minX >> k; bx <= maxX >> k; bx++) {
+                    int t = 0;
+                    int s = 0;
+                    for (int cy = 2*by; cy < Math.min(2*by+2, heights[k-1]); cy++) {
+                        for (int cx = 2*bx; cx < Math.min(2*bx+2, widths[k-1]); cx++) {
+                            t += total[k-1][cx + cy*widths[k-1]];
+                            s += seen[k-1][cx + cy*widths[k-1]];
+                        }
+                    }
+                    total[k][bx + by*widths[k]] = t;
+                    seen[k][bx + by*widths[k]] = s;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of blocks per row on level k
+     */
+    public int getWidth(int k) {
+        return widths[k];
+    }
+
+    /**
+     * @return number of blocks per column on level k
+     */
+    public int getHeight(int k) {
+        return heights[k];
+    }
+
+    /**
+     * @return number of walls in block (bx,by) on level k
+     */
+    public int getWallCount(int k, int bx, int by) {
+        return total[k][bx + by*widths[k]];
+    }
+
+    /**
+     * @return number of seen walls in block (bx,by) on level k
+     */
+    public int getSeenWallCount(int k, int bx, int by) {
+        return seen[k][bx + by*widths[k]];
+    }
+
+    /**
+     * Gives the opacity for a block with the given number of walls on level k.
+     * A block where every position has one wall is fully opaque,
+     * a perfect maze has about one wall per position.
+     * @return alpha value in 0..255
+     */
+    public static int getAlpha(int k, int walls) {
+        return Math.min(255, (walls * 255) >> (2*k));
+    }
+}
@@ -0,0 +1,295 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the walls of the top-down map pre-rendered in square bitmap tiles
+ * such that the MapDrawer does not need to check every visible wall on every redraw.
+ * A MazePanel creates it for the MapDrawer with createMapTiles and it draws on that panel.
+ *
+ * Tiles live in map space, a pixel space for the whole maze at the current map scale
+ * where X = x*map_scale and Y = (height-y)*map_scale for a cell (x,y),
+ * so the map is upside down as in the MapDrawer.
+ * The MapDrawer places map space on the screen with an offset that changes with
+ * every step of a walk, the tiles are simply blitted at that offset.
+ *
+ * The content of a tile depends on the map scale, the show maze setting and
+ * on the walls in seencells. A change of scale or of the show maze setting drops
+ * all tiles, new walls in seencells drop the tiles that cover the changed cells.
+ * Tiles are rendered on demand when they become visible, only a limited number of
+ * tiles is kept such that memory consumption does not grow with the size of the maze.
+ * At small map scales tiles show wall densities from a MapLevelOfDetail instead of
+ * single walls, such that rendering a tile does not depend on the size of the maze either.
+ */
+public class MapTileCache implements MapTiles {
+    static final int TILE_SIZE = 256; // width and height of a tile in pixels
+
+    private final MazeConfiguration mazeConfig; // source for walls of the maze
+    private final MazePanel mazePanel; // panel to draw on
+    private final Cells seencells; // source for walls seen so far, shared with FirstPersonDrawer
+    private final int maxTiles; // upper limit for tiles kept in cache
+
+    private int scale = -1; // map scale that current tiles are rendered for
+    private boolean showMaze; // show maze setting that current tiles are rendered for
+
+    // tiles by position, key encodes (tx,ty), iteration order is least recently used first
+    private final LinkedHashMap<Long, Bitmap> tiles = new LinkedHashMap<Long, Bitmap>(64, 0.75f, true);
+    private final ArrayList<Bitmap> unused = new ArrayList<Bitmap>(); // dropped tiles, ready for reuse
+    private final Canvas canvas = new Canvas(); // renders into tiles
+    private final Paint paint = new Paint();
+    private float[] lines = new float[256]; // line buffer for rendering a tile, 4 entries per line
+    private MapLevelOfDetail lod; // created when the map is zoomed out for the first time
+    private long mazeFingerprint; // fingerprint of the maze cells that tiles and lod are for
+
+    /**
+     * Constructor
+     * @param mazeConfig gives the walls of the maze
+     * @param seencells gives the walls that have been seen, same object as in MapDrawer
+     * @param viewWidth width of display
+     * @param viewHeight height of display
+     * @param mazePanel panel to draw on
+     */
+    public MapTileCache(MazeConfiguration mazeConfig, Cells seencells, int viewWidth, int viewHeight,
+                        MazePanel mazePanel) {
+        this.mazeConfig = mazeConfig;
+        this.mazePanel = mazePanel;
+        this.seencells = seencells;
+        mazeFingerprint = mazeConfig.getMazecells().getFingerprint();
+        // enough tiles for two screens worth of map, tiles that are partially visible included
+        maxTiles = 2 * (viewWidth/TILE_SIZE + 2) * (viewHeight/TILE_SIZE + 2);
+    }
+
+    /**
+     * Draws the map walls on the panel.
+     * @param offx screen x coordinate of map space X = 0
+     * @param offy screen y coordinate of map space Y = 0
+     * @param viewWidth width of display
+     * @param viewHeight height of display
+     * @param mapScale current map scale
+     * @param showMaze true if walls that have not been seen are drawn as well
+     */
+    @Override
+    public void draw(int offx, int offy, int viewWidth, int viewHeight, int mapScale, boolean showMaze) {
+        if (mapScale != scale || showMaze != this.showMaze) {
+            clear();
+            scale = mapScale;
+            this.showMaze = showMaze;
+        }
+        // a DynamicMaze opens and closes walls while the game is played,
+        // comparing fingerprints takes constant time
+        final long fingerprint = mazeConfig.getMazecells().getFingerprint();
+        if (fingerprint != mazeFingerprint) {
+            mazeFingerprint = fingerprint;
+            clear();
+            lod = null; // counts walls of the maze, created again on demand
+        }
+        invalidateChangedArea();
+        // range of tiles that hold map content
+        final int tileMaxX = floorDiv(mazeConfig.getWidth()*scale, TILE_SIZE);
+        final int tileMaxY = floorDiv(mazeConfig.getHeight()*scale, TILE_SIZE);
+        // range of tiles that are visible on the screen
+        final int txmin = Math.max(0, floorDiv(-offx, TILE_SIZE));
+        final int tymin = Math.max(0, floorDiv(-offy, TILE_SIZE));
+        final int txmax = Math.min(tileMaxX, floorDiv(viewWidth-1-offx, TILE_SIZE));
+        final int tymax = Math.min(tileMaxY, floorDiv(viewHeight-1-offy, TILE_SIZE));
+        for (int ty = tymin; ty <= tymax; ty++) {
+            for (int tx = txmin; tx <= txmax; tx++) {
+                mazePanel.drawBitmap(getTile(tx, ty), offx + tx*TILE_SIZE, offy + ty*TILE_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Drops all tiles, e.g. if the map scale changes.
+     */
+    @Override
+    public void clear() {
+        unused.addAll(tiles.values());
+        tiles.clear();
+    }
+
+    /**
+     * Drops all tiles that cover cells where seencells received new walls
+     * and resets the changed area in seencells.
+     */
+    private void invalidateChangedArea() {
+        if (!seencells.hasChangedArea())
+            return;
+        final int[] area = seencells.getChangedArea();
+        seencells.clearChangedArea();
+        if (null != lod)
+            lod.update(area[0], area[1], area[2], area[3]);
+        if (tiles.isEmpty())
+            return;
+        // map space covered by walls of cells in area, walls of cell (x,y) cover
+        // [x*scale,(x+1)*scale] horizontally and [(h-y-1)*scale,(h-y)*scale] vertically
+        final int h = mazeConfig.getHeight();
+        final int txmin = floorDiv(area[0]*scale, TILE_SIZE);
+        final int txmax = floorDiv((area[2]+1)*scale, TILE_SIZE);
+        final int tymin = floorDiv((h-area[3]-1)*scale, TILE_SIZE);
+        final int tymax = floorDiv((h-area[1])*scale, TILE_SIZE);
+        Iterator<Map.Entry<Long, Bitmap>> it = tiles.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Bitmap> e = it.next();
+            final int tx = (int) (e.getKey() >> 32);
+            final int ty = (int) (long) e.getKey();
+            if (txmin <= tx && tx <= txmax && tymin <= ty && ty <= tymax) {
+                unused.add(e.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Gives the tile at the given tile position, renders it if it is not in the cache.
+     * @param tx tile position, x coordinate
+     * @param ty tile position, y coordinate
+     * @return the rendered tile
+     */
+    private Bitmap getTile(int tx, int ty) {
+        final Long key = ((long) tx << 32) | (ty & 0xffffffffL);
+        Bitmap tile = tiles.get(key);
+        if (null != tile)
+            return tile;
+        // reuse a dropped tile or the least recently used one if the cache is full
+        if (!unused.isEmpty()) {
+            tile = unused.remove(unused.size()-1);
+        } else if (tiles.size() >= maxTiles) {
+            Iterator<Bitmap> it = tiles.values().iterator();
+            tile = it.next();
+            it.remove();
+        } else {
+            tile = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+        }
+        renderTile(tile, tx, ty);
+        tiles.put(key, tile);
+        return tile;
+    }
+
+    /**
+     * Renders all map walls that intersect with the given tile.
+     * Same walls and colors as in MapDrawer.draw_map.
+     * @param tile bitmap to draw on
+     * @param tx tile position, x coordinate
+     * @param ty tile position, y coordinate
+     */
+    private void renderTile(Bitmap tile, int tx, int ty) {
+        final int mazew = mazeConfig.getWidth();
+        final int mazeh = mazeConfig.getHeight();
+        final int x0 = tx*TILE_SIZE; // map space position of tile
+        final int y0 = ty*TILE_SIZE;
+        tile.eraseColor(Color.TRANSPARENT);
+        canvas.setBitmap(tile);
+        final int level = MapLevelOfDetail.getLevelForScale(scale);
+        if (level > 0) {
+            renderTileBlocks(level, x0, y0);
+            canvas.setBitmap(null);
+            return;
+        }
+        // cells whose walls may reach into this tile, one cell of margin on each side
+        final int xmin = Math.max(0, x0/scale - 1);
+        final int xmax = Math.min(mazew, (x0+TILE_SIZE)/scale + 1);
+        final int ymin = Math.max(0, mazeh - (y0+TILE_SIZE)/scale - 1);
+        final int ymax = Math.min(mazeh, mazeh - y0/scale + 1);
+        // two passes, one per color
+        for (int pass = 0; pass != 2; pass++) {
+            final boolean seenPass = (0 == pass);
+            if (!seenPass && !showMaze)
+                break; // walls that have not been seen are not on display
+            int n = 0;
+            for (int y = ymin; y <= ymax; y++) {
+                for (int x = xmin; x <= xmax; x++) {
+                    // upper left corner of cell in tile coordinates
+                    final int nx1 = x*scale - x0;
+                    final int ny1 = (mazeh-y)*scale - y0;
+                    if (seencells.hasWall(x, y, CardinalDirection.North) == seenPass && MapDrawer.hasNorthWall(mazeConfig, x, y)) {
+                        n = addLine(n, nx1, ny1, nx1 + scale, ny1);
+                    }
+                    if (seencells.hasWall(x, y, CardinalDirection.West) == seenPass && MapDrawer.hasWestWall(mazeConfig, x, y)) {
+                        n = addLine(n, nx1, ny1, nx1, ny1 - scale);
+                    }
+                }
+            }
+            if (n > 0) {
+                paint.setColor(seenPass ? Color.WHITE : Color.GRAY);
+                canvas.drawLines(lines, 0, n, paint);
+            }
+        }
+        canvas.setBitmap(null);
+    }
+
+    /**
+     * Renders one rectangle per block of the given level that intersects with the tile
+     * at map space position (x0,y0). Walls that have not been seen are shown as gray
+     * blocks if the whole maze is on display, seen walls as white blocks on top.
+     * @param level level of detail, at least 1
+     * @param x0 map space x coordinate of tile
+     * @param y0 map space y coordinate of tile
+     */
+    private void renderTileBlocks(int level, int x0, int y0) {
+        if (null == lod)
+            lod = new MapLevelOfDetail(mazeConfig, seencells, MapLevelOfDetail.getMaxLevel());
+        final int bs = scale << level; // block size in pixels
+        final int mazeBottom = mazeConfig.getHeight()*scale; // map space y coordinate of row 0
+        // blocks that intersect with this tile, block row by covers rows by*2^level to (by+1)*2^level-1
+        final int bxmin = Math.max(0, x0/bs);
+        final int bxmax = Math.min(lod.getWidth(level)-1, (x0+TILE_SIZE)/bs);
+        final int bymin = Math.max(0, floorDiv(mazeBottom - y0 - TILE_SIZE, bs) - 1);
+        final int bymax = Math.min(lod.getHeight(level)-1, floorDiv(mazeBottom - y0, bs));
+        for (int by = bymin; by <= bymax; by++) {
+            final int top = mazeBottom - (by+1)*bs - y0;
+            for (int bx = bxmin; bx <= bxmax; bx++) {
+                final int left = bx*bs - x0;
+                final int walls = lod.getWallCount(level, bx, by);
+                if (0 == walls)
+                    continue;
+                final int seenWalls = lod.getSeenWallCount(level, bx, by);
+                if (showMaze && seenWalls < walls) {
+                    paint.setColor(Color.argb(MapLevelOfDetail.getAlpha(level, walls - seenWalls),
+                            Color.red(Color.GRAY), Color.green(Color.GRAY), Color.blue(Color.GRAY)));
+                    canvas.drawRect(left, top, left + bs, top + bs, paint);
+                }
+                if (seenWalls > 0) {
+                    paint.setColor(Color.argb(MapLevelOfDetail.getAlpha(level, seenWalls), 255, 255, 255));
+                    canvas.drawRect(left, top, left + bs, top + bs, paint);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a line to the line buffer.
+     * @param n number of used entries in the buffer
+     * @return updated number of used entries
+     */
+    private int addLine(int n, int x1, int y1, int x2, int y2) {
+        if (n + 4 > lines.length) {
+            float[] grown = new float[lines.length * 2];
+            System.arraycopy(lines, 0, grown, 0, n);
+            lines = grown;
+        }
+        lines[n++] = x1;
+        lines[n++] = y1;
+        lines[n++] = x2;
+        lines[n++] = y2;
+        return n;
+    }
+
+    /**
+     * Integer division that rounds towards negative infinity.
+     */
+    static int floorDiv(int a, int b) {
+        int q = a / b;
+        if ((a % b != 0) && ((a < 0) != (b < 0)))
+            q--;
+        return q;
+    }
+}
@@ -0,0 +1,26 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * Walls of the top-down map pre-rendered by a drawing target, such that the MapDrawer
+ * does not need to draw every visible wall on every redraw.
+ * A MazeGraphics provides it with createMapTiles, MazePanel with a MapTileCache of
+ * Android bitmaps. The interface itself has no dependency on the Android framework,
+ * so the MapDrawer also runs on a plain JVM with a FrameBuffer, which draws wall by wall.
+ */
+public interface MapTiles {
+    /**
+     * Draws the map walls on the drawing target the tiles belong to.
+     * @param offx screen x coordinate of map space X = 0
+     * @param offy screen y coordinate of map space Y = 0
+     * @param viewWidth width of display
+     * @param viewHeight height of display
+     * @param mapScale current map scale
+     * @param showMaze true if walls that have not been seen are drawn as well
+     */
+    void draw(int offx, int offy, int viewWidth, int viewHeight, int mapScale, boolean showMaze);
+
+    /**
+     * Drops all pre-rendered walls, e.g. if the map scale changes.
+     */
+    void clear();
+}
@@ -33,9 +33,15 @@ public class MazeBuilder implements Runnable {
     // class internal local variables
     protected SingleRandom random ; // random number stream, used to make randomized decisions, e.g for direction to go
     Order order; // describes what is wanted, e.g. a perfect maze or not
+    private int seed; // seed given to the constructor, applied in buildOrder
+    private boolean seeded; // true if a seed has been given
+    protected boolean quiet; // true to leave out messages on System.out, e.g. when generating many mazes
 
     // constants
-    static final long SLEEP_INTERVAL = 100 ; //constant used for brief breaks to recognize interrupted signal, unit is millisecond
+    static final int DEFAULT_SEED = 10 ; // seed for deterministic generation if none is given
+    // version of the generation algorithms, increase it with any change to a builder that
+    // gives a different maze for the same seed and order, see SavedMaze
+    public static final int GENERATOR_VERSION = 1 ;
     static final int MAX_TRIES = 250 ; // room generation: max number of tries to find a random location for a room
     static final int MIN_ROOM_DIMENSION = 3; // room generation: min dimension
     static final int MAX_ROOM_DIMENSION = 8; // room generation: max dimension
@@ -55,10 +61,30 @@ public class MazeBuilder implements Runnable {
             // Control random number generation
             // implement code that makes sure that if MazeBuilder.build is called for same the skill level twice, it will deliver the same results
             // check http://download.oracle.com/javase/6/docs/api/java/util/Random.html\
-            SingleRandom.setSeed(10);
+            SingleRandom.setSeed(DEFAULT_SEED);
         }
         random = SingleRandom.getRandom();
     }
+    /**
+     * Constructor for a deterministic maze generation with the given seed,
+     * the same seed and order give the same maze.
+     * Note that the random number generator is shared, so only one maze
+     * can be built at a time for the result to be reproducible.
+     * @param seed for the random number generator
+     */
+    public MazeBuilder(int seed){
+        this.seed = seed;
+        seeded = true;
+        random = SingleRandom.getRandom();
+    }
+
+    /**
+     * Turns messages on System.out about the maze being built off or on.
+     * @param quiet true for no messages
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
 
     /**
      * Sets internal fields according to given order
@@ -66,6 +92,8 @@ public class MazeBuilder implements Runnable {
      */
     public void buildOrder(Order order) {
         this.order = order;
+        if (seeded)
+            SingleRandom.setSeed(seed, !quiet); // reset right before the build such that the maze is reproducible
         int skill = order.getSkillLevel() ;
         // derive parameters
         width = Constants.SKILL_X[skill];
@@ -91,29 +119,42 @@ public class MazeBuilder implements Runnable {
             if (rooms > 0)
                 generateRooms();
 
-            Thread.sleep(SLEEP_INTERVAL) ; // test if thread has been interrupted, i.e. notified to stop
+            checkInterrupted() ; // test if thread has been interrupted, i.e. notified to stop
 
             // put pathways into the maze, determine its starting and end position and calculate distances
             generate();
 
-            Thread.sleep(SLEEP_INTERVAL) ; // test if thread has been interrupted, i.e. notified to stop
+            checkInterrupted() ; // test if thread has been interrupted, i.e. notified to stop
 
             final int colchange = random.nextIntWithinInterval(0, 255); // used in the constructor for Segments  class Seg
-            final BSPBuilder b = new BSPBuilder(order, dists, cells, width, height, colchange, expectedPartiters) ;
-            BSPNode root = b.generateBSPNodes(); // takes a long time, updates progressbar,
-            // it also internally checks for cancel requests
-            // and throws an interrupted exception if that happens
-
-            Thread.sleep(SLEEP_INTERVAL) ; // test if thread has been interrupted, i.e. notified to stop
+            // TODO: check why this is done. It creates a top wall on position (0,0). This may even corrupt a maze and block its exit!
+            // used to be done by the BSPBuilder, done here such that cells do not change after the maze is handed out
+            cells.addWall(new Wall(0, 0, CardinalDirection.North), false);
 
             // communicate results back to MazeController
+            // the maze can be played with cells and distances, so it is handed out before the
+            // tree of BSP nodes is built, which takes a long time for large mazes
             MazeConfiguration mazeConfig = new MazeContainer();
             mazeConfig.setHeight(height);
             mazeConfig.setWidth(width);
             mazeConfig.setMazecells(cells);
             mazeConfig.setMazedists(dists);
-            mazeConfig.setRootnode(root);
+            mazeConfig.setColorChange(colchange);
             mazeConfig.setStartingPosition(startx, starty);
+            order.deliverPlayable(mazeConfig);
+
+            // the raycasting renderer works on the cells, no tree needed
+            if (Order.Renderer.Raycast != order.getRenderer()) {
+                final BSPBuilder b = new BSPBuilder(order, dists, cells, width, height, colchange, expectedPartiters) ;
+                b.setPartition(order.getPartition());
+                // takes a long time, updates progressbar,
+                // it also internally checks for cancel requests
+                // and throws an interrupted exception if that happens
+                mazeConfig.setRootnode(b.generateBSPNodes(Constants.LAZY_BSP));
+            }
+
+            checkInterrupted() ; // test if thread has been interrupted, i.e. notified to stop
+
             order.updateProgress(100); // Order interface promises to communicate 100% upon delivery
             order.deliver(mazeConfig);
             // reset order and other fields for safe repeated operation and garbage collection
@@ -129,6 +170,16 @@ public class MazeBuilder implements Runnable {
             reset();
         }
     }
+    /**
+     * Recognizes a request to stop without pausing the thread.
+     * Used to sleep for a short interval, which made each maze take
+     * at least 300 milliseconds no matter how small.
+     * @throws InterruptedException if the thread has been interrupted
+     */
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
     /**
      * Reset all fields to initial values
      */
@@ -21,13 +21,23 @@ public class MazeBuilderKruskal extends MazeBuilder implements Runnable {
     /** constructor for non-deterministic maze */
     public MazeBuilderKruskal() {
         super();
-        System.out.println("MazeBuilderKruskal uses Kruskal's algorithm to generate maze.");
     }
 
     /** constructor for deterministic maze */
     public MazeBuilderKruskal(boolean det) {
         super(det);
-        System.out.println("MazeBuilderKruskal uses Kruskal's algorithm to generate maze.");
+    }
+
+    /** constructor for deterministic maze with given seed */
+    public MazeBuilderKruskal(int seed) {
+        super(seed);
+    }
+
+    @Override
+    public void buildOrder(Order order) {
+        super.buildOrder(order);
+        if (!quiet)
+            System.out.println("MazeBuilderKruskal uses Kruskal's algorithm to generate maze.");
     }
 
     @Override
@@ -22,12 +22,21 @@ public class MazeBuilderPrim extends MazeBuilder implements Runnable {
 
     public MazeBuilderPrim() {
         super();
-        System.out.println("MazeBuilderPrim uses Prim's algorithm to generate maze.");
     }
 
     public MazeBuilderPrim(boolean det) {
         super(det);
-        System.out.println("MazeBuilderPrim uses Prim's algorithm to generate maze.");
+    }
+
+    public MazeBuilderPrim(int seed) {
+        super(seed);
+    }
+
+    @Override
+    public void buildOrder(Order order) {
+        super.buildOrder(order);
+        if (!quiet)
+            System.out.println("MazeBuilderPrim uses Prim's algorithm to generate maze.");
     }
 
     /**
@@ -0,0 +1,75 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * This class contains the colors used for drawing the maze as ARGB color-int values.
+ * Values match the ones of android.graphics.Color, but this class does not depend on
+ * the Android framework, so drawing code can also run on a plain JVM.
+ */
+public class MazeColors {
+    public static final int BLACK = 0xFF000000;
+    public static final int DKGRAY = 0xFF444444;
+    public static final int GRAY = 0xFF888888;
+    public static final int LTGRAY = 0xFFCCCCCC;
+    public static final int WHITE = 0xFFFFFFFF;
+    public static final int RED = 0xFFFF0000;
+    public static final int GREEN = 0xFF00FF00;
+    public static final int BLUE = 0xFF0000FF;
+    public static final int YELLOW = 0xFFFFFF00;
+
+    /**
+     * Takes in color string, returns corresponding color-int value.
+     * Callers that draw many primitives in the same color should resolve
+     * the color once with this method and not parse the string per primitive.
+     * @param c a string for color
+     * @return color-int value
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static int getColorEncoding(String c) {
+        final int color = getColorEncoding(c, 0); // all named colors are opaque, 0 is none of them
+        if (0 == color)
+            throw new IllegalArgumentException("MazeColors: unknown color " + c);
+        return color;
+    }
+
+    /**
+     * Takes in color string, returns corresponding color-int value or the given
+     * value for unknown names, e.g. the current color to keep it as it is.
+     * @param c a string for color
+     * @param unknown value for unknown names
+     * @return color-int value
+     */
+    public static int getColorEncoding(String c, int unknown) {
+        switch (c) {
+            case "Blue":
+                return BLUE;
+            case "Red":
+                return RED;
+            case "Yellow":
+                return YELLOW;
+            case "Green":
+                return GREEN;
+            case "Gray":
+                return GRAY;
+            case "LightGray":
+                return LTGRAY;
+            case "DarkGray":
+                return DKGRAY;
+            case "White":
+                return WHITE;
+            case "Black":
+                return BLACK;
+            default:
+                return unknown;
+        }
+    }
+
+    /**
+     * Takes in color integer values [0-255], returns corresponding opaque color-int value.
+     * @param red
+     * @param green
+     * @param blue
+     */
+    public static int rgb(int red, int green, int blue) {
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+}
@@ -70,6 +70,19 @@ public interface MazeConfiguration {
      * @param rootnode the rootnode to set
      */
     void setRootnode(BSPNode rootnode);
+    /**
+     * Gets the random value that the maze builder mixed into
+     * the colors of segments of walls.
+     * @return the value, 0 <= value <= 255
+     */
+    int getColorChange();
+
+    /**
+     * Sets the random value that is mixed into the colors of segments of walls,
+     * such that segments can be derived again with the same colors.
+     * @param colchange the value to set
+     */
+    void setColorChange(int colchange);
     /**
      * Tells if (x,y) coordinate is within range.
      * @param x is on the horizontal axis
@@ -106,6 +119,15 @@ public interface MazeConfiguration {
      * @return int array of length 2 with (x',y') coordinates for neighbor
      */
     public int[] getNeighborCloserToExit(int x, int y);
+    /**
+     * Provides the direction towards the neighbor that getNeighborCloserToExit
+     * would return, without allocating an array. Lookups are backed by a table
+     * that is computed once per maze.
+     * @param x is on the horizontal axis, 0 <= x < width
+     * @param y is on the vertical axis, 0 <= y < height
+     * @return direction towards the exit, null for the exit position
+     */
+    public CardinalDirection getDirectionToExit(int x, int y);
     /**
      * Provides coordinates (x,y) of the starting position for this maze.
      * Maze generation algorithms are expected to use the position
@@ -12,10 +12,11 @@ public class MazeContainer implements MazeConfiguration {
     private int height; // height of maze
     private Cells mazecells ; // maze as a matrix of cells which keep track of the location of walls
     private Distance mazedists ; // a matrix with distance values for each cell towards the exit
-    private BSPNode rootnode ; // a binary tree type search data structure to quickly locate a subset of segments
+    private volatile BSPNode rootnode ; // set by the builder thread after the maze is playable, a binary tree type search data structure to quickly locate a subset of segments
     // a segment is a continuous sequence of walls in vertical or horizontal direction
     // a subset of segments need to be quickly identified for drawing
     // the BSP tree partitions the set of all segments and provides a binary search tree for the partitions
+    private int colchange ; // random value used for colors of segments
     private int[] start ;
     /**
      *
@@ -86,6 +87,21 @@ public class MazeContainer implements MazeConfiguration {
     public void setRootnode(BSPNode rootnode) {
         this.rootnode = rootnode;
     }
+    /**
+     * Gives the random value used for colors of segments.
+     * @return the colchange value
+     */
+    public int getColorChange() {
+        return colchange;
+    }
+
+    /**
+     * Sets the random value used for colors of segments.
+     * @param colchange the value to set
+     */
+    public void setColorChange(int colchange) {
+        this.colchange = colchange;
+    }
     /**
      * Tells if given (x,y) position is valid, i.e. within legal range of values
      * @param x is on the horizontal axis
@@ -150,6 +166,21 @@ public class MazeContainer implements MazeConfiguration {
         return result;
     }
 
+    /**
+     * Gives the direction from (x,y) towards the neighbor that is closer to exit.
+     * The table of directions is computed on first use.
+     * @param x is on the horizontal axis, 0 <= x < width
+     * @param y is on the vertical axis, 0 <= y < height
+     * @return direction towards the exit, null for the exit position
+     */
+    public CardinalDirection getDirectionToExit(int x, int y) {
+        if (1 >= mazedists.getDistance(x, y))
+            return null ; // exit position
+        if (!mazedists.hasNextHops())
+            mazedists.computeNextHops(mazecells) ;
+        return mazedists.getNextHop(x, y) ;
+    }
+
     /**
      * Provides the (x,y) starting position.
      * The starting position is typically chosen to by furthest away from the exit.
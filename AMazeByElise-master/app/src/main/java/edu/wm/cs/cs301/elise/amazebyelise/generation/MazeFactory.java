@@ -14,6 +14,7 @@ import edu.wm.cs.cs301.elise.amazebyelise.generation.Order;
 public class MazeFactory implements Factory {
     // generation can be deterministic, i.e. same maze is generated each time for a given size
     private boolean deterministic;
+    private int seed = MazeBuilder.DEFAULT_SEED; // seed for deterministic generation
     // factory keeps track of the current order, takes at most one order at a time
     private Order currentOrder;
     // factory has a MazeBuilder to do the work
@@ -22,6 +23,7 @@ public class MazeFactory implements Factory {
     private MazeBuilder builder;
     //
     private Thread buildThread; // computations are performed in own separated thread with this.run()
+    private boolean quiet; // true to build without messages on System.out
 
     //////////////////////// Constructor ////////////////////////////////////////
     /**
@@ -36,6 +38,24 @@ public class MazeFactory implements Factory {
     public MazeFactory(boolean deterministic){
         this.deterministic = deterministic;
     }
+    /**
+     * Constructor for a deterministic maze generation with the given seed,
+     * e.g. to generate many different mazes that can be reproduced
+     */
+    public MazeFactory(int seed){
+        this.deterministic = true;
+        this.seed = seed;
+    }
+
+    /**
+     * Turns messages on System.out about orders and builds off or on,
+     * e.g. to generate many mazes without flooding the output.
+     * Messages about errors are still given.
+     * @param quiet true for no messages
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
 
     //////////////////////// Factory interface //////////////////////////////////
     @Override
@@ -51,15 +71,15 @@ public class MazeFactory implements Factory {
         // set builder according to order
         switch (order.getBuilder()) {
             case DFS :
-                builder = deterministic? new MazeBuilder(true) : new MazeBuilder();
+                builder = deterministic? new MazeBuilder(seed) : new MazeBuilder();
                 buildOrder();
                 break;
             case Prim:
-                builder = deterministic? new MazeBuilderPrim(true) : new MazeBuilderPrim();
+                builder = deterministic? new MazeBuilderPrim(seed) : new MazeBuilderPrim();
                 buildOrder();
                 break;
             case Kruskal:
-                builder = deterministic? new MazeBuilderKruskal(true) : new MazeBuilderKruskal();
+                builder = deterministic? new MazeBuilderKruskal(seed) : new MazeBuilderKruskal();
                 buildOrder();
                 break;
             default:
@@ -104,7 +124,9 @@ public class MazeFactory implements Factory {
     private void buildOrder() {
         if (null == builder)
             return;
-        System.out.println("MazeFactory.buildOrder: started") ;
+        if (!quiet)
+            System.out.println("MazeFactory.buildOrder: started") ;
+        builder.setQuiet(quiet);
         builder.buildOrder(currentOrder);
         buildThread = new Thread(builder);
         buildThread.start();
@@ -0,0 +1,79 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * Drawing operations that the FirstPersonDrawer and the MapDrawer need.
+ * MazePanel implements it with an Android Canvas to draw on the screen,
+ * FrameBuffer implements it in plain Java to draw into an array of pixels,
+ * e.g. for measuring drawing performance off the device.
+ * Coordinates are in pixels with (0,0) at the top left corner,
+ * colors are ARGB color-int values as in MazeColors.
+ */
+public interface MazeGraphics {
+    /**
+     * Sets the current color to the color with the given name, see MazeColors.getColorEncoding.
+     * Unknown names leave the current color as it is.
+     * @param c a string for color
+     */
+    void setColor(String c);
+
+    /**
+     * Sets the current color.
+     * @param color color-int value
+     */
+    void setColor(int color);
+
+    /**
+     * @return current color as color-int value
+     */
+    int getColor();
+
+    /**
+     * Fills a rectangle in the current color.
+     */
+    void fillRect(int x, int y, int width, int height);
+
+    /**
+     * Fills a polygon in the current color.
+     * @param xPoints x coordinates of corners
+     * @param yPoints y coordinates of corners
+     * @param nPoints number of corners
+     */
+    void fillPolygon(int[] xPoints, int[] yPoints, int nPoints);
+
+    /**
+     * Draws a line in the current color.
+     */
+    void drawLine(int x1, int y1, int x2, int y2);
+
+    /**
+     * Fills an oval that fits into the given rectangle in the current color.
+     */
+    void fillOval(int x, int y, int width, int height);
+
+    /**
+     * Adds a line in the given color to a batch.
+     * The line is only guaranteed to show up after the next call to flushBatches().
+     */
+    void addLine(int color, int x1, int y1, int x2, int y2);
+
+    /**
+     * Adds a filled quadrilateral in the given color to a batch, corners are given in drawing order.
+     * The quad is only guaranteed to show up after the next call to flushBatches().
+     */
+    void addQuad(int color, int x0, int y0, int x1, int y1, int x2, int y2, int x3, int y3);
+
+    /**
+     * Draws all batched lines and quads. The current color is left unchanged.
+     */
+    void flushBatches();
+
+    /**
+     * Creates pre-rendered tiles for the walls of the top-down map that draw on this target.
+     * @param mazeConfig gives the walls of the maze
+     * @param seencells gives the walls that have been seen
+     * @param viewWidth width of display
+     * @param viewHeight height of display
+     * @return tiles, null if this target draws the map wall by wall
+     */
+    MapTiles createMapTiles(MazeConfiguration mazeConfig, Cells seencells, int viewWidth, int viewHeight);
+}
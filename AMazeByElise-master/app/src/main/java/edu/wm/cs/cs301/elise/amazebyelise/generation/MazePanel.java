@@ -11,16 +11,24 @@ import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.View;
 
+import java.util.ArrayList;
+
 /**
  * Handles maze graphics.
+ * Draws on a bitmap with an Android Canvas and shows the bitmap on the screen.
  */
-public class MazePanel extends View {
+public class MazePanel extends View implements MazeGraphics {
     // https://developer.android.com/training/custom-views/create-view
     // https://developer.android.com/training/custom-views/custom-drawing
     // on how to implement your own View class
     Bitmap bitMap;
     Canvas canvas;
     Paint paint;
+    // batched drawing: lines and quads are collected per color
+    // and put on the canvas with a few bulk calls in flushBatches()
+    private ArrayList<DrawBatch> batches = new ArrayList<DrawBatch>();
+    private DrawBatch lastBatch; // most recently used batch, consecutive primitives often share a color
+    private Path batchPath = new Path(); // reused to fill all quads of one color
 
     /**
      * Constructor with one context parameter.
@@ -78,38 +86,23 @@ public class MazePanel extends View {
 
     /**
      * Takes in color string, sets paint color to corresponding color.
+     * The paint color stays as it is for unknown names.
      * @param c a string for color
      */
     public void setColor(String c) {
-        switch (c) {
-            case "Blue":
-                paint.setColor(Color.BLUE);
-                break;
-            case "Red":
-                paint.setColor(Color.RED);
-                break;
-            case "Yellow":
-                paint.setColor(Color.YELLOW);
-                break;
-            case "Green":
-                paint.setColor(Color.GREEN);
-                break;
-            case "Black":
-                paint.setColor(Color.BLACK);
-                break;
-            case "Gray":
-                paint.setColor(Color.GRAY);
-                break;
-            case "LightGray":
-                paint.setColor(Color.LTGRAY);
-                break;
-            case "DarkGray":
-                paint.setColor(Color.DKGRAY);
-                break;
-            case "White":
-                paint.setColor(Color.WHITE);
-                break;
-        }
+        paint.setColor(MazeColors.getColorEncoding(c, paint.getColor()));
+    }
+
+    /**
+     * Takes in color string, returns corresponding color-int value.
+     * Callers that draw many primitives in the same color should resolve
+     * the color once with this method and not parse the string per primitive.
+     * @param c a string for color
+     * @return color-int value
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static int getColorEncoding(String c) {
+        return MazeColors.getColorEncoding(c);
     }
 
     /**
@@ -193,4 +186,152 @@ public class MazePanel extends View {
         canvas.drawOval(oval, paint);
     }
 
-}
\ No newline at end of file
+    /**
+     * Takes in a bitmap and a position, draws bitmap with its upper left corner at the position.
+     * Transparent pixels of the bitmap leave the canvas unchanged.
+     * @param b bitmap
+     * @param x
+     * @param y
+     */
+    public void drawBitmap(Bitmap b, int x, int y) {
+        canvas.drawBitmap(b, x, y, null);
+    }
+
+    /**
+     * Creates a MapTileCache that keeps the walls of the map in bitmaps and draws them on this panel.
+     */
+    public MapTiles createMapTiles(MazeConfiguration mazeConfig, Cells seencells, int viewWidth, int viewHeight) {
+        return new MapTileCache(mazeConfig, seencells, viewWidth, viewHeight, this);
+    }
+
+    /**
+     * Adds a line to the batch for the given color.
+     * The line only shows up on the canvas after the next call to flushBatches().
+     * @param color color-int value
+     * @param x1
+     * @param y1
+     * @param x2
+     * @param y2
+     */
+    public void addLine(int color, int x1, int y1, int x2, int y2) {
+        getBatch(color).addLine(x1, y1, x2, y2);
+    }
+
+    /**
+     * Adds a filled quadrilateral to the batch for the given color.
+     * Corners are given in drawing order.
+     * The quad only shows up on the canvas after the next call to flushBatches().
+     * @param color color-int value
+     */
+    public void addQuad(int color, int x0, int y0, int x1, int y1,
+                        int x2, int y2, int x3, int y3) {
+        getBatch(color).addQuad(x0, y0, x1, y1, x2, y2, x3, y3);
+    }
+
+    /**
+     * Draws all batched lines and quads on the canvas and empties the batches.
+     * Lines of one color go out with a single drawLines call, quads of
+     * one color with a single drawPath call.
+     * Batches go out in the order in which their colors were first used,
+     * so primitives of different colors that overlap should be flushed separately.
+     * The current paint color is left unchanged.
+     */
+    public void flushBatches() {
+        final int savedColor = paint.getColor();
+        for (DrawBatch b : batches) {
+            if (b.isEmpty())
+                continue;
+            paint.setColor(b.color);
+            if (b.quadCount > 0) {
+                batchPath.rewind();
+                final float[] q = b.quads;
+                for (int i = 0; i < b.quadCount; i += 8) {
+                    batchPath.moveTo(q[i], q[i+1]);
+                    batchPath.lineTo(q[i+2], q[i+3]);
+                    batchPath.lineTo(q[i+4], q[i+5]);
+                    batchPath.lineTo(q[i+6], q[i+7]);
+                    batchPath.close();
+                }
+                canvas.drawPath(batchPath, paint);
+            }
+            if (b.lineCount > 0)
+                canvas.drawLines(b.lines, 0, b.lineCount, paint);
+            b.clear();
+        }
+        paint.setColor(savedColor);
+    }
+
+    /**
+     * Finds the batch for the given color, creates a new one if necessary.
+     * Batches are kept across frames such that their buffers get reused.
+     * @param color color-int value
+     * @return batch for color
+     */
+    private DrawBatch getBatch(int color) {
+        if (null != lastBatch && lastBatch.color == color)
+            return lastBatch;
+        for (DrawBatch b : batches) {
+            if (b.color == color) {
+                lastBatch = b;
+                return b;
+            }
+        }
+        lastBatch = new DrawBatch(color);
+        batches.add(lastBatch);
+        return lastBatch;
+    }
+
+    /**
+     * Internal class to hold primitives of a single color in growing float buffers.
+     * Lines take 4 floats (x1,y1,x2,y2) as expected by Canvas.drawLines,
+     * quads take 8 floats for their 4 corners.
+     */
+    static class DrawBatch {
+        final int color;
+        float[] lines = new float[64];
+        int lineCount; // number of used entries in lines
+        float[] quads = new float[64];
+        int quadCount; // number of used entries in quads
+
+        DrawBatch(int color) {
+            this.color = color;
+        }
+
+        void addLine(int x1, int y1, int x2, int y2) {
+            if (lineCount + 4 > lines.length)
+                lines = grow(lines);
+            lines[lineCount++] = x1;
+            lines[lineCount++] = y1;
+            lines[lineCount++] = x2;
+            lines[lineCount++] = y2;
+        }
+
+        void addQuad(int x0, int y0, int x1, int y1, int x2, int y2, int x3, int y3) {
+            if (quadCount + 8 > quads.length)
+                quads = grow(quads);
+            quads[quadCount++] = x0;
+            quads[quadCount++] = y0;
+            quads[quadCount++] = x1;
+            quads[quadCount++] = y1;
+            quads[quadCount++] = x2;
+            quads[quadCount++] = y2;
+            quads[quadCount++] = x3;
+            quads[quadCount++] = y3;
+        }
+
+        boolean isEmpty() {
+            return 0 == lineCount && 0 == quadCount;
+        }
+
+        void clear() {
+            lineCount = 0;
+            quadCount = 0;
+        }
+
+        private static float[] grow(float[] buffer) {
+            float[] result = new float[buffer.length * 2];
+            System.arraycopy(buffer, 0, result, 0, buffer.length);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class turns a maze configuration into a compact array of bytes and back,
+ * e.g. to keep a maze that is not played right now with little memory.
+ * All methods are static.
+ *
+ * The snapshot holds the dimensions, the color change value, the starting position,
+ * the cells and the distances, compressed with GZIP. The tree of BSP nodes is not
+ * stored: it follows from cells, distances and color change, so read builds it again
+ * with a BSPBuilder as a lazy tree, which only partitions the parts that are drawn.
+ * With the default Balanced partition, which the game uses, this gives the same tree
+ * as the one of the original maze.
+ */
+public class MazeSnapshot {
+    private static final int MAGIC = 0x414D5A53; // "AMZS"
+
+    /**
+     * Writes a maze to a compressed array of bytes.
+     * @param mazeConfig maze with cells and distances
+     * @return compressed maze, read gives it a tree of BSP nodes if it has one now
+     */
+    public static byte[] write(MazeConfiguration mazeConfig) {
+        return write(mazeConfig, null != mazeConfig.getRootnode());
+    }
+
+    /**
+     * Writes a maze to a compressed array of bytes, e.g. a maze that is played
+     * while its tree of BSP nodes is still being built.
+     * @param mazeConfig maze with cells and distances
+     * @param withTree true if read should build a tree of BSP nodes for the maze
+     * @return compressed maze
+     */
+    public static byte[] write(MazeConfiguration mazeConfig, boolean withTree) {
+        final int width = mazeConfig.getWidth();
+        final int height = mazeConfig.getHeight();
+        Cells cells = mazeConfig.getMazecells();
+        int[][] dists = mazeConfig.getMazedists().getDists();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes));
+            out.writeInt(MAGIC);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(mazeConfig.getColorChange());
+            int[] start = mazeConfig.getStartingPosition();
+            out.writeInt(start[0]);
+            out.writeInt(start[1]);
+            out.writeBoolean(withTree);
+            // cell values fit into 16 bits, walls, bounds and the room flag
+            for (int x = 0; x < width; x++)
+                for (int y = 0; y < height; y++)
+                    out.writeShort(cells.getValueOfCell(x, y));
+            for (int x = 0; x < width; x++)
+                for (int y = 0; y < height; y++)
+                    out.writeInt(dists[x][y]);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // a stream in memory does not fail
+            throw new RuntimeException("MazeSnapshot: failed to write maze: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a maze from an array of bytes produced by write.
+     * @param snapshot compressed maze
+     * @return maze, with a tree of BSP nodes if write was asked for one
+     * @throws RuntimeException if the bytes are not a maze snapshot
+     */
+    public static MazeConfiguration read(byte[] snapshot) {
+        try {
+            DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(snapshot)));
+            if (in.readInt() != MAGIC)
+                throw new RuntimeException("MazeSnapshot: not a maze snapshot");
+            final int width = in.readInt();
+            final int height = in.readInt();
+            final int colchange = in.readInt();
+            final int startx = in.readInt();
+            final int starty = in.readInt();
+            final boolean hasRoot = in.readBoolean();
+            int[][] cellValues = new int[width][height];
+            for (int x = 0; x < width; x++)
+                for (int y = 0; y < height; y++)
+                    cellValues[x][y] = in.readUnsignedShort();
+            int[][] dists = new int[width][height];
+            for (int x = 0; x < width; x++)
+                for (int y = 0; y < height; y++)
+                    dists[x][y] = in.readInt();
+            in.close();
+
+            Cells cells = new Cells(cellValues);
+            Distance distance = new Distance(dists);
+            MazeConfiguration mazeConfig = new MazeContainer();
+            mazeConfig.setWidth(width);
+            mazeConfig.setHeight(height);
+            mazeConfig.setMazecells(cells);
+            mazeConfig.setMazedists(distance);
+            mazeConfig.setColorChange(colchange);
+            mazeConfig.setStartingPosition(startx, starty);
+            if (hasRoot) {
+                // without an order the builder does not report progress, the expected
+                // number of iterations only matters for progress
+                BSPBuilder builder = new BSPBuilder(null, distance, cells, width, height, colchange, 0);
+                mazeConfig.setRootnode(builder.generateBSPNodes(true));
+            }
+            return mazeConfig;
+        } catch (IOException e) {
+            throw new RuntimeException("MazeSnapshot: failed to read maze: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // only thrown by a builder that reports progress to an order
+            throw new RuntimeException("MazeSnapshot: interrupted while building tree of BSP nodes");
+        }
+    }
+}
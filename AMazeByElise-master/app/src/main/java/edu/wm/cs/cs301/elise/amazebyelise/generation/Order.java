@@ -4,7 +4,8 @@ package edu.wm.cs.cs301.elise.amazebyelise.generation;
 /**
  * An order describes functionality needed to order a maze from
  * the maze factory. It allows for asynchronous production
- * with a mechanism to deliver a MazeConfiguration.
+ * with a mechanism to deliver a MazeConfiguration, first in a
+ * playable state and then complete.
  *
  * @author pk
  *
@@ -26,6 +27,31 @@ public interface Order {
      *
      */
     enum Builder { DFS, Prim, Kruskal, Eller }
+    /**
+     * Gives the requested first person renderer, possible values
+     * are listed in the Renderer enum type.
+     */
+    Renderer getRenderer() ;
+    /**
+     * Lists the renderers for the first person view.
+     * BSP needs a tree of BSP nodes that the maze factory computes
+     * after the maze is generated, Raycast works directly on the cells
+     * of the maze, so the factory skips building the tree.
+     */
+    enum Renderer { BSP, Raycast }
+    /**
+     * Gives the requested heuristic to choose partitions for the tree
+     * of BSP nodes, possible values are listed in the Partition enum type.
+     */
+    Partition getPartition() ;
+    /**
+     * Lists the heuristics the BSPBuilder uses to pick a segment to split a node.
+     * Balanced picks segments with about as many segments on either side and few splits.
+     * Coverage weighs the segments on either side with the area of that side, which
+     * favors long walls that separate large areas and estimates how many segments
+     * the FirstPersonDrawer has to consider from a random position.
+     */
+    enum Partition { Balanced, Coverage }
     /**
      * Describes if the ordered maze should be perfect, i.e. there are
      * no loops and no isolated areas, which also implies that
@@ -39,6 +65,15 @@ public interface Order {
      * @param mazeConfig maze
      */
     void deliver(MazeConfiguration mazeConfig) ;
+    /**
+     * Delivers the maze as soon as it can be played, i.e. cells, distances
+     * and the starting position are complete. This method is called by the
+     * factory before the tree of BSP nodes is built, getRootnode() gives null
+     * until the factory sets the tree on the same maze configuration and
+     * finally calls deliver with it.
+     * @param mazeConfig maze that may still lack its tree of BSP nodes
+     */
+    void deliverPlayable(MazeConfiguration mazeConfig) ;
     /**
      * Provides an update on the progress being made on
      * the maze production. This method is called occasionally
@@ -37,6 +37,19 @@ public class RangeSet {
         return ranges.isEmpty();
     }
 
+    /**
+     * Counts the values that are contained in the set.
+     * @return sum of the lengths of all intervals
+     */
+    public int countValues() {
+        int result = 0;
+        for (int i = 0; i != ranges.size(); i++) {
+            RangeSetElement rse = ranges.elementAt(i);
+            result += rse.max - rse.min + 1;
+        }
+        return result;
+    }
+
     /**
      * Clears the set and fills it with a single new element as specified
      * @param mn minimum value for new element
@@ -113,6 +126,8 @@ public class RangeSet {
                 min = rse.min;
             if (rse.max < max) // current interval is contained
                 max = rse.max;
+            p[0] = min;
+            p[1] = max;
             return true;
         }
         return false;
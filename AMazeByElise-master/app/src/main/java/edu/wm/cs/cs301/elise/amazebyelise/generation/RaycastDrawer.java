@@ -0,0 +1,264 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import edu.wm.cs.cs301.elise.amazebyelise.generation.Constants.StateGUI;
+
+/**
+ * This class draws the first person view without a tree of BSP nodes.
+ *
+ * All walls of a maze are axis-aligned on the grid of cells, so the wall that is
+ * visible in a screen column can be found by following a ray through the grid cell by
+ * cell (DDA) until it crosses a border of a cell that has a wall. The renderer casts
+ * one ray per column through the center of the column, uses the same projection as
+ * the FirstPersonDrawer and joins neighboring columns that show the same segment of
+ * walls into a single quad. Since walls are planar, their top and bottom edges are
+ * straight lines on the screen, so the quad covers the wall exactly.
+ *
+ * Colors come from the same segments the BSPBuilder derives from Cells and Distance,
+ * a table gives the segment for each side of each cell. A segment that shows up on
+ * the screen is marked as seen together with its walls in seencells, as in the
+ * FirstPersonDrawer.
+ */
+public class RaycastDrawer implements FirstPersonView {
+    private final int view_width;
+    private final int view_height;
+    private final int map_unit;
+    private final int step_size;
+    private final int zscale; // same projection as in FirstPersonDrawer
+    private final Cells seencells; // cells whose walls are currently visible
+    private final Cells cells; // walls of the maze
+    private final int width; // width of maze
+    private final int height; // height of maze
+    // segment for each side of each cell with a wall, index ((x + y*width) << 2) + direction.ordinal()
+    private final Seg[] walls;
+
+    static final int VIEWZ = 50; // height of viewer, constant as in FirstPersonDrawer
+    static final int NEAR = 4; // closest distance of a wall that is drawn, as in FirstPersonDrawer.clip3d
+    static final int UNKNOWN_WALL_COLOR = MazeColors.rgb(20, 20, 20); // for walls without a segment
+
+    // current position scaled by map_unit and moved back by view offset, set in redraw
+    private int viewx;
+    private int viewy;
+    // unit view direction and derived values, set in redraw
+    private double fx;
+    private double fy;
+    private double ff; // fx*fx + fy*fy, close to 1
+
+    // result of castRay
+    private Seg hitSeg; // segment that the ray hits, null if the wall has none
+    private CardinalDirection hitSide; // side of the cell with the wall
+    private int hitPlane; // x coordinate for walls on East and West side, y otherwise
+
+    // statistics
+    private final RenderStats stats = new RenderStats();
+    private boolean statsEnabled = false;
+    private volatile RenderStats lastStats;
+
+    /**
+     * Constructor
+     * @param width of display
+     * @param height of display
+     * @param map_unit
+     * @param step_size
+     * @param seencells
+     * @param mazeConfig provides cells, distances and the color change value of the maze
+     */
+    public RaycastDrawer(int width, int height, int map_unit, int step_size, Cells seencells, MazeConfiguration mazeConfig) {
+        view_width = width;
+        view_height = height;
+        this.map_unit = map_unit;
+        this.step_size = step_size;
+        this.seencells = seencells;
+        zscale = view_height/2;
+        cells = mazeConfig.getMazecells();
+        this.width = mazeConfig.getWidth();
+        this.height = mazeConfig.getHeight();
+        walls = new Seg[this.width * this.height * 4];
+        BSPBuilder builder = new BSPBuilder(null, mazeConfig.getMazedists(), cells,
+                this.width, this.height, mazeConfig.getColorChange(), 0);
+        for (Seg seg : builder.generateSegments())
+            addToWallTable(seg);
+    }
+
+    @Override
+    public void redraw(MazeGraphics mazePanel, StateGUI state, int px, int py, int view_dx,
+                       int view_dy, int walk_step, int view_offset, RangeSet rset, int ang) {
+        // position of viewer as in FirstPersonDrawer
+        viewx = (px*map_unit+map_unit/2) + ((view_dx*(step_size*walk_step-view_offset)) >> 16);
+        viewy = (py*map_unit+map_unit/2) + ((view_dy*(step_size*walk_step-view_offset)) >> 16);
+        fx = view_dx / 65536.0;
+        fy = view_dy / 65536.0;
+        ff = fx*fx + fy*fy;
+
+        mazePanel.setColor("Black");
+        mazePanel.fillRect(0, 0, view_width, view_height/2);
+        mazePanel.setColor("DarkGray");
+        mazePanel.fillRect(0, view_height/2, view_width, view_height/2);
+        mazePanel.setColor("White");
+
+        stats.reset();
+        final long start = statsEnabled ? System.nanoTime() : 0;
+        // current run of columns that show the same wall
+        int runStart = -1; // first column, -1 if no run
+        Seg runSeg = null;
+        CardinalDirection runSide = null;
+        int runPlane = 0;
+        for (int c = 0; c < view_width; c++) {
+            // ray through the center of column c, inverse of the projection in FirstPersonDrawer
+            final double k = (c + 0.5 - view_width/2) / zscale;
+            final boolean hit = castRay(fx + k*fy, fy - k*fx);
+            if (runStart >= 0 && !(hit && hitSeg == runSeg && hitSide == runSide && hitPlane == runPlane)) {
+                drawRun(mazePanel, runStart, c-1, runSeg, runSide, runPlane);
+                runStart = -1;
+            }
+            if (!hit) {
+                stats.columnsUncovered++;
+                continue;
+            }
+            if (runStart < 0) {
+                runStart = c;
+                runSeg = hitSeg;
+                runSide = hitSide;
+                runPlane = hitPlane;
+            }
+        }
+        if (runStart >= 0)
+            drawRun(mazePanel, runStart, view_width-1, runSeg, runSide, runPlane);
+        mazePanel.flushBatches();
+        if (statsEnabled) {
+            stats.frameNanos = System.nanoTime() - start;
+            lastStats = stats.copy();
+        }
+    }
+
+    @Override
+    public void setStatsEnabled(boolean enabled) {
+        statsEnabled = enabled;
+        if (!enabled)
+            lastStats = null;
+    }
+
+    @Override
+    public RenderStats getLastFrameStats() {
+        return lastStats;
+    }
+
+    @Override
+    public void shutdown() {
+        // no threads
+    }
+
+    /**
+     * Follows a ray from the viewer through the grid until it crosses a wall.
+     * Sets hitSeg, hitSide and hitPlane if it does.
+     * @param dx direction of ray, x coordinate
+     * @param dy direction of ray, y coordinate
+     * @return true if the ray hits a wall, false if it leaves the maze, e.g. through the exit
+     */
+    private boolean castRay(double dx, double dy) {
+        int cx = (int) Math.floor((double) viewx / map_unit);
+        int cy = (int) Math.floor((double) viewy / map_unit);
+        final int stepX = (dx > 0) ? 1 : -1;
+        final int stepY = (dy > 0) ? 1 : -1;
+        // ray parameter for next crossing of a vertical and a horizontal border, increments per cell
+        double tMaxX = (0 == dx) ? Double.POSITIVE_INFINITY : (((dx > 0) ? cx+1 : cx)*map_unit - viewx) / dx;
+        double tMaxY = (0 == dy) ? Double.POSITIVE_INFINITY : (((dy > 0) ? cy+1 : cy)*map_unit - viewy) / dy;
+        final double tDeltaX = (0 == dx) ? Double.POSITIVE_INFINITY : map_unit / Math.abs(dx);
+        final double tDeltaY = (0 == dy) ? Double.POSITIVE_INFINITY : map_unit / Math.abs(dy);
+        while (0 <= cx && cx < width && 0 <= cy && cy < height) {
+            stats.cellsVisited++;
+            if (tMaxX < tMaxY) {
+                final CardinalDirection side = (stepX > 0) ? CardinalDirection.East : CardinalDirection.West;
+                if (cells.hasWall(cx, cy, side)) {
+                    setHit(cx, cy, side, (stepX > 0) ? (cx+1)*map_unit : cx*map_unit);
+                    return true;
+                }
+                cx += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                final CardinalDirection side = (stepY > 0) ? CardinalDirection.South : CardinalDirection.North;
+                if (cells.hasWall(cx, cy, side)) {
+                    setHit(cx, cy, side, (stepY > 0) ? (cy+1)*map_unit : cy*map_unit);
+                    return true;
+                }
+                cy += stepY;
+                tMaxY += tDeltaY;
+            }
+        }
+        return false;
+    }
+
+    private void setHit(int x, int y, CardinalDirection side, int plane) {
+        hitSeg = walls[((x + y*width) << 2) + side.ordinal()];
+        hitSide = side;
+        hitPlane = plane;
+    }
+
+    /**
+     * Draws columns c0 to c1 that show the same wall as a single quad
+     * and marks the wall's segment as seen.
+     */
+    private void drawRun(MazeGraphics mazePanel, int c0, int c1, Seg seg, CardinalDirection side, int plane) {
+        // half of wall height at left border of c0 and right border of c1
+        final int h0 = halfHeight(c0, side, plane);
+        final int h1 = halfHeight(c1+1, side, plane);
+        final int mid = view_height/2;
+        // corners in the same order as in FirstPersonDrawer.drawSegment
+        mazePanel.addQuad((null != seg) ? seg.color : UNKNOWN_WALL_COLOR,
+                c0, mid - h0, c0, mid + h0 + 1, c1+1, mid + h1 + 1, c1+1, mid - h1);
+        stats.polygonsEmitted++;
+        // a segment that is split by walls in front of it counts once per visible part
+        stats.segmentsDrawn++;
+        if (null != seg && !seg.isSeen()) {
+            seg.setSeen(true);
+            seencells.addWallsForSegment(seg, map_unit);
+        }
+    }
+
+    /**
+     * Computes half the height on screen of a wall at the given horizontal screen position.
+     * @param s horizontal screen position, a border between columns
+     * @param side side of the cell with the wall
+     * @param plane x coordinate for walls on East and West side, y otherwise
+     */
+    private int halfHeight(int s, CardinalDirection side, int plane) {
+        final double k = (double) (s - view_width/2) / zscale;
+        double depth;
+        if (CardinalDirection.East == side || CardinalDirection.West == side)
+            depth = (plane - viewx) / (fx + k*fy) * ff;
+        else
+            depth = (plane - viewy) / (fy - k*fx) * ff;
+        if (!(depth >= NEAR)) // also catches a wall parallel to the ray
+            depth = NEAR;
+        return (int) (VIEWZ * zscale / depth);
+    }
+
+    /**
+     * Enters the given segment for all cells along it into the table of walls.
+     */
+    private void addToWallTable(Seg seg) {
+        final int sx = seg.getStartPositionX();
+        final int sy = seg.getStartPositionY();
+        final int dx = seg.getExtensionX();
+        final int dy = seg.getExtensionY();
+        if (0 == dx) {
+            // vertical: going down it is the West wall of the cells to the right,
+            // going up the East wall of the cells to the left
+            final int x = (dy > 0) ? sx/map_unit : sx/map_unit - 1;
+            final CardinalDirection side = (dy > 0) ? CardinalDirection.West : CardinalDirection.East;
+            for (int y = Math.min(sy, sy+dy)/map_unit; y < Math.max(sy, sy+dy)/map_unit; y++)
+                setWall(x, y, side, seg);
+        } else {
+            // horizontal: going left it is the North wall of the cells below,
+            // going right the South wall of the cells above
+            final int y = (dx < 0) ? sy/map_unit : sy/map_unit - 1;
+            final CardinalDirection side = (dx < 0) ? CardinalDirection.North : CardinalDirection.South;
+            for (int x = Math.min(sx, sx+dx)/map_unit; x < Math.max(sx, sx+dx)/map_unit; x++)
+                setWall(x, y, side, seg);
+        }
+    }
+
+    private void setWall(int x, int y, CardinalDirection side, Seg seg) {
+        if (0 <= x && x < width && 0 <= y && y < height)
+            walls[((x + y*width) << 2) + side.ordinal()] = seg;
+    }
+}
@@ -0,0 +1,129 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * Statistics for a single frame of the first person view.
+ *
+ * The FirstPersonDrawer and the RaycastDrawer count into one object of this class
+ * while they draw a frame, each renderer uses the counts that apply to it.
+ * Counting only takes a few integer increments, frame time and uncovered columns are
+ * only determined if statistics are enabled in the renderer, which then also
+ * publishes a copy of the counts for each finished frame. Copies are not modified
+ * anymore, so the UI thread can read them while the next frame is drawn.
+ */
+public class RenderStats {
+    long frameNanos; // time to draw the frame, 0 if statistics are disabled
+    int nodesVisited; // BSP nodes visited, leaves included
+    int leavesVisited; // BSP leaves whose segments were considered
+    int nodesExpanded; // subtrees of a lazy BSP tree built during the frame
+    int segmentsClipped; // segments outside of the field of view
+    int segmentsRejected; // segments facing away or hidden behind segments drawn before
+    int segmentsDrawn; // segments with at least one polygon on screen
+    int polygonsEmitted; // polygons handed to the graphics
+    int columnsUncovered; // screen columns not covered by any wall at the end of the frame
+    int cellsVisited; // grid cells that rays passed through, raycasting only
+
+    /**
+     * Sets all values to 0 for a new frame.
+     */
+    void reset() {
+        frameNanos = 0;
+        nodesVisited = 0;
+        leavesVisited = 0;
+        nodesExpanded = 0;
+        segmentsClipped = 0;
+        segmentsRejected = 0;
+        segmentsDrawn = 0;
+        polygonsEmitted = 0;
+        columnsUncovered = 0;
+        cellsVisited = 0;
+    }
+
+    /**
+     * Adds the counts of the given statistics to this one, frame time excluded.
+     * Used to combine statistics of parts of a frame.
+     * @param other statistics to add
+     */
+    void add(RenderStats other) {
+        nodesVisited += other.nodesVisited;
+        leavesVisited += other.leavesVisited;
+        nodesExpanded += other.nodesExpanded;
+        segmentsClipped += other.segmentsClipped;
+        segmentsRejected += other.segmentsRejected;
+        segmentsDrawn += other.segmentsDrawn;
+        polygonsEmitted += other.polygonsEmitted;
+        columnsUncovered += other.columnsUncovered;
+        cellsVisited += other.cellsVisited;
+    }
+
+    /**
+     * @return a new object with the same values
+     */
+    RenderStats copy() {
+        RenderStats result = new RenderStats();
+        result.frameNanos = frameNanos;
+        result.nodesVisited = nodesVisited;
+        result.leavesVisited = leavesVisited;
+        result.nodesExpanded = nodesExpanded;
+        result.segmentsClipped = segmentsClipped;
+        result.segmentsRejected = segmentsRejected;
+        result.segmentsDrawn = segmentsDrawn;
+        result.polygonsEmitted = polygonsEmitted;
+        result.columnsUncovered = columnsUncovered;
+        result.cellsVisited = cellsVisited;
+        return result;
+    }
+
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    public int getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public int getLeavesVisited() {
+        return leavesVisited;
+    }
+
+    public int getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    public int getSegmentsClipped() {
+        return segmentsClipped;
+    }
+
+    public int getSegmentsRejected() {
+        return segmentsRejected;
+    }
+
+    public int getSegmentsDrawn() {
+        return segmentsDrawn;
+    }
+
+    public int getPolygonsEmitted() {
+        return polygonsEmitted;
+    }
+
+    public int getColumnsUncovered() {
+        return columnsUncovered;
+    }
+
+    public int getCellsVisited() {
+        return cellsVisited;
+    }
+
+    /**
+     * Gives a multi-line summary, e.g. for a debug overlay.
+     */
+    @Override
+    public String toString() {
+        return "frame " + frameNanos / 1000 + "us\n"
+                + "nodes " + nodesVisited + " (leaves " + leavesVisited + ")"
+                + ((nodesExpanded > 0) ? " expanded " + nodesExpanded : "") + "\n"
+                + "segments drawn " + segmentsDrawn + " clipped " + segmentsClipped
+                + " rejected " + segmentsRejected + "\n"
+                + "polygons " + polygonsEmitted + " uncovered columns " + columnsUncovered
+                + ((cellsVisited > 0) ? "\ncells " + cellsVisited : "");
+    }
+}
@@ -0,0 +1,200 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.ArrayDeque;
+
+/**
+ * This class draws frames on its own thread such that the game logic does not
+ * have to wait for drawing operations or sleep between intermediate views.
+ *
+ * The game logic posts ViewState snapshots without blocking. Each snapshot is
+ * scheduled one frame period after the previous one, so a move with 4 intermediate
+ * views takes 4 frame periods on the screen no matter how fast it is posted.
+ * The render thread waits until a snapshot is due and draws it. If drawing falls
+ * behind and several snapshots are due, only the most recent one is drawn and the
+ * others count as dropped frames. A frame that is finished more than one frame period
+ * after it was due counts as a late frame.
+ * At most maxQueued snapshots wait to be drawn, e.g. if keys are pressed faster than
+ * moves are shown. A snapshot posted to a full queue replaces the most recent waiting
+ * one, so the screen falls behind by at most maxQueued frame periods.
+ *
+ * In latest only mode, e.g. for turbo playback of a robot driver, a posted snapshot
+ * replaces the one that waits to be drawn, so the screen shows the most recent
+ * state once per frame period and the game logic may run ahead at any speed.
+ */
+public class RenderThread extends Thread {
+    /**
+     * Draws a single frame for a snapshot, called on the render thread.
+     */
+    public interface Renderer {
+        void drawFrame(ViewState state);
+    }
+
+    private final Renderer renderer;
+    private final long period; // frame period in nanoseconds
+    private final int maxQueued; // upper limit for snapshots waiting to be drawn
+
+    // snapshots waiting to be drawn, guarded by queue
+    private final ArrayDeque<Frame> queue = new ArrayDeque<Frame>();
+    private long lastDue; // due time of most recently posted snapshot, guarded by queue
+    private boolean running = true; // guarded by queue
+    private boolean latestOnly; // guarded by queue
+
+    // metrics, written by the render thread only
+    private volatile int framesDrawn;
+    private volatile int framesDropped;
+    private volatile int framesLate;
+
+    /**
+     * Constructor
+     * @param renderer draws the frames
+     * @param periodMillis time between frames in milliseconds
+     * @param maxQueued upper limit for snapshots waiting to be drawn, at least 1
+     */
+    public RenderThread(Renderer renderer, int periodMillis, int maxQueued) {
+        super("RenderThread");
+        this.renderer = renderer;
+        this.period = periodMillis * 1000000L;
+        this.maxQueued = maxQueued;
+        setDaemon(true); // does not keep the application alive
+    }
+
+    /**
+     * Schedules a snapshot to be drawn one frame period after the previously posted one
+     * or immediately if there is nothing to draw. Returns without waiting for the frame.
+     * Replaces the most recent waiting snapshot in latest only mode or if the queue is full.
+     * @param state snapshot to draw
+     */
+    public void post(ViewState state) {
+        synchronized (queue) {
+            if ((latestOnly && !queue.isEmpty()) || queue.size() >= maxQueued) {
+                // keep the due time of the waiting snapshot, show the newer state instead
+                Frame waiting = queue.pollLast();
+                queue.addLast(new Frame(state, waiting.due));
+                framesDropped++;
+                return;
+            }
+            long due = Math.max(System.nanoTime(), lastDue + period);
+            lastDue = due;
+            queue.addLast(new Frame(state, due));
+            queue.notifyAll();
+        }
+    }
+
+    /**
+     * Switches latest only mode on or off. Switching it on discards all
+     * waiting snapshots but the most recent one.
+     * @param latestOnly true to draw only the most recent snapshot per frame period,
+     * false to draw every snapshot one frame period after the previous one
+     */
+    public void setLatestOnly(boolean latestOnly) {
+        synchronized (queue) {
+            this.latestOnly = latestOnly;
+            if (latestOnly) {
+                while (queue.size() > 1) {
+                    queue.pollFirst();
+                    framesDropped++;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of snapshots waiting to be drawn
+     */
+    public int getQueueLength() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Stops the render thread, snapshots that have not been drawn are discarded.
+     */
+    public void shutdown() {
+        synchronized (queue) {
+            running = false;
+            queue.clear();
+            queue.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Frame frame = nextFrame();
+                if (null == frame)
+                    return;
+                renderer.drawFrame(frame.state);
+                framesDrawn++;
+                if (System.nanoTime() > frame.due + period)
+                    framesLate++;
+            }
+        } catch (InterruptedException e) {
+            // thread is shut down, nothing left to do
+        }
+    }
+
+    /**
+     * Waits until the first snapshot in the queue is due and takes the most recent
+     * snapshot that is due from the queue.
+     * @return frame to draw, null if the thread is shut down
+     */
+    private Frame nextFrame() throws InterruptedException {
+        synchronized (queue) {
+            while (running) {
+                if (queue.isEmpty()) {
+                    queue.wait();
+                    continue;
+                }
+                long now = System.nanoTime();
+                long delay = queue.peekFirst().due - now;
+                if (delay > 0) {
+                    queue.wait(delay / 1000000L, (int) (delay % 1000000L));
+                    continue;
+                }
+                Frame frame = queue.pollFirst();
+                while (!queue.isEmpty() && queue.peekFirst().due <= now) {
+                    frame = queue.pollFirst();
+                    framesDropped++;
+                }
+                return frame;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return number of frames drawn so far
+     */
+    public int getFramesDrawn() {
+        return framesDrawn;
+    }
+
+    /**
+     * @return number of snapshots skipped because drawing fell behind
+     */
+    public int getFramesDropped() {
+        return framesDropped;
+    }
+
+    /**
+     * @return number of frames finished more than one frame period after they were due
+     */
+    public int getFramesLate() {
+        return framesLate;
+    }
+
+    /**
+     * A snapshot together with the time it is due to be drawn.
+     */
+    private static class Frame {
+        final ViewState state;
+        final long due; // in System.nanoTime() units
+
+        Frame(ViewState state, long due) {
+            this.state = state;
+            this.due = due;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Runs a robot driver on a maze without graphics and without waiting for animations.
+ *
+ * The simulation starts a StatePlaying in headless mode, so the BasicRobot operates
+ * on the same maze model, with the same energy accounting and the same isAtExit as in
+ * the game, but moves and rotations only update position and direction. A run reports
+ * if the driver got out, path length, energy consumption, turns and sensor readings.
+ *
+ * Runs on a plain JVM, e.g.
+ * java -cp classes edu.wm.cs.cs301.elise.amazebyelise.generation.RobotSimulation 1 5 9 driver=wizard trace=run
+ * with skill levels as arguments, the driver to simulate, WallFollower or Wizard, and
+ * optionally a name for traces of the runs, written to run-1.trace etc. for the RobotTracePlayer.
+ */
+public class RobotSimulation {
+    // names of all drivers that createDriver knows
+    static final String[] DRIVERS = { "WallFollower", "Wizard" };
+
+    public static void main(String[] args) throws IOException {
+        ArrayList<Integer> levels = new ArrayList<Integer>();
+        String driverName = "WallFollower";
+        String traceName = null;
+        for (String arg : args) {
+            if (arg.startsWith("driver="))
+                driverName = arg.substring("driver=".length());
+            else if (arg.startsWith("trace="))
+                traceName = arg.substring("trace=".length());
+            else
+                levels.add(Integer.parseInt(arg));
+        }
+        if (levels.isEmpty())
+            levels.addAll(Arrays.asList(1, 5, 9));
+        for (int level : levels) {
+            // the simulation does not draw, so the maze needs no tree of BSP nodes
+            MazeConfiguration mazeConfig = buildMaze(level);
+            OutputStream trace = (null == traceName) ? null : new FileOutputStream(traceName + "-" + level + ".trace");
+            Result result;
+            try {
+                result = run(mazeConfig, createDriver(driverName), trace);
+            } finally {
+                if (null != trace)
+                    trace.close();
+            }
+            System.out.println("skill " + level + " (" + mazeConfig.getWidth() + "x" + mazeConfig.getHeight()
+                    + "), " + driverName + ": " + result);
+        }
+    }
+
+    /**
+     * Builds a maze for the given skill level with a fixed seed, so repeated runs
+     * simulate the same maze. Without a tree of BSP nodes since nothing is drawn.
+     * @param skillLevel 0 to 15
+     * @return the maze
+     */
+    public static MazeConfiguration buildMaze(int skillLevel) {
+        MazeFactory factory = new MazeFactory(true);
+        StubOrder order = new StubOrder(Order.Builder.DFS, skillLevel, false, Order.Renderer.Raycast);
+        factory.order(order);
+        factory.waitTillDelivered();
+        return order.getMazeConfiguration();
+    }
+
+    /**
+     * Creates a driver for the given name.
+     * @param name of driver, case is ignored
+     * @return a new driver
+     * @throws RuntimeException for an unknown name
+     */
+    public static RobotDriver createDriver(String name) {
+        if ("WallFollower".equalsIgnoreCase(name))
+            return new WallFollower();
+        if ("Wizard".equalsIgnoreCase(name))
+            return new Wizard();
+        throw new RuntimeException("RobotSimulation: unknown driver " + name);
+    }
+
+    /**
+     * Lets the given driver operate a new BasicRobot with all sensors
+     * from the starting position of the maze till it gets out or gives up.
+     * @param mazeConfig the maze
+     * @param driver to simulate, gets a robot, the dimensions and the distances of the maze
+     * @return measurements of the run
+     */
+    public static Result run(MazeConfiguration mazeConfig, RobotDriver driver) {
+        return run(mazeConfig, driver, null);
+    }
+
+    /**
+     * Lets the given driver operate a new BasicRobot with all sensors
+     * from the starting position of the maze till it gets out or gives up
+     * and records the run.
+     * @param mazeConfig the maze
+     * @param driver to simulate, gets a robot, the dimensions and the distances of the maze
+     * @param trace stream to record a trace of the run to, see RobotTraceWriter, null for no trace
+     * @return measurements of the run
+     * @throws RuntimeException if the trace can not be written
+     */
+    public static Result run(MazeConfiguration mazeConfig, RobotDriver driver, OutputStream trace) {
+        StatePlaying state = new StatePlaying();
+        state.setMazeConfiguration(mazeConfig);
+        state.startHeadless();
+        BasicRobot robot = new BasicRobot();
+        robot.setMaze(state);
+        RobotTraceWriter writer = null;
+        if (null != trace) {
+            try {
+                writer = robot.startTrace(trace);
+            } catch (IOException e) {
+                throw new RuntimeException("RobotSimulation: failed to write trace: " + e.getMessage());
+            }
+        }
+        driver.setRobot(robot);
+        driver.setDimensions(mazeConfig.getWidth(), mazeConfig.getHeight());
+        driver.setDistance(mazeConfig.getMazedists());
+
+        Result result = new Result();
+        long t0 = System.nanoTime();
+        try {
+            result.success = driver.drive2Exit();
+        } catch (Exception e) {
+            // e.g. the battery ran out during a sensor reading
+            result.success = false;
+            result.failure = e.getMessage();
+        }
+        result.nanos = System.nanoTime() - t0;
+        if (null != writer) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new RuntimeException("RobotSimulation: failed to write trace: " + e.getMessage());
+            }
+        }
+        result.pathLength = driver.getPathLength();
+        result.energy = driver.getEnergyConsumption();
+        result.rotations = robot.getRotationCount();
+        result.sensorReadings = robot.getSensorCount();
+        return result;
+    }
+
+    /**
+     * Measurements for a single run of a driver.
+     */
+    public static class Result {
+        boolean success; // true if the driver got out of the maze
+        String failure; // message of exception that ended the run, null if none
+        int pathLength; // cells moved
+        float energy; // energy consumed
+        int rotations; // 90 degree turns
+        int sensorReadings; // distance sensor readings
+        long nanos; // time for drive2Exit
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public int getPathLength() {
+            return pathLength;
+        }
+
+        public float getEnergy() {
+            return energy;
+        }
+
+        public int getRotations() {
+            return rotations;
+        }
+
+        public int getSensorReadings() {
+            return sensorReadings;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return (success ? "exit" : "failed" + ((null != failure) ? " (" + failure + ")" : ""))
+                    + ", path length " + pathLength + ", energy " + energy
+                    + ", turns " + rotations + ", sensor readings " + sensorReadings
+                    + ", " + nanos / 1000 + "us";
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import edu.wm.cs.cs301.elise.amazebyelise.generation.Constants.UserInput;
+
+/**
+ * Replays a trace written by a RobotTraceWriter on a StatePlaying
+ * for the same maze, so a run can be watched again or inspected step by step
+ * without running its driver.
+ *
+ * The player reads the whole trace once and keeps position, direction, battery level
+ * and odometer reading after every step in arrays, step 0 is the start and step n
+ * the state after the n-th record. So any step can be looked up or shown right away
+ * with seek, regardless of the length of the run. Play re-drives the StatePlaying
+ * with the recorded rotations and moves such that the first person view and the map
+ * show the same animation as the run, with a pause after each operation to set the speed.
+ *
+ * Runs on a plain JVM, e.g.
+ * java -cp classes edu.wm.cs.cs301.elise.amazebyelise.generation.RobotTracePlayer run-15.trace 15
+ * with a trace written by the RobotSimulation and the skill level of its maze.
+ */
+public class RobotTracePlayer {
+    private final int width; // width of maze
+    private final int height; // height of maze
+    private int steps; // number of records
+    // state after each step, index 0 is the start
+    private int[] type; // record type of step, 0 for the start
+    private int[] arg; // turn or sensor direction ordinal
+    private int[] value; // steps moved or distance read
+    private int[] x;
+    private int[] y;
+    private byte[] direction; // CardinalDirection ordinal
+    private float[] battery;
+    private int[] odometer;
+    private int current; // step shown by the last call of seek or play
+
+    /**
+     * Constructor, reads the trace till its end. A record that is cut off
+     * at the end of the trace is ignored.
+     * @param in stream with a trace
+     * @throws IOException if the stream fails or does not start with a trace header
+     */
+    public RobotTracePlayer(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != RobotTraceWriter.MAGIC)
+            throw new IOException("RobotTracePlayer: not a robot trace");
+        final int version = data.readUnsignedByte();
+        if (version != RobotTraceWriter.VERSION)
+            throw new IOException("RobotTracePlayer: unsupported trace version " + version);
+        width = RobotTraceWriter.readVarint(data);
+        height = RobotTraceWriter.readVarint(data);
+        allocate(1024);
+        x[0] = RobotTraceWriter.readVarint(data);
+        y[0] = RobotTraceWriter.readVarint(data);
+        direction[0] = data.readByte();
+        battery[0] = data.readFloat();
+        try {
+            while (true)
+                readRecord(data);
+        } catch (EOFException e) {
+            // end of trace, possibly in the middle of a record that was not written completely
+        }
+    }
+
+    /**
+     * Reads a trace from a file.
+     * @param filename of trace
+     * @return player for the trace
+     * @throws IOException if the file can not be read
+     */
+    public static RobotTracePlayer load(String filename) throws IOException {
+        FileInputStream in = new FileInputStream(filename);
+        try {
+            return new RobotTracePlayer(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void allocate(int capacity) {
+        type = (null == type) ? new int[capacity] : Arrays.copyOf(type, capacity);
+        arg = (null == arg) ? new int[capacity] : Arrays.copyOf(arg, capacity);
+        value = (null == value) ? new int[capacity] : Arrays.copyOf(value, capacity);
+        x = (null == x) ? new int[capacity] : Arrays.copyOf(x, capacity);
+        y = (null == y) ? new int[capacity] : Arrays.copyOf(y, capacity);
+        direction = (null == direction) ? new byte[capacity] : Arrays.copyOf(direction, capacity);
+        battery = (null == battery) ? new float[capacity] : Arrays.copyOf(battery, capacity);
+        odometer = (null == odometer) ? new int[capacity] : Arrays.copyOf(odometer, capacity);
+    }
+
+    /**
+     * Reads one record and stores the state after it as the next step.
+     * The step only counts once the record is complete.
+     */
+    private void readRecord(DataInputStream data) throws IOException {
+        final int tag = data.readUnsignedByte();
+        final int n = steps + 1;
+        if (n == type.length)
+            allocate(2 * n);
+        type[n] = tag >> 4;
+        arg[n] = (tag >> 2) & 3;
+        direction[n] = (byte) (tag & 3);
+        x[n] = x[n-1];
+        y[n] = y[n-1];
+        odometer[n] = odometer[n-1];
+        switch (type[n]) {
+            case RobotTraceWriter.ROTATE:
+                break;
+            case RobotTraceWriter.MOVE:
+                value[n] = RobotTraceWriter.readVarint(data);
+                x[n] = RobotTraceWriter.readVarint(data);
+                y[n] = RobotTraceWriter.readVarint(data);
+                odometer[n] += value[n];
+                break;
+            case RobotTraceWriter.SENSE:
+                final int d = RobotTraceWriter.readVarint(data);
+                value[n] = (0 == d) ? Integer.MAX_VALUE : d - 1;
+                break;
+            default:
+                throw new IOException("RobotTracePlayer: unknown record type " + type[n] + " at step " + n);
+        }
+        battery[n] = data.readFloat();
+        steps = n;
+    }
+
+    /**
+     * @return number of steps in the trace, the last valid argument for seek
+     */
+    public int getStepCount() {
+        return steps;
+    }
+
+    /**
+     * @return step shown by the last call of seek or play, 0 at first
+     */
+    public int getCurrentStep() {
+        return current;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param step 0 to getStepCount()
+     * @return position (x,y) after the step
+     */
+    public int[] getPosition(int step) {
+        checkStep(step);
+        return new int[] { x[step], y[step] };
+    }
+
+    /**
+     * @param step 0 to getStepCount()
+     * @return direction after the step
+     */
+    public CardinalDirection getDirection(int step) {
+        checkStep(step);
+        return CardinalDirection.values()[direction[step]];
+    }
+
+    /**
+     * @param step 0 to getStepCount()
+     * @return battery level after the step
+     */
+    public float getBatteryLevel(int step) {
+        checkStep(step);
+        return battery[step];
+    }
+
+    /**
+     * @param step 0 to getStepCount()
+     * @return number of cells moved up to and including the step
+     */
+    public int getOdometerReading(int step) {
+        checkStep(step);
+        return odometer[step];
+    }
+
+    /**
+     * Describes the operation of a step, e.g. for a post-mortem of a run.
+     * @param step 0 to getStepCount()
+     * @return text such as "move 3", "rotate LEFT" or "sense FORWARD 2"
+     */
+    public String describe(int step) {
+        checkStep(step);
+        switch (type[step]) {
+            case RobotTraceWriter.ROTATE:
+                return "rotate " + Robot.Turn.values()[arg[step]];
+            case RobotTraceWriter.MOVE:
+                return "move " + value[step];
+            case RobotTraceWriter.SENSE:
+                return "sense " + Robot.Direction.values()[arg[step]] + " "
+                        + ((Integer.MAX_VALUE == value[step]) ? "exit" : String.valueOf(value[step]));
+            default:
+                return "start";
+        }
+    }
+
+    private void checkStep(int step) {
+        if (step < 0 || step > steps)
+            throw new RuntimeException("RobotTracePlayer: step " + step + " outside of 0.." + steps);
+    }
+
+    /**
+     * Shows the state after the given step on the StatePlaying right away,
+     * without intermediate views.
+     * @param state started for the maze of the trace
+     * @param step 0 to getStepCount()
+     */
+    public void seek(StatePlaying state, int step) {
+        checkStep(step);
+        checkMaze(state);
+        state.setPositionDirection(x[step], y[step], getDirection(step));
+        current = step;
+    }
+
+    /**
+     * Re-drives the StatePlaying with the recorded rotations and moves
+     * from the current step up to the given step. Sensor readings do not change
+     * the view and take no time. A step before the current one is shown with seek.
+     * @param state started for the maze of the trace
+     * @param step 0 to getStepCount()
+     * @param delay milliseconds to wait after each rotation or move, 0 for no wait
+     * @throws InterruptedException if interrupted while waiting
+     * @throws RuntimeException if the recorded moves do not fit the maze of the state
+     */
+    public void play(StatePlaying state, int step, long delay) throws InterruptedException {
+        checkStep(step);
+        checkMaze(state);
+        if (step < current) {
+            seek(state, step);
+            return;
+        }
+        while (current < step) {
+            final int n = current + 1;
+            switch (type[n]) {
+                case RobotTraceWriter.ROTATE:
+                    // same key strokes as the BasicRobot uses, a rotation that
+                    // failed for lack of energy left the direction as it was
+                    if (direction[n] != direction[n-1]) {
+                        if (Robot.Turn.RIGHT.ordinal() == arg[n])
+                            state.keyDown(UserInput.Right, 0);
+                        else
+                            state.keyDown(UserInput.Left, 0);
+                        if (Robot.Turn.AROUND.ordinal() == arg[n])
+                            state.keyDown(UserInput.Left, 0);
+                    }
+                    break;
+                case RobotTraceWriter.MOVE:
+                    for (int i = 0; i != value[n]; i++)
+                        state.keyDown(UserInput.Up, 0);
+                    break;
+                default:
+                    break;
+            }
+            int[] pos = state.getCurrentPosition();
+            if (pos[0] != x[n] || pos[1] != y[n] || state.getCurrentDirection() != getDirection(n))
+                throw new RuntimeException("RobotTracePlayer: trace does not match maze at step " + n
+                        + " (" + describe(n) + ")");
+            current = n;
+            if (delay > 0 && RobotTraceWriter.SENSE != type[n])
+                Thread.sleep(delay);
+        }
+    }
+
+    private void checkMaze(StatePlaying state) {
+        MazeConfiguration mazeConfig = state.getMazeConfiguration();
+        if (mazeConfig.getWidth() != width || mazeConfig.getHeight() != height)
+            throw new RuntimeException("RobotTracePlayer: trace is for a " + width + "x" + height + " maze, not "
+                    + mazeConfig.getWidth() + "x" + mazeConfig.getHeight());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("usage: RobotTracePlayer trace-file skill-level");
+            return;
+        }
+        byte[] bytes = readAll(args[0]);
+        long t0 = System.nanoTime();
+        RobotTracePlayer player = new RobotTracePlayer(new ByteArrayInputStream(bytes));
+        long t1 = System.nanoTime();
+        final int last = player.getStepCount();
+        System.out.println(args[0] + ": " + player.getWidth() + "x" + player.getHeight() + " maze, "
+                + last + " steps in " + bytes.length + " bytes ("
+                + String.format("%.1f", (double) bytes.length / Math.max(1, last)) + " per step), read in "
+                + (t1 - t0) / 1000 + "us");
+        System.out.println("end: " + player.describe(last) + " at " + Arrays.toString(player.getPosition(last))
+                + " facing " + player.getDirection(last) + ", path length " + player.getOdometerReading(last)
+                + ", battery " + player.getBatteryLevel(last));
+
+        // replay on the maze the RobotSimulation generated for the skill level
+        MazeConfiguration mazeConfig = RobotSimulation.buildMaze(Integer.parseInt(args[1]));
+        StatePlaying state = new StatePlaying();
+        state.setMazeConfiguration(mazeConfig);
+        state.startHeadless();
+        long t2 = System.nanoTime();
+        player.play(state, last, 0);
+        long t3 = System.nanoTime();
+        System.out.println("replayed all steps in " + (t3 - t2) / 1000 + "us");
+        // seek back and forth
+        long t4 = System.nanoTime();
+        for (int i = 0; i != 1000; i++)
+            player.seek(state, (int) ((long) i * 7919 % (last + 1)));
+        long t5 = System.nanoTime();
+        player.seek(state, last / 2);
+        System.out.println("1000 seeks in " + (t5 - t4) / 1000 + "us, step " + last / 2 + ": "
+                + player.describe(last / 2) + " at " + Arrays.toString(state.getCurrentPosition()));
+    }
+
+    private static byte[] readAll(String filename) throws IOException {
+        InputStream in = new FileInputStream(filename);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                out.write(buf, 0, n);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
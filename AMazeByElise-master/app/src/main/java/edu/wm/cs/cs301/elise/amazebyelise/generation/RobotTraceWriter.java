@@ -0,0 +1,175 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records the operations of a BasicRobot to a compact binary trace,
+ * which the RobotTracePlayer reads to replay a run without its driver.
+ *
+ * The trace starts with a header: the magic number, the format version, the dimensions
+ * of the maze, the starting position and direction and the battery level.
+ * Then follows one record per rotate, move and distance sensor reading, appended as
+ * the robot operates. A record starts with a tag byte, type in bits 4-7, turn or
+ * sensor direction in bits 2-3 and the cardinal direction after the operation in bits 0-1.
+ * A move adds the number of steps taken and the position after the move, a reading adds
+ * the distance + 1, 0 for a view through the exit, all as variable length integers,
+ * and every record ends with the battery level after the operation.
+ * Records do not refer to later ones, so a trace that is cut off, e.g. since the
+ * app was killed, is good up to its last complete record.
+ *
+ * Output is buffered, so recording an operation writes a few bytes to memory and
+ * the run does not wait for the stream. Call close when the run is over.
+ */
+public class RobotTraceWriter implements Closeable {
+    static final int MAGIC = 0x414D5452; // "AMTR"
+    static final int VERSION = 1;
+    // record types
+    static final int ROTATE = 1;
+    static final int MOVE = 2;
+    static final int SENSE = 3;
+
+    private final DataOutputStream out;
+    private int records; // number of records written so far
+
+    /**
+     * Constructor, writes the header.
+     * @param out stream to append the trace to
+     * @param width of maze
+     * @param height of maze
+     * @param x starting position
+     * @param y starting position
+     * @param cd starting direction
+     * @param batteryLevel at the start
+     * @throws IOException if the header can not be written
+     */
+    public RobotTraceWriter(OutputStream out, int width, int height, int x, int y,
+                            CardinalDirection cd, float batteryLevel) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        writeVarint(width);
+        writeVarint(height);
+        writeVarint(x);
+        writeVarint(y);
+        this.out.writeByte(cd.ordinal());
+        this.out.writeFloat(batteryLevel);
+    }
+
+    /**
+     * Records a rotation.
+     * @param turn as requested from the robot
+     * @param cd direction after the rotation
+     * @param batteryLevel after the rotation
+     */
+    public void rotated(Robot.Turn turn, CardinalDirection cd, float batteryLevel) {
+        try {
+            writeTag(ROTATE, turn.ordinal(), cd);
+            out.writeFloat(batteryLevel);
+            records++;
+        } catch (IOException e) {
+            throw new RuntimeException("RobotTraceWriter: failed to write trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a move.
+     * @param steps number of cells moved, which is less than requested if the robot stopped
+     * @param x position after the move
+     * @param y position after the move
+     * @param cd direction of the move
+     * @param batteryLevel after the move
+     */
+    public void moved(int steps, int x, int y, CardinalDirection cd, float batteryLevel) {
+        try {
+            writeTag(MOVE, 0, cd);
+            writeVarint(steps);
+            writeVarint(x);
+            writeVarint(y);
+            out.writeFloat(batteryLevel);
+            records++;
+        } catch (IOException e) {
+            throw new RuntimeException("RobotTraceWriter: failed to write trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a distance sensor reading.
+     * @param direction of the sensor relative to the robot
+     * @param distance reading, Integer.MAX_VALUE for a view through the exit
+     * @param cd current direction
+     * @param batteryLevel after the reading
+     */
+    public void sensed(Robot.Direction direction, int distance, CardinalDirection cd, float batteryLevel) {
+        try {
+            writeTag(SENSE, direction.ordinal(), cd);
+            writeVarint(Integer.MAX_VALUE == distance ? 0 : distance + 1);
+            out.writeFloat(batteryLevel);
+            records++;
+        } catch (IOException e) {
+            throw new RuntimeException("RobotTraceWriter: failed to write trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of records written so far
+     */
+    public int getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Writes buffered records to the stream, e.g. to look at a trace of a run that goes on.
+     * @throws IOException if the stream fails
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes buffered records and closes the stream.
+     * @throws IOException if the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeTag(int type, int arg, CardinalDirection cd) throws IOException {
+        out.writeByte((type << 4) | (arg << 2) | cd.ordinal());
+    }
+
+    /**
+     * Writes a value with 7 bits per byte, lowest bits first,
+     * the high bit tells if more bytes follow. Values below 128 take a single byte,
+     * negative values, e.g. a position just outside the maze, take five.
+     */
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads a value written by writeVarint.
+     * @param in stream to read from
+     * @return value
+     * @throws IOException if the stream ends before the value is complete
+     */
+    static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("RobotTraceWriter: malformed variable length integer");
+    }
+}
@@ -0,0 +1,107 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * This class saves a maze as the recipe to generate it again instead of its content.
+ * All methods are static.
+ *
+ * Generation is deterministic for a given seed, so a saved maze only holds the builder,
+ * the skill level, if the maze is perfect, the seed, the version of the generation
+ * algorithms and the fingerprint of the cells, some 30 bytes. Read orders the maze from a
+ * MazeFactory with the same seed and compares the fingerprint of the cells it gets.
+ * A saved maze may also carry a full copy as a MazeSnapshot, which read uses if the
+ * generator version differs or the regenerated cells do not match.
+ */
+public class SavedMaze {
+    private static final int MAGIC = 0x414D5356; // "AMSV"
+    private static final int FORMAT = 2; // version of this format, 2 stores the Zobrist fingerprint instead of a CRC32
+
+    /**
+     * Saves a maze generated with a MazeFactory for the given seed.
+     * @param order the maze was generated for, gives builder, skill level and perfect
+     * @param seed the maze was generated with
+     * @param mazeConfig the generated maze
+     * @param withCopy true to add a full copy of the maze for a generator of a different version
+     * @return saved maze
+     */
+    public static byte[] write(Order order, int seed, MazeConfiguration mazeConfig, boolean withCopy) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT);
+            out.writeInt(MazeBuilder.GENERATOR_VERSION);
+            out.writeByte(order.getBuilder().ordinal());
+            out.writeByte(order.getSkillLevel());
+            out.writeBoolean(order.isPerfect());
+            out.writeInt(seed);
+            out.writeLong(mazeConfig.getMazecells().getFingerprint());
+            if (withCopy) {
+                byte[] copy = MazeSnapshot.write(mazeConfig);
+                out.writeInt(copy.length);
+                out.write(copy);
+            } else {
+                out.writeInt(0);
+            }
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // a stream in memory does not fail
+            throw new RuntimeException("SavedMaze: failed to write maze: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restores a saved maze, generates it again if the generator has the same version.
+     * Takes as long as the generation of the maze, so it should not run on the UI thread.
+     * @param saved maze as written by write
+     * @param renderer that is going to draw the maze, a regenerated maze gets a tree
+     * of BSP nodes for the BSP renderer
+     * @return the maze
+     * @throws RuntimeException if the bytes are not a saved maze or the maze can not be
+     * restored, i.e. it can not be generated again and there is no copy
+     */
+    public static MazeConfiguration read(byte[] saved, Order.Renderer renderer) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(saved));
+        try {
+            if (in.readInt() != MAGIC)
+                throw new RuntimeException("SavedMaze: not a saved maze");
+            final int format = in.readUnsignedByte();
+            if (format != FORMAT)
+                throw new RuntimeException("SavedMaze: unsupported format " + format);
+            final int version = in.readInt();
+            final Order.Builder builder = Order.Builder.values()[in.readUnsignedByte()];
+            final int skillLevel = in.readUnsignedByte();
+            final boolean perfect = in.readBoolean();
+            final int seed = in.readInt();
+            final long fingerprint = in.readLong();
+            byte[] copy = new byte[in.readInt()];
+            in.readFully(copy);
+
+            String problem = "generator version " + version; // why the maze is not generated again
+            if (version == MazeBuilder.GENERATOR_VERSION) {
+                MazeFactory factory = new MazeFactory(seed);
+                factory.setQuiet(true);
+                StubOrder order = new StubOrder(builder, skillLevel, perfect, renderer);
+                if (factory.order(order)) {
+                    factory.waitTillDelivered();
+                    MazeConfiguration mazeConfig = order.getMazeConfiguration();
+                    if (null != mazeConfig && fingerprint == mazeConfig.getMazecells().getFingerprint())
+                        return mazeConfig;
+                }
+                problem = "regenerated maze does not match";
+            }
+            if (0 == copy.length)
+                throw new RuntimeException("SavedMaze: can not generate maze with seed " + seed + " again ("
+                        + problem + ") and there is no copy");
+            return MazeSnapshot.read(copy);
+        } catch (IOException e) {
+            throw new RuntimeException("SavedMaze: failed to read maze: " + e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package edu.wm.cs.cs301.elise.amazebyelise.generation;
 
-import android.graphics.Color;
-
 //import java.awt.Color;
 import java.util.ArrayList;
 
@@ -147,25 +145,25 @@ public class Seg {
         final int rgbValue = calculateRGBValue(d);
         switch (((d >> 3) ^ cc) % 6) {
             case 0:
-                color = Color.rgb(rgbValue, RGB_DEF, RGB_DEF);
+                color = MazeColors.rgb(rgbValue, RGB_DEF, RGB_DEF);
                 break;
             case 1:
-                color = Color.rgb(RGB_DEF, rgbValue, RGB_DEF);
+                color = MazeColors.rgb(RGB_DEF, rgbValue, RGB_DEF);
                 break;
             case 2:
-                color = Color.rgb(RGB_DEF, RGB_DEF, rgbValue);
+                color = MazeColors.rgb(RGB_DEF, RGB_DEF, rgbValue);
                 break;
             case 3:
-                color = Color.rgb(rgbValue, rgbValue, RGB_DEF);
+                color = MazeColors.rgb(rgbValue, rgbValue, RGB_DEF);
                 break;
             case 4:
-                color = Color.rgb(RGB_DEF, rgbValue, rgbValue);
+                color = MazeColors.rgb(RGB_DEF, rgbValue, rgbValue);
                 break;
             case 5:
-                color = Color.rgb(rgbValue, RGB_DEF, rgbValue);
+                color = MazeColors.rgb(rgbValue, RGB_DEF, rgbValue);
                 break;
             default:
-                color = Color.rgb(RGB_DEF, RGB_DEF, RGB_DEF);
+                color = MazeColors.rgb(RGB_DEF, RGB_DEF, RGB_DEF);
                 break;
         }
     }
@@ -395,6 +393,46 @@ public class Seg {
         //final int y  = getStartPositionY();
         //final int dx = getExtensionX();
         //final int dy = getExtensionY();
+        final int[] counts = countSides(sl);
+        final int lcount = counts[0], rcount = counts[1], splits = counts[2];
+        return Math.abs(lcount-rcount) + splits * 3;
+    }
+
+    /**
+     * Method called in BSPBuilder.genNodes with Order.Partition.Coverage to determine the minimum of all such grades.
+     * It estimates the number of segments the FirstPersonDrawer considers behind this partition:
+     * a viewer at a random position in the bounding box of the node sees the segments on its side,
+     * so the counts for each side are weighted with the area of that side and split segments count
+     * on both sides. A long wall that cuts off a large area with few segments gets a low grade.
+     * The method does not update internal attributes and just calculates the returned value.
+     * @param sl vector of segments
+     * @param xl lower bound for x coordinates of segments in sl
+     * @param yl lower bound for y coordinates of segments in sl
+     * @param xu upper bound for x coordinates of segments in sl
+     * @param yu upper bound for y coordinates of segments in sl
+     * @return expected number of sampled segments per side times 16
+     */
+    public int calculateCoverageGrade(ArrayList<Seg> sl, int xl, int yl, int xu, int yu) {
+        final int[] counts = countSides(sl);
+        final int lcount = counts[0], rcount = counts[1], splits = counts[2];
+        final long area = Math.max(1, (long) (xu-xl) * (yu-yl));
+        // area on the right hand side, i.e. where the dot product is positive
+        long rarea;
+        if (0 == dx)
+            rarea = ((dy > 0) ? (long) (xu-x) : (long) (x-xl)) * (yu-yl);
+        else
+            rarea = ((dx > 0) ? (long) (y-yl) : (long) (yu-y)) * (xu-xl);
+        rarea = Math.max(0, Math.min(area, rarea));
+        return (int) (16 * (rarea * (rcount+splits) + (area-rarea) * (lcount+splits)) / area);
+    }
+
+    /**
+     * Helper method for calculateGrade and calculateCoverageGrade, counts a sample of
+     * segments on either side of this segment and the ones that it splits.
+     * @param sl vector of segments
+     * @return left count, right count and number of splits
+     */
+    private int[] countSides(ArrayList<Seg> sl) {
         final int inc = (sl.size() >= 100) ? sl.size() / 50 : 1 ; // increment for iteration below
         // define some local counter
         int lcount = 0, rcount = 0, splits = 0;
@@ -428,7 +466,7 @@ public class Seg {
                 BSPBuilder.dbg("grade_partition problem: dot1 = "+dotStart+", dot2 = "+dotEnd);
             }
         }
-        return Math.abs(lcount-rcount) + splits * 3;
+        return new int[] { lcount, rcount, splits };
     }
 
     /**
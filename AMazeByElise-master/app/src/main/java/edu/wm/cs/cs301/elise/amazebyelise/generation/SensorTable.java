@@ -0,0 +1,80 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * This class keeps the distance to the next wall for each cell and each direction
+ * such that the distance sensors of a robot do not need to walk through the cells
+ * on every call.
+ *
+ * The table is filled with one sweep per direction over all cells: a cell with a wall
+ * in direction d has distance 0, otherwise its distance is one more than the one of
+ * its neighbor in direction d. A cell at the border without a wall looks through the
+ * exit, which is stored as Integer.MAX_VALUE and carries over to the cells behind it.
+ * This gives the same values as following the cells one by one as BasicRobot did.
+ */
+public class SensorTable {
+    private final int width; // width of maze
+    private final int height; // height of maze
+    // distance for each cell and direction, index ((x + y*width) << 2) + direction.ordinal()
+    private final int[] distances;
+
+    /**
+     * Constructor, fills the table for the given cells.
+     * @param cells walls of the maze
+     * @param width of maze
+     * @param height of maze
+     */
+    public SensorTable(Cells cells, int width, int height) {
+        this.width = width;
+        this.height = height;
+        distances = new int[width * height * 4];
+        for (int y = 0; y < height; y++) {
+            // West and North neighbors come first in increasing order
+            for (int x = 0; x < width; x++) {
+                set(x, y, CardinalDirection.West, cells, x > 0, x-1, y);
+                set(x, y, CardinalDirection.North, cells, y > 0, x, y-1);
+            }
+        }
+        for (int y = height-1; y >= 0; y--) {
+            // East and South neighbors come first in decreasing order
+            for (int x = width-1; x >= 0; x--) {
+                set(x, y, CardinalDirection.East, cells, x < width-1, x+1, y);
+                set(x, y, CardinalDirection.South, cells, y < height-1, x, y+1);
+            }
+        }
+    }
+
+    /**
+     * Computes the distance for a cell from its neighbor, which must be done already.
+     * @param inside tells if the neighbor (nx,ny) is inside the maze
+     */
+    private void set(int x, int y, CardinalDirection cd, Cells cells, boolean inside, int nx, int ny) {
+        int d;
+        if (cells.hasWall(x, y, cd))
+            d = 0;
+        else if (!inside)
+            d = Integer.MAX_VALUE; // looking through the exit
+        else {
+            d = distances[index(nx, ny, cd)];
+            if (d != Integer.MAX_VALUE)
+                d++;
+        }
+        distances[index(x, y, cd)] = d;
+    }
+
+    private int index(int x, int y, CardinalDirection cd) {
+        return ((x + y*width) << 2) + cd.ordinal();
+    }
+
+    /**
+     * Gives the number of steps from the given cell towards a wall in the given direction.
+     * @param x coordinate of cell
+     * @param y coordinate of cell
+     * @param cd direction to look at
+     * @return number of steps, 0 if the cell has a wall in this direction,
+     * Integer.MAX_VALUE if one looks through the exit
+     */
+    public int getDistance(int x, int y, CardinalDirection cd) {
+        assert (0 <= x && x < width && 0 <= y && y < height) : "SensorTable: position outside of maze";
+        return distances[index(x, y, cd)];
+    }
+}
@@ -71,8 +71,19 @@ public final class SingleRandom {
      * @param seed is the seed value for the random number generator
      */
     public static void setSeed(final int seed) {
+        setSeed(seed, true);
+    }
+
+    /**
+     * Prepares the generator to start with a particular seed value as above.
+     * @param seed is the seed value for the random number generator
+     * @param warn true to print a warning if the existing generator is reset,
+     * false if resetting it is intended
+     */
+    public static void setSeed(final int seed, final boolean warn) {
         if (null != instance) {
-            System.out.println("Warning: SingleRandom already instantiated, resetting seed with value " + seed);
+            if (warn)
+                System.out.println("Warning: SingleRandom already instantiated, resetting seed with value " + seed);
             instance.generator.setSeed(seed) ;
         }
         theSeed = seed;
@@ -0,0 +1,126 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * This class keeps the path from the current position to the exit such that
+ * the MapDrawer does not need to search for it on every redraw.
+ *
+ * The path is stored in reverse order, the exit position comes first and the
+ * current position comes last. A step along the solution only removes the last
+ * position, a step away from the solution only adds one position, so for the
+ * usual moves of a player the path is updated in constant time.
+ * Other moves, e.g. a jump, rebuild the path from the table of directions
+ * towards the exit that the maze configuration provides.
+ */
+public class SolutionPath {
+    private final MazeConfiguration mazeConfig;
+    private final int width; // width of maze, used to encode positions
+    private int[] path = new int[64]; // positions x + y*width, exit at index 0
+    private int size = 0; // number of positions on path, 0 if no path yet
+
+    /**
+     * Constructor
+     * @param mazeConfig provides directions towards the exit
+     */
+    public SolutionPath(MazeConfiguration mazeConfig) {
+        this.mazeConfig = mazeConfig;
+        this.width = mazeConfig.getWidth();
+    }
+
+    /**
+     * Updates the path for the given current position.
+     * @param px current position, x coordinate
+     * @param py current position, y coordinate
+     */
+    public void update(int px, int py) {
+        final int p = px + py*width;
+        if (size > 0) {
+            if (path[size-1] == p)
+                return; // no move
+            if (size > 1 && path[size-2] == p) {
+                size--; // one step along the solution
+                return;
+            }
+            if (isNextHop(px, py, path[size-1])) {
+                add(p); // one step away from the solution
+                return;
+            }
+        }
+        rebuild(px, py);
+    }
+
+    /**
+     * @return number of positions on path including current and exit position
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gives the x coordinate of the i-th position on the path.
+     * @param i index, 0 is the current position, size()-1 the exit
+     */
+    public int getX(int i) {
+        return path[size-1-i] % width;
+    }
+
+    /**
+     * Gives the y coordinate of the i-th position on the path.
+     * @param i index, 0 is the current position, size()-1 the exit
+     */
+    public int getY(int i) {
+        return path[size-1-i] / width;
+    }
+
+    /**
+     * Tells if the direction towards the exit leads from (x,y) to the encoded position q.
+     */
+    private boolean isNextHop(int x, int y, int q) {
+        CardinalDirection cd = mazeConfig.getDirectionToExit(x, y);
+        if (null == cd)
+            return false;
+        int[] dir = cd.getDirection();
+        return (x+dir[0]) + (y+dir[1])*width == q;
+    }
+
+    /**
+     * Computes the whole path from (px,py) to the exit.
+     * There is no path if (px,py) is cut off from the exit, e.g. by a wall
+     * that a DynamicMaze closed, then the distance is Distance.INFINITY.
+     */
+    private void rebuild(int px, int py) {
+        int n = mazeConfig.getDistanceToExit(px, py); // number of positions on path
+        if (n <= 0 || n > width*mazeConfig.getHeight()) {
+            size = 0; // no path, also catches Distance.INFINITY
+            return;
+        }
+        if (n > path.length)
+            path = new int[Math.max(n, 2*path.length)];
+        size = n;
+        int x = px;
+        int y = py;
+        for (int i = n-1; i >= 0; i--) {
+            path[i] = x + y*width;
+            CardinalDirection cd = mazeConfig.getDirectionToExit(x, y);
+            if (null == cd) {
+                if (0 != i)
+                    size = 0; // stuck before the exit, no path to show
+                return;
+            }
+            int[] dir = cd.getDirection();
+            x += dir[0];
+            y += dir[1];
+        }
+    }
+
+    /**
+     * Appends an encoded position at the current end of the path.
+     */
+    private void add(int p) {
+        if (size == path.length) {
+            int[] grown = new int[2*path.length];
+            System.arraycopy(path, 0, grown, 0, size);
+            path = grown;
+        }
+        path[size++] = p;
+    }
+}
@@ -36,17 +36,22 @@ import edu.wm.cs.cs301.elise.amazebyelise.gui.PlayManuallyActivity;
  * Refactored by Peter Kemper
  */
 public class StatePlaying extends DefaultState {
-    FirstPersonDrawer firstPersonView;
+    volatile FirstPersonView firstPersonView; // replaced on the render thread once a BSP tree arrives
+    private Order.Renderer renderer = Order.Renderer.BSP; // requested first person renderer
+    private boolean waitingForBsp; // true while raycasting stands in for a BSP tree that is still being built
+    private volatile boolean renderStatsEnabled;
     MapDrawer mapView;
     MazePanel panel;
     Controller control;
 
     MazeConfiguration mazeConfig ;
 
-    private boolean showMaze;           // toggle switch to show overall maze on screen
-    private boolean showSolution;       // toggle switch to show solution in overall maze on screen
-    private boolean mapMode; // true: display map of maze, false: do not display map of maze
+    // toggled on the UI thread, read by a robot driver that posts snapshots
+    private volatile boolean showMaze;           // toggle switch to show overall maze on screen
+    private volatile boolean showSolution;       // toggle switch to show solution in overall maze on screen
+    private volatile boolean mapMode; // true: display map of maze, false: do not display map of maze
     // map_mode is toggled by user keyboard input, causes a call to draw_map during play mode
+    // map settings go to the render thread with each snapshot
 
     // current position and direction with regard to MazeConfiguration
     private int px, py ; // current position on maze grid (x,y)
@@ -62,6 +67,8 @@ public class StatePlaying extends DefaultState {
     private Cells seencells; // a matrix with cells to memorize which cells are visible from the current point of view
     // the FirstPersonDrawer obtains this information and the MapDrawer uses it for highlighting currently visible walls on the map
     private RangeSet rset;
+    // draws frames for posted view snapshots, null if there is no panel to draw on
+    private RenderThread renderThread;
     // debug stuff
     private boolean deepdebug = false;
     //private boolean allVisible = false;
@@ -70,8 +77,24 @@ public class StatePlaying extends DefaultState {
 
 
     boolean started;
-    private BasicRobot robot;
+    // true for a simulation without panel, see startHeadless
+    private boolean headless;
+    private volatile BasicRobot robot;
     private RobotDriver driver;
+    // runs the robot driver, null till startRobot
+    private volatile Thread driverThread;
+    private volatile Constants.Playback playback = Constants.Playback.Normal;
+    private volatile boolean paused; // true to hold the robot driver before its next operation
+    private volatile FrameListener frameListener; // told about drawn frames, null if none
+
+    /**
+     * Receives each frame after it is drawn, e.g. to show the energy
+     * and path length of the robot that belong to the view on the screen.
+     * Called on the render thread.
+     */
+    public interface FrameListener {
+        void onFrame(ViewState state);
+    }
     public static Boolean isFinished = false;
 
     public StatePlaying() {
@@ -82,6 +105,15 @@ public class StatePlaying extends DefaultState {
     public void setMazeConfiguration(MazeConfiguration config) {
         mazeConfig = config;
     }
+    /**
+     * Selects the renderer for the first person view of this session,
+     * takes effect with the next call to start.
+     * Raycasting is used regardless of the selection if the maze has no BSP tree.
+     * @param renderer BSP or Raycast
+     */
+    public void setRenderer(Order.Renderer renderer) {
+        this.renderer = renderer;
+    }
     /**
      * Start the game by showing the title screen.
      * If the panel is null, all drawing operations are skipped.
@@ -111,37 +143,150 @@ public class StatePlaying extends DefaultState {
         if (panel != null) {
             // init mazeview, controller not needed for title
             // reset map_scale in mapdrawer to a value of 10
-            firstPersonView = new FirstPersonDrawer(Constants.VIEW_WIDTH,Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
-                    Constants.STEP_SIZE, seencells, mazeConfig.getRootnode()) ;
+            // a maze ordered for raycasting comes without a tree of BSP nodes,
+            // a maze that is played before its tree is complete is drawn by raycasting
+            // till the tree is there
+            if (Order.Renderer.Raycast == renderer || null == mazeConfig.getRootnode()) {
+                firstPersonView = new RaycastDrawer(Constants.VIEW_WIDTH,Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
+                        Constants.STEP_SIZE, seencells, mazeConfig) ;
+                waitingForBsp = (Order.Renderer.Raycast != renderer);
+            }
+            else {
+                firstPersonView = createFirstPersonDrawer();
+                waitingForBsp = false;
+            }
+            firstPersonView.setStatsEnabled(renderStatsEnabled);
 
             // order of registration matters, code executed in order of appearance!
             mapView = new MapDrawer(Constants.VIEW_WIDTH,Constants.VIEW_HEIGHT,Constants.MAP_UNIT,
                     Constants.STEP_SIZE, seencells, 100, this) ;
 
+            // drawing happens on a separate thread, key input only posts snapshots of the view
+            renderThread = new RenderThread(new RenderThread.Renderer() {
+                @Override
+                public void drawFrame(ViewState state) {
+                    StatePlaying.this.drawFrame(state);
+                }
+            }, Constants.FRAME_PERIOD, Constants.MAX_FRAMES_QUEUED) ;
+            renderThread.start();
+
             // if given a filename, show a message and move to the loading screen
             // otherwise, show message that we wait for the skill level for input
             notifyViewerRedraw();
 
             if (GeneratingActivity.robotExists && GeneratingActivity.driverExists) {
-                System.out.println("Creating the selected robot: " + GeneratingActivity.driver);
-                robot = new BasicRobot();
-                robot.setMaze(StatePlaying.this);
-                driver = new WallFollower();
-                driver.setRobot(robot);
-                driver.setDistance(controller.getMazeConfiguration().getMazedists());
+                startRobot();
+            }
+        } else {
+            // else: dry-run without graphics
+            if (!headless)
+                printWarning();
+        }
+    }
+    /**
+     * Creates the robot and the driver selected in the GeneratingActivity and lets
+     * the driver operate the robot on a thread of its own, so the UI thread does not
+     * wait for it. How fast the driver goes is set with setPlayback.
+     * Has no effect if the robot has been started already.
+     */
+    public void startRobot() {
+        if (null != driverThread)
+            return;
+        robot = new BasicRobot();
+        robot.setMaze(StatePlaying.this);
+        driver = "Wizard".equalsIgnoreCase(GeneratingActivity.driver) ? new Wizard() : new WallFollower();
+        driver.setRobot(robot);
+        driver.setDistance(mazeConfig.getMazedists());
+        driverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
                 try {
-                    System.out.print("Trying to drive out of maze now!");
                     driver.drive2Exit() ;
                 } catch (Exception e) {
-                    // TODO Auto-generated catch block
+                    // also ends a driver that is stopped with the game
                     e.printStackTrace();
                 }
             }
-        } else {
-            // else: dry-run without graphics
-            printWarning();
+        }, "RobotDriver");
+        driverThread.setDaemon(true);
+        driverThread.start();
+    }
+    /**
+     * Tells if the robot has been started, e.g. by start if a driver was selected.
+     * @return true if startRobot has been called
+     */
+    public boolean isRobotStarted() {
+        return null != driverThread;
+    }
+    /**
+     * Sets the speed to watch the robot driver, takes effect with the next operation.
+     * Normal and Fast show every move and rotation, Turbo and Instant show the latest
+     * state once per frame and skip the views in between.
+     * @param playback speed
+     */
+    public void setPlayback(Constants.Playback playback) {
+        this.playback = playback;
+        RenderThread r = renderThread;
+        if (null != r)
+            r.setLatestOnly(Constants.Playback.Turbo == playback || Constants.Playback.Instant == playback);
+    }
+    public Constants.Playback getPlayback() {
+        return playback;
+    }
+    /**
+     * Holds the robot driver before its next operation or lets it go on.
+     * @param paused true to hold the driver
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+    /**
+     * Sets the listener that is told about each frame after it is drawn.
+     * @param listener to tell, null for none
+     */
+    public void setFrameListener(FrameListener listener) {
+        frameListener = listener;
+    }
+    /**
+     * Called by the robot driver after each move or rotation. Waits while the game is
+     * paused and keeps the driver from running too far ahead of the screen:
+     * at Normal and Fast speed till the render thread has at most PLAYBACK_FRAMES_AHEAD
+     * frames to draw, at Turbo speed such that TURBO_STEPS_PER_FRAME operations
+     * take one frame period. Instant does not wait.
+     * @throws RuntimeException if the game is stopped, which ends the driver
+     */
+    private void pace() {
+        try {
+            while (paused)
+                Thread.sleep(Constants.FRAME_PERIOD);
+            switch (playback) {
+                case Normal:
+                case Fast:
+                    RenderThread r;
+                    while (null != (r = renderThread) && r.getQueueLength() > Constants.PLAYBACK_FRAMES_AHEAD)
+                        Thread.sleep(Constants.FRAME_PERIOD);
+                    break;
+                case Turbo:
+                    final long nanos = Constants.FRAME_PERIOD * 1000000L / Constants.TURBO_STEPS_PER_FRAME;
+                    Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+                    break;
+                case Instant:
+                    break;
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException("StatePlaying: robot stopped");
         }
     }
+    /**
+     * Starts the game without a panel for a simulation of a robot driver.
+     * Moves and rotations update position and direction right away without
+     * intermediate views, and reaching the exit does not set isFinished,
+     * which belongs to the game on the screen.
+     */
+    public void startHeadless() {
+        headless = true;
+        start(null, null);
+    }
     /**
      * Internal method to set the current position, the direction
      * and the viewing direction to values consistent with the
@@ -176,7 +321,7 @@ public class StatePlaying extends DefaultState {
                 break;
             case Up: // move forward
                 walk(1);
-                if (isOutside(px,py)) {
+                if (!headless && isOutside(px,py)) {
                     isFinished = true;
                 }
                 break;
@@ -188,7 +333,7 @@ public class StatePlaying extends DefaultState {
                 break;
             case Down: // move backward
                 walk(-1);
-                if (isOutside(px,py)) {
+                if (!headless && isOutside(px,py)) {
                     isFinished = true;
                 }
                 break;
@@ -227,25 +372,123 @@ public class StatePlaying extends DefaultState {
                 notifyViewerRedraw() ; // seems useless but it is necessary to make the screen update
                 break ;
         } // end of internal switch statement for playing state
+        if (Thread.currentThread() == driverThread) {
+            switch (key) {
+                case Up:
+                case Down:
+                case Left:
+                case Right:
+                    pace();
+                    break;
+                default:
+                    break;
+            }
+        }
         return true;
     }
+    /**
+     * Stops drawing, needs to be called when the game is over
+     * to terminate the render thread.
+     */
+    public void stop() {
+        if (null != driverThread)
+            driverThread.interrupt();
+        if (null == renderThread)
+            return;
+        renderThread.shutdown();
+        renderThread = null;
+        if (null != firstPersonView)
+            firstPersonView.shutdown();
+    }
+    /**
+     * Switches statistics for frames of the first person view on or off.
+     * @param enabled true to collect statistics, false otherwise
+     */
+    public void setRenderStatsEnabled(boolean enabled) {
+        renderStatsEnabled = enabled;
+        if (null != firstPersonView)
+            firstPersonView.setStatsEnabled(enabled);
+    }
+    /**
+     * Gives the statistics of the last frame of the first person view.
+     * @return statistics, null if disabled or not available yet
+     */
+    public RenderStats getRenderStats() {
+        return (null == firstPersonView) ? null : firstPersonView.getLastFrameStats();
+    }
+    /**
+     * Gives the render thread, e.g. to read its frame counts.
+     * @return render thread, null if there is no panel or the game is stopped
+     */
+    public RenderThread getRenderThread() {
+        return renderThread;
+    }
+    /**
+     * Posts a snapshot of the current view and the map settings to the render thread.
+     * Returns without waiting for the frame to be drawn, the render thread
+     * shows consecutive snapshots one frame period apart.
+     * Nothing is drawn once the game is stopped.
+     */
     protected void notifyViewerRedraw() {
+        if (headless)
+            return;
         if (panel == null) {
             printWarning();
             return;
         }
+        RenderThread t = renderThread;
+        if (null == t)
+            return; // stopped, the render thread may still finish its last frame
+        BasicRobot r = robot;
+        ViewState state = new ViewState(px, py, viewdx, viewdy, walkStep, angle,
+                (null == r) ? -1 : r.getBatteryLevel(), (null == r) ? -1 : r.getOdometerReading(),
+                mapMode, showMaze, showSolution, mapView.getMapScale()) ;
+        t.post(state) ;
+    }
+    /**
+     * Draws the first person view and the map for the given snapshot
+     * on the panel and updates the screen. Called on the render thread.
+     */
+    private void drawFrame(ViewState s) {
         MazePanel g = panel ;
         // viewers draw on the buffer graphics
         if (null == g) {
             System.out.println("Maze.notifierViewerRedraw: can't get graphics object to draw on, skipping redraw operation") ;
+            return;
         }
-        else {
-            firstPersonView.redraw(g, StateGUI.STATE_PLAY, px, py, viewdx, viewdy, walkStep, Constants.VIEW_OFFSET, rset, angle) ;
-            mapView.redraw(g, StateGUI.STATE_PLAY, px, py, viewdx, viewdy, walkStep, Constants.VIEW_OFFSET, rset, angle) ;
-        }
+        if (waitingForBsp && null != mazeConfig.getRootnode())
+            switchToFirstPersonDrawer();
+        firstPersonView.redraw(g, StateGUI.STATE_PLAY, s.px, s.py, s.viewdx, s.viewdy, s.walkStep, Constants.VIEW_OFFSET, rset, s.angle) ;
+        mapView.redraw(g, StateGUI.STATE_PLAY, s) ;
 
-        // update the screen with the buffer graphics
-        panel.update() ;
+        // update the screen with the buffer graphics, may be called from any thread
+        g.postInvalidate() ;
+        FrameListener l = frameListener;
+        if (null != l)
+            l.onFrame(s);
+    }
+    /**
+     * Creates the renderer that works with the tree of BSP nodes of the maze.
+     */
+    private FirstPersonDrawer createFirstPersonDrawer() {
+        FirstPersonDrawer drawer = new FirstPersonDrawer(Constants.VIEW_WIDTH,Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
+                Constants.STEP_SIZE, seencells, mazeConfig.getRootnode()) ;
+        drawer.setStripCount(Constants.FIRST_PERSON_STRIPS);
+        return drawer;
+    }
+    /**
+     * Replaces the raycasting renderer that stood in for the BSP renderer
+     * once the tree of BSP nodes has been delivered. Walls seen so far stay
+     * on the map as both renderers share the seencells.
+     */
+    private void switchToFirstPersonDrawer() {
+        FirstPersonView previous = firstPersonView;
+        FirstPersonDrawer drawer = createFirstPersonDrawer();
+        drawer.setStatsEnabled(renderStatsEnabled);
+        firstPersonView = drawer;
+        waitingForBsp = false;
+        previous.shutdown();
+        dbg("BSP tree is ready, switched to FirstPersonDrawer");
     }
     /**
      * Notify all registered viewers to increment the map scale
@@ -291,6 +534,25 @@ public class StatePlaying extends DefaultState {
         dx = x ;
         dy = y ;
     }
+    /**
+     * Puts the player at the given position and direction right away,
+     * without intermediate views, e.g. for a RobotTracePlayer that seeks to a step.
+     * @param x position, may be just outside the maze after leaving it
+     * @param y position
+     * @param cd direction
+     */
+    public synchronized void setPositionDirection(int x, int y, CardinalDirection cd) {
+        int[] dir = cd.getDirection();
+        setCurrentPosition(x, y);
+        setCurrentDirection(dir[0], dir[1]);
+        // angle matches with the direction as in rotate, east == 0 degrees
+        angle = (int) Math.round(Math.toDegrees(Math.atan2(dy, dx)));
+        angle = (angle + 360) % 360;
+        viewdx = dx<<16;
+        viewdy = dy<<16;
+        walkStep = 0;
+        notifyViewerRedraw();
+    }
     ////////////////////////////// get methods ///////////////////////////////////////////////////////////////
     protected int[] getCurrentPosition() {
         int[] result = new int[2];
@@ -298,6 +560,19 @@ public class StatePlaying extends DefaultState {
         result[1] = py;
         return result;
     }
+    /**
+     * Gives the x coordinate of the current position without allocating
+     * an array like getCurrentPosition, e.g. for every sensor reading of a robot.
+     */
+    protected int getCurrentPositionX() {
+        return px;
+    }
+    /**
+     * Gives the y coordinate of the current position, see getCurrentPositionX.
+     */
+    protected int getCurrentPositionY() {
+        return py;
+    }
     protected CardinalDirection getCurrentDirection() {
         return CardinalDirection.getDirection(dx, dy);
     }
@@ -337,25 +612,13 @@ public class StatePlaying extends DefaultState {
         return !mazeConfig.hasWall(px, py, cd);
     }
     /**
-     * Redraw and wait, used to obtain a smooth appearance for rotate and move operations
-     */
-    private void slowedDownRedraw() {
-        notifyViewerRedraw() ;
-        try {
-            Thread.sleep(25);
-        } catch (Exception e) {
-            // may happen if thread is interrupted
-            // no reason to do anything about it, ignore exception
-        }
-    }
-    /**
-     * Intermediate step during rotation, updates the screen
+     * Intermediate step during rotation, posts a view of it to the render thread
      */
     private void rotateStep() {
         angle = (angle+1800) % 360;
         viewdx = (int) (Math.cos(radify(angle))*(1<<16));
         viewdy = (int) (Math.sin(radify(angle))*(1<<16));
-        slowedDownRedraw();
+        notifyViewerRedraw();
     }
     /**
      * Performs a rotation with 4 intermediate views,
@@ -366,11 +629,14 @@ public class StatePlaying extends DefaultState {
         final int originalAngle = angle;
         final int steps = 4;
 
+        // a robot that is watched faster than Normal only shows the final view
+        final boolean intermediate = (Constants.Playback.Normal == playback || Thread.currentThread() != driverThread);
         for (int i = 0; i != steps; i++) {
             // add 1/4 of 90 degrees per step
             // if dir is -1 then subtract instead of addition
             angle = originalAngle + dir*(90*(i+1))/steps;
-            rotateStep();
+            if (intermediate || i == steps-1)
+                rotateStep();
         }
         setCurrentDirection((int) Math.cos(radify(angle)), (int) Math.sin(radify(angle))) ;
         logPosition(); // debugging
@@ -385,14 +651,22 @@ public class StatePlaying extends DefaultState {
             return;
         // walkStep is a parameter of the redraw method in FirstPersonDrawer
         // it is used there for scaling steps
-        // so walkStep is implicitly used in slowedDownRedraw which triggers the redraw
-        // operation on all listed viewers
-        for (int step = 0; step != 4; step++) {
-            walkStep += dir;
-            slowedDownRedraw();
+        // so walkStep is part of the snapshot that notifyViewerRedraw posts
+        // to the render thread, which shows the snapshots one frame period apart
+        if (Constants.Playback.Normal == playback || Thread.currentThread() != driverThread) {
+            for (int step = 0; step != 4; step++) {
+                walkStep += dir;
+                notifyViewerRedraw();
+            }
+            setCurrentPosition(px + dir*dx, py + dir*dy) ;
+            walkStep = 0; // reset counter for next time
+        }
+        else {
+            // a robot that is watched faster than Normal only shows the final view
+            setCurrentPosition(px + dir*dx, py + dir*dy) ;
+            walkStep = 0;
+            notifyViewerRedraw();
         }
-        setCurrentPosition(px + dir*dx, py + dir*dy) ;
-        walkStep = 0; // reset counter for next time
         logPosition(); // debugging
     }
 
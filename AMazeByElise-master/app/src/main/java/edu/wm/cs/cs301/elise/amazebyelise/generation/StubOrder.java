@@ -11,8 +11,36 @@ public class StubOrder implements Order {
     private Builder whichAlgorithm;
     private int skillLevel;
     private boolean isPerfect;
-    private MazeConfiguration mazeConfig;
-    int percentage;
+    private Renderer renderer;
+    private Partition partition;
+    private volatile MazeConfiguration mazeConfig; // set on the builder thread
+    private volatile boolean delivered;
+    volatile int percentage;
+    private volatile Listener listener; // told about progress and delivery, null if none
+
+    /**
+     * Receives the events of an order as they happen, so a user interface
+     * does not need to poll getProgress and isPlayable.
+     * Methods are called on the thread of the maze builder, an implementation
+     * that updates views needs to hand the event over to the UI thread.
+     */
+    public interface Listener {
+        /**
+         * Called when the percentage of job completion changes.
+         * @param percentage of job completion
+         */
+        void onProgress(int percentage);
+        /**
+         * Called once when the maze can be played.
+         * @param mazeConfig maze that may still lack its tree of BSP nodes
+         */
+        void onPlayable(MazeConfiguration mazeConfig);
+        /**
+         * Called once when the maze is complete.
+         * @param mazeConfig maze
+         */
+        void onDelivered(MazeConfiguration mazeConfig);
+    }
 
     /**
      * Data container which communicates input parameters such as
@@ -23,9 +51,37 @@ public class StubOrder implements Order {
      * @param isPerfect
      */
     public StubOrder(Builder whichAlgorithm, int skillLevel, boolean isPerfect) {
+        this(whichAlgorithm, skillLevel, isPerfect, Renderer.BSP);
+    }
+
+    /**
+     * Data container as above that also tells which renderer is going
+     * to draw the first person view of the maze
+     * @param whichAlgorithm
+     * @param skillLevel
+     * @param isPerfect
+     * @param renderer
+     */
+    public StubOrder(Builder whichAlgorithm, int skillLevel, boolean isPerfect, Renderer renderer) {
+        this(whichAlgorithm, skillLevel, isPerfect, renderer, Partition.Balanced);
+    }
+
+    /**
+     * Data container as above that also tells which heuristic to use
+     * for the partitions of the tree of BSP nodes
+     * @param whichAlgorithm
+     * @param skillLevel
+     * @param isPerfect
+     * @param renderer
+     * @param partition
+     */
+    public StubOrder(Builder whichAlgorithm, int skillLevel, boolean isPerfect, Renderer renderer,
+                     Partition partition) {
         this.whichAlgorithm = whichAlgorithm;
         this.skillLevel = skillLevel;
         this.isPerfect = isPerfect;
+        this.renderer = renderer;
+        this.partition = partition;
     }
 
     @Override
@@ -45,6 +101,22 @@ public class StubOrder implements Order {
         return whichAlgorithm;
     }
 
+    @Override
+    /**
+     * Gives the requested renderer for the first person view.
+     */
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    @Override
+    /**
+     * Gives the requested heuristic for partitions of the tree of BSP nodes.
+     */
+    public Partition getPartition() {
+        return partition;
+    }
+
     @Override
     /**
      * Describes if the ordered maze should be perfect, i.e. there are
@@ -63,8 +135,77 @@ public class StubOrder implements Order {
      * @param the maze
      */
     public void deliver(MazeConfiguration mazeConfig) {
-        this.mazeConfig = mazeConfig;
+        Listener l;
+        boolean playable;
+        synchronized (this) {
+            playable = isPlayable();
+            this.mazeConfig = mazeConfig;
+            delivered = true;
+            l = listener;
+        }
+        if (null != l) {
+            // a maze that comes complete right away is playable as well
+            if (!playable)
+                l.onPlayable(mazeConfig);
+            l.onDelivered(mazeConfig);
+        }
+    }
+
+    @Override
+    /**
+     * Receives the maze as soon as it can be played,
+     * the tree of BSP nodes may still be missing.
+     * @param the maze
+     */
+    public void deliverPlayable(MazeConfiguration mazeConfig) {
+        Listener l;
+        synchronized (this) {
+            this.mazeConfig = mazeConfig;
+            l = listener;
+        }
+        if (null != l)
+            l.onPlayable(mazeConfig);
+    }
+
+    /**
+     * Sets the listener for events of this order. If the order has made
+     * progress or has been delivered already, the listener is told right away,
+     * so it does not matter if it is set before or after the order is placed.
+     * @param listener to tell about events, null to stop telling
+     */
+    public void setListener(Listener listener) {
+        boolean playable;
+        boolean complete;
+        synchronized (this) {
+            this.listener = listener;
+            playable = isPlayable();
+            complete = delivered;
+        }
+        if (null == listener)
+            return;
+        if (percentage > 0)
+            listener.onProgress(percentage);
+        if (playable)
+            listener.onPlayable(mazeConfig);
+        if (complete)
+            listener.onDelivered(mazeConfig);
+    }
 
+    /**
+     * Tells if the maze can be played, i.e. getMazeConfiguration gives a maze.
+     * @return true if the maze has been delivered in a playable or complete state
+     */
+    public boolean isPlayable() {
+        return null != mazeConfig;
+    }
+
+    /**
+     * Tells if the maze is complete including its tree of BSP nodes
+     * if the renderer needs one.
+     * @return true if the maze has been delivered completely
+     */
+    public boolean isDelivered() {
+        return delivered;
     }
 
     /**
@@ -86,7 +227,12 @@ public class StubOrder implements Order {
      * @param current percentage of job completion
      */
     public void updateProgress(int percentage) {
+        if (percentage == this.percentage)
+            return;
         this.percentage = percentage;
+        Listener l = listener;
+        if (null != l)
+            l.onProgress(percentage);
     }
 
     @Override
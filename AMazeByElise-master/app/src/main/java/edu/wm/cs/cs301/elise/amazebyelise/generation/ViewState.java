@@ -0,0 +1,98 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+/**
+ * Immutable snapshot of everything the first person view and the map view
+ * need to know about the current point of view and the map settings to draw a frame.
+ * The game logic creates a new snapshot for each intermediate view of a
+ * move or rotation and hands it over to the RenderThread, so the game logic
+ * can go on changing its own state while the frame is drawn.
+ */
+public final class ViewState {
+    final int px, py; // position on maze grid (x,y)
+    final int viewdx, viewdy; // view direction, scaled by 2^16
+    final int walkStep; // intermediate step within a single step forward or backward
+    final int angle; // viewing angle, east == 0 degrees
+    final float batteryLevel; // of the robot that operates the game, -1 if none
+    final int odometerReading; // of the robot that operates the game, -1 if none
+    final boolean mapMode; // true if the map is on display
+    final boolean showMaze; // true if the map shows walls that have not been seen
+    final boolean showSolution; // true if the map shows the path to the exit
+    final int mapScale; // pixels per cell on the map
+
+    /**
+     * Constructor
+     * @param px position, x coordinate
+     * @param py position, y coordinate
+     * @param viewdx view direction, x component scaled by 2^16
+     * @param viewdy view direction, y component scaled by 2^16
+     * @param walkStep intermediate step within a single step forward or backward
+     * @param angle viewing angle in degrees
+     */
+    public ViewState(int px, int py, int viewdx, int viewdy, int walkStep, int angle) {
+        this(px, py, viewdx, viewdy, walkStep, angle, -1, -1, false, false, false, 1);
+    }
+
+    /**
+     * Constructor for a snapshot of a game that a robot operates, such that
+     * a display of energy and path length can match the frame on the screen.
+     * @param px position, x coordinate
+     * @param py position, y coordinate
+     * @param viewdx view direction, x component scaled by 2^16
+     * @param viewdy view direction, y component scaled by 2^16
+     * @param walkStep intermediate step within a single step forward or backward
+     * @param angle viewing angle in degrees
+     * @param batteryLevel of the robot
+     * @param odometerReading of the robot
+     */
+    public ViewState(int px, int py, int viewdx, int viewdy, int walkStep, int angle,
+                     float batteryLevel, int odometerReading) {
+        this(px, py, viewdx, viewdy, walkStep, angle, batteryLevel, odometerReading, false, false, false, 1);
+    }
+
+    /**
+     * Constructor for a snapshot with the settings of the map,
+     * which the user changes while frames are drawn on the render thread.
+     * @param px position, x coordinate
+     * @param py position, y coordinate
+     * @param viewdx view direction, x component scaled by 2^16
+     * @param viewdy view direction, y component scaled by 2^16
+     * @param walkStep intermediate step within a single step forward or backward
+     * @param angle viewing angle in degrees
+     * @param batteryLevel of the robot, -1 if none
+     * @param odometerReading of the robot, -1 if none
+     * @param mapMode true if the map is on display
+     * @param showMaze true if the map shows walls that have not been seen
+     * @param showSolution true if the map shows the path to the exit
+     * @param mapScale pixels per cell on the map
+     */
+    public ViewState(int px, int py, int viewdx, int viewdy, int walkStep, int angle,
+                     float batteryLevel, int odometerReading,
+                     boolean mapMode, boolean showMaze, boolean showSolution, int mapScale) {
+        this.batteryLevel = batteryLevel;
+        this.odometerReading = odometerReading;
+        this.mapMode = mapMode;
+        this.showMaze = showMaze;
+        this.showSolution = showSolution;
+        this.mapScale = mapScale;
+        this.px = px;
+        this.py = py;
+        this.viewdx = viewdx;
+        this.viewdy = viewdy;
+        this.walkStep = walkStep;
+        this.angle = angle;
+    }
+
+    /**
+     * @return battery level of the robot at the time of the snapshot, -1 if there is no robot
+     */
+    public float getBatteryLevel() {
+        return batteryLevel;
+    }
+
+    /**
+     * @return path length of the robot at the time of the snapshot, -1 if there is no robot
+     */
+    public int getOdometerReading() {
+        return odometerReading;
+    }
+}
@@ -0,0 +1,168 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import edu.wm.cs.cs301.elise.amazebyelise.generation.Distance;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.Robot.Turn;
+
+/**
+ * Class: Wizard
+ *
+ * Responsibilities: Use a basic robot to drive to the exit of the maze on a shortest path.
+ * The wizard knows the distance to the exit for every cell and asks the maze for the
+ * neighbor that is closer to the exit, so it needs no distance sensors. Cells on the path
+ * that lie on a straight line are covered with a single call to move, so the robot
+ * rotates only where the path bends.
+ *
+ * Collaborators: RobotDriver.java (which Wizard implements),
+ * BasicRobot.java (which contains functionality for the robot driver),
+ * Distance.java and MazeConfiguration.java (which tell the way to the exit)
+ *
+ * @author Elise
+ */
+public class Wizard implements RobotDriver {
+
+    private BasicRobot robot;
+    private Distance distance;
+
+    /**
+     * Empty constructor with no parameters.
+     * Need to call setRobot(Robot r) and setDistance(Distance d) in order to
+     * give the Wizard a robot and a way to the exit to work with!
+     */
+    public Wizard() {
+
+    }
+
+    /**
+     * Assigns a robot platform to the driver.
+     * The driver uses a robot to perform, this method provides it with this necessary information.
+     * @param r robot to operate
+     */
+    @Override
+    public void setRobot(Robot r) {
+        robot = (BasicRobot) r;
+    }
+
+    /**
+     * Provides the robot driver with information on the dimensions of the 2D maze
+     * measured in the number of cells in each direction.
+     * @param width of the maze
+     * @param height of the maze
+     * @precondition 0 <= width, 0 <= height of the maze.
+     */
+    @Override
+    public void setDimensions(int width, int height) {
+        // Method not needed for Wizard, the maze configuration knows its dimensions
+    }
+
+    /**
+     * Provides the robot driver with information on the distance to the exit.
+     * Only some drivers such as the wizard rely on this information to find the exit.
+     * @param distance gives the length of path from current position to the exit.
+     * @precondition null != distance, a full functional distance object for the current maze.
+     */
+    @Override
+    public void setDistance(Distance distance) {
+        this.distance = distance;
+    }
+
+    /**
+     * Drives the robot towards the exit given it exists and
+     * given the robot's energy supply lasts long enough.
+     * @return true if driver successfully reaches the exit, false otherwise
+     */
+    @Override
+    public boolean drive2Exit() throws Exception {
+
+        // a robot and distances must exist for the Wizard to work
+        if (robot == null) {
+            throw new Exception("No robot to work with!");
+        }
+        if (distance == null) {
+            throw new Exception("No distance to work with!");
+        }
+        MazeConfiguration mazeConfig = robot.getMazeConfiguration();
+        // also works for distances loaded from a file
+        final int[] exit = distance.getExitPosition();
+
+        // loop that drives the robot along the shortest path, one straight line at a time
+        while (!robot.isAtExit() && !robot.hasStopped()) {
+            int[] pos = robot.getCurrentPosition();
+            int[] next = mazeConfig.getNeighborCloserToExit(pos[0], pos[1]);
+            if (next == null) {
+                return false; // no way to the exit, distances do not match the maze
+            }
+            final int dx = next[0] - pos[0];
+            final int dy = next[1] - pos[1];
+            // follow the path as long as it goes straight
+            int steps = 1;
+            int x = next[0];
+            int y = next[1];
+            while (x != exit[0] || y != exit[1]) {
+                next = mazeConfig.getNeighborCloserToExit(x, y);
+                if (next == null || next[0] - x != dx || next[1] - y != dy) {
+                    break;
+                }
+                steps++;
+                x = next[0];
+                y = next[1];
+            }
+            turnTo(CardinalDirection.getDirection(dx, dy));
+            robot.move(steps, false);
+        }
+
+        // if the robot is at the exit position, move the robot through the exit
+        if (robot.isAtExit() && !robot.hasStopped()) {
+            int[] pos = robot.getCurrentPosition();
+            for (CardinalDirection cd : CardinalDirection.values()) {
+                int[] dir = cd.getDirection();
+                if (!mazeConfig.hasWall(pos[0], pos[1], cd) && !mazeConfig.isValidPosition(pos[0]+dir[0], pos[1]+dir[1])) {
+                    turnTo(cd);
+                    robot.move(1, false);
+                    return !robot.hasStopped(); // true, we got to the exit in the end!
+                }
+            }
+        }
+        return false; // false, we were not able to get to the exit after all
+    }
+
+    /**
+     * Rotates the robot such that it faces the given direction
+     * with the least number of turns.
+     * @param cd direction to face
+     */
+    private void turnTo(CardinalDirection cd) {
+        CardinalDirection current = robot.getCurrentDirection();
+        if (cd == current) {
+            return;
+        }
+        if (cd == robot.getAdjustedDirection(current, Robot.Direction.LEFT)) {
+            robot.rotate(Turn.LEFT);
+        } else if (cd == robot.getAdjustedDirection(current, Robot.Direction.RIGHT)) {
+            robot.rotate(Turn.RIGHT);
+        } else {
+            robot.rotate(Turn.AROUND);
+        }
+    }
+
+    /**
+     * Returns the total energy consumption of the journey, i.e.,
+     * the difference between the robot's initial energy level at
+     * the starting position and its energy level at the exit position.
+     * This is used as a measure of efficiency for a robot driver.
+     */
+    @Override
+    public float getEnergyConsumption() {
+        return (robot.INIT_ENERGY_LEVEL - robot.getBatteryLevel());
+    }
+
+    /**
+     * Returns the total length of the journey in number of cells traversed.
+     * Being at the initial position counts as 0.
+     * This is used as a measure of efficiency for a robot driver.
+     */
+    @Override
+    public int getPathLength() {
+        return robot.getOdometerReading();
+    }
+
+}
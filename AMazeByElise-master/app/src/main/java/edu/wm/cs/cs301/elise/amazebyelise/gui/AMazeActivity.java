@@ -24,7 +24,7 @@ import edu.wm.cs.cs301.elise.amazebyelise.R;
  *
  * Responsibilities:
  * (1) Serves as the main menu screen for users when they open the app,
- * (2) Allows users to pick a skill level, maze builder, and robot driver,
+ * (2) Allows users to pick a skill level, maze builder, robot driver and renderer,
  * (3) Passes information about users' maze to the GeneratingActivity.
  *
  * Collaborators: GeneratingActivity (which receives information from MazeActivity).
@@ -35,6 +35,7 @@ public class AMazeActivity extends AppCompatActivity {
     public static MediaPlayer music;
     private String builder = "DFS";
     private String driver = "Manual";
+    private String renderer = "BSP";
     private int skillLevel = 0;
 
     /**
@@ -144,6 +145,37 @@ public class AMazeActivity extends AppCompatActivity {
             }
         });
 
+        Spinner spinner_for_renderer = findViewById(R.id.spinner_renderer);
+        // Create an ArrayAdapter using the string array and a default spinner layout
+        ArrayAdapter<CharSequence> adapter_for_renderer = ArrayAdapter.createFromResource(this, R.array.renderers, android.R.layout.simple_spinner_dropdown_item);
+        // Specify the layout to use when the list of choices appears
+        adapter_for_renderer.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        // Apply the adapter to the spinner
+        spinner_for_renderer.setAdapter(adapter_for_renderer);
+        spinner_for_renderer.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            /**
+             * User selects how the first person view is drawn from a drop down menu.
+             * Raycast skips building the BSP tree, so large mazes are ready sooner.
+             * Inform the user of his/her choice with a toast.
+             * @param parent
+             * @param view
+             * @param position
+             * @param id
+             */
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                Vibrator vibe = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
+                vibe.vibrate(100);
+                renderer = parent.getItemAtPosition(position).toString();
+                Log.v("Renderer", "A renderer has been selected");
+                Toast.makeText(getBaseContext(), "Renderer: " + parent.getItemAtPosition(position), Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
         final Button button = findViewById(R.id.enter_button);
         button.setOnClickListener(new View.OnClickListener() {
             /**
@@ -163,6 +195,7 @@ public class AMazeActivity extends AppCompatActivity {
                     i.putExtra("Driver", driver);
                     i.putExtra("Builder", builder);
                     i.putExtra("Skill Level", skillLevel);
+                    i.putExtra("Renderer", renderer);
                     startActivity(i);
                 }
             }
@@ -14,6 +14,8 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.util.Random;
+
 import edu.wm.cs.cs301.elise.amazebyelise.R;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.BasicRobot;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.Controller;
@@ -23,7 +25,6 @@ import edu.wm.cs.cs301.elise.amazebyelise.generation.MazeFactory;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.MazePanel;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.Order;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.StubOrder;
-import edu.wm.cs.cs301.elise.amazebyelise.generation.WallFollower;
 
 /**
  * Class: GeneratingActivity.
@@ -42,18 +43,22 @@ import edu.wm.cs.cs301.elise.amazebyelise.generation.WallFollower;
  */
 public class GeneratingActivity extends AppCompatActivity {
 
-    private int curProgress = 0;
+    // shortest time between two updates of the progress bar in milliseconds
+    private static final long PROGRESS_INTERVAL = 50;
+    private volatile int curProgress = 0;
+    private volatile boolean progressPosted; // true while an update of the progress bar is pending
+    private boolean proceeded; // true once the next activity has been started, UI thread only
     private Handler handler = new Handler();
     public static String driver;
     public static String builder;
     public static int skillLevel;
+    public static Order.Renderer renderer = Order.Renderer.BSP;
     public static Boolean robotExists = false;
     public static Boolean driverExists = false;
     public volatile boolean isStopped = false;
     private MazeFactory mazeFactory;
     private StubOrder stubOrder;
-    public static MazeConfiguration mazeConfig;
-    public static WallFollower wallFollower;
+    private int seed; // seed the maze is generated with
 
     /**
      * Sets up the layout for GeneratingActivity.
@@ -80,6 +85,7 @@ public class GeneratingActivity extends AppCompatActivity {
                 Vibrator vibe = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
                 vibe.vibrate(100);
                 isStopped = true;
+                stubOrder.setListener(null);
                 if(AMazeActivity.music != null)
                 {
                     try{
@@ -104,20 +110,24 @@ public class GeneratingActivity extends AppCompatActivity {
             builder = extras.getString("Builder");
             driver = extras.getString("Driver");
             skillLevel = extras.getInt("Skill Level");
+            renderer = "Raycast".equalsIgnoreCase(extras.getString("Renderer")) ?
+                    Order.Renderer.Raycast : Order.Renderer.BSP;
         }
     }
 
     private void generateMaze() {
-        mazeFactory = new MazeFactory();
+        // a random seed, which makes the maze reproducible such that it can be saved as its seed
+        seed = new Random().nextInt();
+        mazeFactory = new MazeFactory(seed);
 
         if (builder.equalsIgnoreCase("Prim")) {
-            stubOrder = new StubOrder(Order.Builder.Prim, skillLevel, false);
+            stubOrder = new StubOrder(Order.Builder.Prim, skillLevel, false, renderer);
             Log.v("GeneratingActivity", "Creating maze using Prim's algorithm");
         } else if (builder.equalsIgnoreCase("Kruskal")) {
-            stubOrder = new StubOrder(Order.Builder.Kruskal, skillLevel, false);
+            stubOrder = new StubOrder(Order.Builder.Kruskal, skillLevel, false, renderer);
             Log.v("GeneratingActivity", "Creating maze using Kruskal's algorithm");
         } else {
-            stubOrder = new StubOrder(Order.Builder.DFS, skillLevel, false);
+            stubOrder = new StubOrder(Order.Builder.DFS, skillLevel, false, renderer);
             Log.v("GeneratingActivity", "Creating maze using Default algorithm");
         }
 
@@ -131,31 +141,51 @@ public class GeneratingActivity extends AppCompatActivity {
         // Initiate progress bar and start button
         final ProgressBar progress_bar = findViewById(R.id.progress_bar);
         final TextView view_progress = findViewById(R.id.textView);
-        // Start long running operation in a background thread
-        new Thread(new Runnable() {
+        // the order tells about progress and delivery on the builder thread,
+        // views are updated on the UI thread through the handler
+        final Runnable showProgress = new Runnable() {
             public void run() {
-                Log.v("Progress bar", "Updating progress");
-                while (curProgress < 100 && !isStopped) {
-                    curProgress = stubOrder.getProgress();
-                    // Update the progress bar and display the current value in the text view
-                    handler.post(new Runnable() {
-                        public void run() {
-                            progress_bar.setProgress(curProgress);
-                            view_progress.setText(curProgress + "/" + progress_bar.getMax());
-                        }
-                    });
-                    try {
-                        // Sleep for 1000 milliseconds.
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+                progressPosted = false;
+                // shows the latest value, updates in between are skipped
+                progress_bar.setProgress(curProgress);
+                view_progress.setText(curProgress + "/" + progress_bar.getMax());
+            }
+        };
+        Log.v("Progress bar", "Updating progress");
+        stubOrder.setListener(new StubOrder.Listener() {
+            @Override
+            public void onProgress(int percentage) {
+                curProgress = percentage;
+                if (!progressPosted) {
+                    progressPosted = true;
+                    handler.postDelayed(showProgress, PROGRESS_INTERVAL);
                 }
-                mazeFactory.waitTillDelivered();
-                mazeConfig = stubOrder.getMazeConfiguration();
-                proceedToNextActivity();
             }
-        }).start();
+
+            @Override
+            public void onPlayable(final MazeConfiguration config) {
+                // the maze can be played as soon as cells and distances are complete,
+                // the tree of BSP nodes keeps growing in the background while the game starts
+                handler.post(new Runnable() {
+                    public void run() {
+                        if (proceeded)
+                            return; // told twice
+                        if (isStopped)
+                            return; // back pressed after the event was posted, stay in the menu
+                        proceeded = true;
+                        // the session keeps the maze for the play activities
+                        MazeSession.get(GeneratingActivity.this).set(config, stubOrder, seed);
+                        handler.removeCallbacks(showProgress);
+                        proceedToNextActivity();
+                    }
+                });
+            }
+
+            @Override
+            public void onDelivered(MazeConfiguration config) {
+                // nothing to do, the game is running already
+            }
+        });
     }
 
     private void proceedToNextActivity() {
@@ -183,6 +213,7 @@ public class GeneratingActivity extends AppCompatActivity {
     @Override
     public void onBackPressed() {
         isStopped = true;
+        stubOrder.setListener(null);
         if(AMazeActivity.music != null)
         {
             try{
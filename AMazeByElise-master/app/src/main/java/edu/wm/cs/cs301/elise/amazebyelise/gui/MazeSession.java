@@ -0,0 +1,319 @@
+package edu.wm.cs.cs301.elise.amazebyelise.gui;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wm.cs.cs301.elise.amazebyelise.generation.MazeConfiguration;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.MazeSnapshot;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.Order;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.SavedMaze;
+
+/**
+ * Class: MazeSession.
+ *
+ * Responsibilities:
+ * (1) Hold the maze of the current game for the activities that play it,
+ * (2) Give up memory while no activity plays the maze and the system asks for memory with
+ * onTrimMemory: the maze goes into a compressed MazeSnapshot in memory and, if the app is
+ * in the background, into a file in the cache directory,
+ * (3) Restore the maze when an activity plays it again,
+ * (4) Keep the maze of the current game as a SavedMaze, which holds just its seed
+ * and the fingerprint of its cells, and generate the maze again from it if the
+ * system deleted the cache file, which it may do for an app in the background.
+ *
+ * GeneratingActivity sets the maze, PlayManuallyActivity and PlayAnimationActivity
+ * call acquire when they start playing and release when they go away.
+ * Compressing and restoring take a few hundred milliseconds for a large maze, so they
+ * run one at a time on a worker thread and never hold the lock of the session while
+ * they work, which keeps the UI thread from waiting for them.
+ *
+ * Collaborators: MazeSnapshot (which compresses a maze), SavedMaze (which generates
+ * a maze again), GeneratingActivity,
+ * PlayManuallyActivity, PlayAnimationActivity.
+ *
+ * @author Elise
+ */
+public class MazeSession implements ComponentCallbacks2 {
+
+    private static MazeSession instance;
+
+    private final File cacheFile; // where a maze goes when the app is in the background
+    // compresses and restores the maze, one task at a time such that the cache file has one writer
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper()); // delivers restored mazes
+    private MazeConfiguration mazeConfig; // maze on the heap, null if compressed
+    private byte[] snapshot; // compressed maze in memory, null if on the heap or in the file
+    private boolean inFile; // true if the maze is only in the cache file
+    private Order.Renderer renderer; // draws the maze, the BSP renderer needs a tree of BSP nodes
+    private int users; // number of activities that play the maze
+    private int version; // counts calls of set, tells a task on the worker that its maze was replaced
+    private byte[] saved; // maze as a SavedMaze, a few bytes
+
+    /**
+     * Receives the maze of acquire on the UI thread.
+     */
+    public interface Callback {
+        /**
+         * Called once the maze is on the heap.
+         * @param mazeConfig maze to play, null if there is none
+         */
+        void onMaze(MazeConfiguration mazeConfig);
+    }
+
+    private MazeSession(Context context) {
+        cacheFile = new File(context.getCacheDir(), "maze.snapshot");
+    }
+
+    /**
+     * Gives the session of the app, registers it for onTrimMemory on first use.
+     * @param context any context of the app
+     * @return the session
+     */
+    public static synchronized MazeSession get(Context context) {
+        if (null == instance) {
+            Context app = context.getApplicationContext();
+            instance = new MazeSession(app);
+            app.registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Sets the maze of a new game, replaces the previous one.
+     * The maze may still lack its tree of BSP nodes, a maze that is restored
+     * from a snapshot gets its tree again if the order asks for one.
+     * @param mazeConfig maze to play
+     * @param order the maze was generated for
+     * @param seed the maze was generated with
+     */
+    public synchronized void set(MazeConfiguration mazeConfig, Order order, int seed) {
+        this.mazeConfig = mazeConfig;
+        renderer = order.getRenderer();
+        saved = SavedMaze.write(order, seed, mazeConfig, false);
+        snapshot = null;
+        inFile = false;
+        version++;
+        cacheFile.delete();
+    }
+
+    /**
+     * Gives the maze to an activity that plays it. The maze stays on the heap
+     * till the last activity that acquired it calls release.
+     * If the maze is on the heap the callback gets it right away, otherwise
+     * the maze is restored on the worker thread and the callback gets it
+     * later on the UI thread.
+     * @param callback receives the maze, null if there is none
+     */
+    public void acquire(final Callback callback) {
+        final MazeConfiguration config;
+        synchronized (this) {
+            users++; // keeps a compression that is under way from dropping the maze
+            config = mazeConfig;
+        }
+        if (null != config) {
+            callback.onMaze(config);
+            return;
+        }
+        worker.execute(new Runnable() {
+            public void run() {
+                final MazeConfiguration restored = restore();
+                handler.post(new Runnable() {
+                    public void run() {
+                        callback.onMaze(restored);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Tells that an activity no longer plays the maze.
+     */
+    public synchronized void release() {
+        if (users > 0)
+            users--;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND)
+            compress(true);
+        else if (level >= TRIM_MEMORY_RUNNING_LOW)
+            compress(false);
+    }
+
+    @Override
+    public void onLowMemory() {
+        compress(true);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // nothing to do
+    }
+
+    /**
+     * Drops the maze from the heap if no activity plays it.
+     * Called on the UI thread, so compressing happens on the worker thread.
+     * @param toFile true to write the compressed maze to the cache file and drop it
+     * from memory as well
+     */
+    private void compress(final boolean toFile) {
+        synchronized (this) {
+            if (users > 0 || (null == mazeConfig && (null == snapshot || !toFile)))
+                return; // in use, or nothing left to give up
+        }
+        worker.execute(new Runnable() {
+            public void run() {
+                compressNow(toFile);
+            }
+        });
+    }
+
+    /**
+     * Compresses the maze on the worker thread. Takes the maze under the lock,
+     * compresses and writes it without the lock and drops it from the heap
+     * afterwards unless an activity acquired it or a new game replaced it
+     * in the meantime.
+     */
+    private void compressNow(boolean toFile) {
+        final MazeConfiguration config;
+        final boolean tree;
+        final int v;
+        byte[] bytes;
+        synchronized (this) {
+            if (users > 0)
+                return; // an activity acquired the maze in the meantime
+            config = mazeConfig;
+            bytes = snapshot;
+            tree = (Order.Renderer.Raycast != renderer);
+            v = version;
+        }
+        if (null != config) {
+            // the tree may still be under construction, so whether it is needed
+            // comes from the order, not from the root node of the maze
+            bytes = MazeSnapshot.write(config, tree);
+        }
+        if (null == bytes)
+            return;
+        final boolean written = toFile && writeFile(bytes);
+        synchronized (this) {
+            if (users > 0 || version != v) {
+                // keep the maze on the heap, a file of a replaced maze is of no use
+                if (written && !inFile)
+                    cacheFile.delete();
+                return;
+            }
+            mazeConfig = null;
+            if (written) {
+                inFile = true;
+                snapshot = null;
+            } else {
+                snapshot = bytes;
+            }
+            Log.v("MazeSession", "Compressed maze" + (inFile ? " to file" : " in memory"));
+        }
+    }
+
+    /**
+     * Restores the maze on the worker thread, reads the file and the snapshot
+     * without holding the lock. If the cache file is gone, the maze is generated
+     * again from its SavedMaze, which takes longer than reading it, up to half
+     * a minute with Kruskal's algorithm. A maze that can not be restored,
+     * e.g. one whose cells do not match the fingerprint of its SavedMaze,
+     * is dropped, so the callback of acquire gets null instead of nothing.
+     * @return maze, null if there is none
+     */
+    private MazeConfiguration restore() {
+        byte[] bytes;
+        final boolean fromFile;
+        final byte[] recipe;
+        final Order.Renderer r;
+        final int v;
+        synchronized (this) {
+            if (null != mazeConfig)
+                return mazeConfig; // restored for another activity or replaced by a new game
+            bytes = snapshot;
+            fromFile = inFile;
+            recipe = saved;
+            r = renderer;
+            v = version;
+        }
+        if (fromFile)
+            bytes = readFile();
+        MazeConfiguration config = null;
+        try {
+            if (null != bytes) {
+                Log.v("MazeSession", "Restoring maze from " + bytes.length + " bytes");
+                config = MazeSnapshot.read(bytes);
+            } else if (fromFile && null != recipe) {
+                Log.v("MazeSession", "Cache file is gone, generating maze again from its seed");
+                config = SavedMaze.read(recipe, r);
+            }
+        } catch (RuntimeException e) {
+            Log.w("MazeSession", "Failed to restore maze: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (version != v)
+                return mazeConfig; // a new game started in the meantime
+            mazeConfig = config;
+            snapshot = null;
+            inFile = false;
+            return mazeConfig;
+        }
+    }
+
+    private boolean writeFile(byte[] bytes) {
+        try {
+            FileOutputStream out = new FileOutputStream(cacheFile);
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+            return true;
+        } catch (IOException e) {
+            // keep the snapshot in memory
+            Log.v("MazeSession", "Failed to write maze: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the compressed maze from the cache file.
+     * @return compressed maze, null if the file can not be read completely
+     */
+    private byte[] readFile() {
+        try {
+            FileInputStream in = new FileInputStream(cacheFile);
+            try {
+                byte[] bytes = new byte[(int) cacheFile.length()];
+                int n = 0;
+                while (n < bytes.length) {
+                    int r = in.read(bytes, n, bytes.length - n);
+                    if (r < 0)
+                        break;
+                    n += r;
+                }
+                return (n == bytes.length) ? bytes : null;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // e.g. the system cleared the cache directory, the saved maze stands in for the file
+            Log.v("MazeSession", "Failed to read maze: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -3,21 +3,28 @@ package edu.wm.cs.cs301.elise.amazebyelise.gui;
 import android.content.Intent;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Handler;
 import android.util.Log;
 import android.view.View;
+import android.widget.Button;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
+import android.widget.ToggleButton;
 
 import edu.wm.cs.cs301.elise.amazebyelise.R;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.Constants;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.MazeConfiguration;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.MazePanel;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.StatePlaying;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.ViewState;
 
 /**
  * Class: PlayAnimationActivity.
  *
  * Responsibilities:
  * (1) Allow the user to watch a robot automatically solve the maze (can start and pause robot),
+ * at a speed the user picks from normal to instant,
  * (2) Allow the user to toggle walls, the map, and the solution, if they want,
  * (3) Allow the user to return to the menu with the back button,
  * (4) Have a shortcut button which takes us directly to the finishing screen (temporary).
@@ -31,24 +38,92 @@ public class PlayAnimationActivity extends AppCompatActivity {
 
     private MazePanel mazepanel;
     private StatePlaying maze;
-    private int energyLevel;
+    private volatile int energyLevel;
+    private volatile int pathLength;
+    private ProgressBar energyBar;
+    private TextView energyText;
+    private Handler handler = new Handler();
+    private boolean robotStarted; // true once the play toggle started the robot
+    private boolean playing; // true once the maze is there and the game has started
+    private boolean destroyed; // true once onDestroy has been called
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_play_animation);
 
-        ProgressBar energyBar = (ProgressBar) findViewById(R.id.energy_progressbar);
-        TextView energyText = (TextView) findViewById(R.id.energy_text);
+        energyBar = (ProgressBar) findViewById(R.id.energy_progressbar);
+        energyText = (TextView) findViewById(R.id.energy_text);
         energyLevel = 2500;
         energyBar.setMax(2500);
         energyBar.setProgress(energyLevel);
+        energyText.setText("Energy: " + energyLevel + "/" + energyBar.getMax());
 
         mazepanel = findViewById(R.id.panel);
         maze = new StatePlaying();
-        maze.setMazeConfiguration(GeneratingActivity.mazeConfig);
-        maze.start(null, mazepanel);
-        mazepanel.update();
+        maze.setRenderer(GeneratingActivity.renderer);
+        // energy and path length follow the frames on the screen, not the driver,
+        // which may be ahead at higher speeds
+        maze.setFrameListener(new StatePlaying.FrameListener() {
+            @Override
+            public void onFrame(ViewState state) {
+                if (state.getBatteryLevel() < 0)
+                    return; // robot not started yet
+                energyLevel = (int) state.getBatteryLevel();
+                pathLength = state.getOdometerReading();
+                handler.post(showEnergy);
+            }
+        });
+        showPlayback();
+        // a compressed maze is restored off the UI thread, the game starts once it is back
+        MazeSession.get(this).acquire(new MazeSession.Callback() {
+            @Override
+            public void onMaze(MazeConfiguration mazeConfig) {
+                if (destroyed)
+                    return; // left before the maze was restored
+                if (null == mazeConfig) {
+                    // the maze is lost, e.g. it could not be generated again from its seed
+                    Log.v("onMaze", "No maze, switching to AMazeActivity");
+                    Toast.makeText(getBaseContext(), "Maze could not be restored", Toast.LENGTH_SHORT).show();
+                    startActivity(new Intent(PlayAnimationActivity.this, AMazeActivity.class));
+                    finish();
+                    return;
+                }
+                maze.setMazeConfiguration(mazeConfig);
+                maze.start(null, mazepanel);
+                mazepanel.update();
+                playing = true;
+                // start runs the robot right away if a driver was selected, the toggle
+                // then shows "Pause Robot" such that the first press pauses it
+                if (maze.isRobotStarted()) {
+                    robotStarted = true;
+                    ((ToggleButton) findViewById(R.id.play_toggle)).setChecked(true);
+                }
+            }
+        });
+    }
+
+    private final Runnable showEnergy = new Runnable() {
+        public void run() {
+            energyBar.setProgress(Math.max(0, energyLevel));
+            energyText.setText("Energy: " + Math.max(0, energyLevel) + "/" + energyBar.getMax());
+        }
+    };
+
+    private void showPlayback() {
+        Button speed = findViewById(R.id.speed_button);
+        speed.setText(getString(R.string.speed, maze.getPlayback().name()));
+    }
+
+    /**
+     * Stops the thread that draws the maze when the activity goes away.
+     */
+    @Override
+    protected void onDestroy() {
+        destroyed = true;
+        maze.stop();
+        MazeSession.get(this).release();
+        super.onDestroy();
     }
 
     /**
@@ -115,20 +190,37 @@ public class PlayAnimationActivity extends AppCompatActivity {
             Toast.makeText(this, "Finished the maze", Toast.LENGTH_SHORT).show();
             Log.v("Activity", "Switching to FinishActivity");
             Intent i = new Intent(PlayAnimationActivity.this, FinishActivity.class);
-            i.putExtra("driver", "WallFollower");
+            i.putExtra("driver", GeneratingActivity.driver);
             // for now, the isWinning boolean value is true
             // this will show the winning screen
             // if it is false, it will show the losing screen
             i.putExtra("isWinning", true);
-            // for now, path length is 0
-            i.putExtra("path length", 0);
-            // for now, energy consumed is 0
-            i.putExtra("energy consumed", 0);
+            // path length and energy as far as the robot got on the screen
+            i.putExtra("path length", pathLength);
+            i.putExtra("energy consumed", 2500 - Math.max(0, energyLevel));
             startActivity(i);
         }
         if (v.getId() == R.id.play_toggle) {
             Log.v("Play Toggle", "User pressed Play Toggle");
             Toast.makeText(this, "Toggle Robot", Toast.LENGTH_SHORT).show();
+            if (!playing) {
+                // no maze to drive through yet, keep the toggle as it was
+                ((ToggleButton) v).setChecked(false);
+            } else if (!robotStarted) {
+                robotStarted = true;
+                maze.startRobot();
+            } else {
+                // the toggle shows "Pause Robot" while the robot is running
+                maze.setPaused(!((ToggleButton) v).isChecked());
+            }
+        }
+        if (v.getId() == R.id.speed_button) {
+            // Normal, Fast, Turbo, Instant and back to Normal
+            Constants.Playback[] speeds = Constants.Playback.values();
+            Constants.Playback next = speeds[(maze.getPlayback().ordinal() + 1) % speeds.length];
+            Log.v("Speed Button", "User selected playback speed " + next);
+            maze.setPlayback(next);
+            showPlayback();
         }
     }
 }
@@ -5,6 +5,7 @@ import android.content.res.AssetFileDescriptor;
 import android.media.MediaPlayer;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Handler;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.View;
@@ -17,11 +18,15 @@ import org.w3c.dom.Text;
 
 import java.io.IOException;
 
+import edu.wm.cs.cs301.elise.amazebyelise.BuildConfig;
 import edu.wm.cs.cs301.elise.amazebyelise.R;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.BasicRobot;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.Constants;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.Controller;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.MazeConfiguration;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.MazePanel;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.RenderStats;
+import edu.wm.cs.cs301.elise.amazebyelise.generation.RenderThread;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.RobotDriver;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.StatePlaying;
 import edu.wm.cs.cs301.elise.amazebyelise.generation.WallFollower;
@@ -49,6 +54,10 @@ public class PlayManuallyActivity extends AppCompatActivity {
     private int energyLevel;
     private ProgressBar energyBar;
     private TextView energyText;
+    private TextView statsOverlay; // shows render statistics in debug builds
+    private boolean destroyed; // true once onDestroy has been called
+    private Handler handler = new Handler();
+    private static final int STATS_UPDATE_INTERVAL = 500; // milliseconds between overlay updates
 
     /**
      * Sets up the layout for PlayManuallyActivity.
@@ -61,9 +70,26 @@ public class PlayManuallyActivity extends AppCompatActivity {
 
         mazepanel = findViewById(R.id.panel);
         maze = new StatePlaying();
-        maze.setMazeConfiguration(GeneratingActivity.mazeConfig);
-        maze.start(null, mazepanel);
-        mazepanel.update();
+        maze.setRenderer(GeneratingActivity.renderer);
+        // a compressed maze is restored off the UI thread, the game starts once it is back
+        MazeSession.get(this).acquire(new MazeSession.Callback() {
+            @Override
+            public void onMaze(MazeConfiguration mazeConfig) {
+                if (destroyed)
+                    return; // left before the maze was restored
+                if (null == mazeConfig) {
+                    // the maze is lost, e.g. it could not be generated again from its seed
+                    Log.v("onMaze", "No maze, switching to AMazeActivity");
+                    Toast.makeText(getBaseContext(), "Maze could not be restored", Toast.LENGTH_SHORT).show();
+                    startActivity(new Intent(PlayManuallyActivity.this, AMazeActivity.class));
+                    finish();
+                    return;
+                }
+                maze.setMazeConfiguration(mazeConfig);
+                maze.start(null, mazepanel);
+                mazepanel.update();
+            }
+        });
 
         energyBar = findViewById(R.id.energy_progressbar);
         energyText = findViewById(R.id.energy_text);
@@ -73,6 +99,44 @@ public class PlayManuallyActivity extends AppCompatActivity {
         energyText.setText("Energy: " + energyLevel + "/" + energyBar.getMax());
 
         pathLength = 0;
+
+        // debug overlay with render statistics
+        statsOverlay = findViewById(R.id.stats_overlay);
+        if (BuildConfig.DEBUG) {
+            maze.setRenderStatsEnabled(true);
+            statsOverlay.setVisibility(View.VISIBLE);
+            handler.post(updateStatsOverlay);
+        }
+    }
+
+    /**
+     * Shows the statistics of the most recent frame in the debug overlay
+     * and schedules the next update.
+     */
+    private final Runnable updateStatsOverlay = new Runnable() {
+        public void run() {
+            RenderStats stats = maze.getRenderStats();
+            RenderThread renderThread = maze.getRenderThread();
+            String text = (null == stats) ? "no frame yet" : stats.toString();
+            if (null != renderThread) {
+                text += "\nframes " + renderThread.getFramesDrawn() + " dropped "
+                        + renderThread.getFramesDropped() + " late " + renderThread.getFramesLate();
+            }
+            statsOverlay.setText(text);
+            handler.postDelayed(this, STATS_UPDATE_INTERVAL);
+        }
+    };
+
+    /**
+     * Stops the thread that draws the maze when the activity goes away.
+     */
+    @Override
+    protected void onDestroy() {
+        destroyed = true;
+        handler.removeCallbacks(updateStatsOverlay);
+        maze.stop();
+        MazeSession.get(this).release();
+        super.onDestroy();
     }
 
     /**
@@ -0,0 +1,103 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.ArrayList;
+
+/**
+ * This class records a sequence of views as StatePlaying produces them
+ * while a player walks through a maze, such that drawing can be replayed
+ * and measured without a user or a robot in the loop.
+ *
+ * Views follow the same rules as StatePlaying.walk and StatePlaying.rotate:
+ * a step forward takes 4 views with walkStep 1 to 4 at the old position,
+ * a rotation by 90 degrees takes 4 views at 1/4, 2/4, 3/4 and 4/4 of the turn,
+ * i.e. the angle changes by 22, 45, 67 and 90 degrees, 22.5 degrees per view rounded down.
+ */
+public class CameraPath {
+    private final ArrayList<ViewState> views = new ArrayList<ViewState>();
+
+    /**
+     * Records views for a walk along the solution from the starting position
+     * to the exit position of the given maze.
+     * @param mazeConfig the maze
+     * @param maxViews upper limit on the number of recorded views, the path ends
+     * in the middle of a move or rotation if the limit is reached there
+     * @return recorded path
+     */
+    public static CameraPath followSolution(MazeConfiguration mazeConfig, int maxViews) {
+        CameraPath path = new CameraPath();
+        int[] start = mazeConfig.getStartingPosition();
+        int x = start[0];
+        int y = start[1];
+        int angle = 0; // east, same as StatePlaying at start
+        path.add(x, y, angle, 0);
+        while (path.size() < maxViews) {
+            CardinalDirection cd = mazeConfig.getDirectionToExit(x, y);
+            if (null == cd)
+                break; // at exit
+            // rotate towards the direction of the next position
+            int target = getAngle(cd);
+            int turns = ((target - angle + 360) % 360) / 90; // number of left turns, 3 is one right turn
+            int dir = (3 == turns) ? -1 : 1;
+            for (int t = (3 == turns) ? 1 : turns; t > 0; t--) {
+                for (int i = 0; i != 4; i++) {
+                    path.add(x, y, angle + dir*(90*(i+1))/4, 0);
+                }
+                angle = (angle + dir*90 + 360) % 360;
+            }
+            // walk one step forward
+            for (int step = 1; step <= 4; step++) {
+                path.add(x, y, angle, step);
+            }
+            int[] d = cd.getDirection();
+            x += d[0];
+            y += d[1];
+        }
+        // the last move may go beyond the limit
+        if (path.size() > maxViews)
+            path.views.subList(maxViews, path.size()).clear();
+        return path;
+    }
+
+    /**
+     * @return number of recorded views
+     */
+    public int size() {
+        return views.size();
+    }
+
+    /**
+     * @return the i-th recorded view
+     */
+    public ViewState get(int i) {
+        return views.get(i);
+    }
+
+    /**
+     * Adds a view with the view direction computed from the angle as in StatePlaying.rotateStep.
+     */
+    private void add(int x, int y, int angle, int walkStep) {
+        angle = (angle+1800) % 360;
+        int viewdx = (int) (Math.cos(angle*Math.PI/180)*(1<<16));
+        int viewdy = (int) (Math.sin(angle*Math.PI/180)*(1<<16));
+        views.add(new ViewState(x, y, viewdx, viewdy, walkStep, angle));
+    }
+
+    /**
+     * Gives the viewing angle that StatePlaying uses for a direction,
+     * the angle matches the direction (cos(angle),sin(angle)).
+     */
+    private static int getAngle(CardinalDirection cd) {
+        switch (cd) {
+            case East:
+                return 0;
+            case South:
+                return 90;
+            case West:
+                return 180;
+            case North:
+                return 270;
+            default:
+                throw new RuntimeException("Inconsistent enum type");
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures how long a DynamicMaze takes to open and close a wall.
+ *
+ * For each requested skill level the benchmark builds a maze with a fixed seed and a tree
+ * of BSP nodes, computes the next hops as the Wizard does, and toggles randomly chosen
+ * internal walls with a fixed seed: an open wall is closed, a closed one opened.
+ * After a warm up, each change is timed. Reported are mean, median, 99th percentile and
+ * maximum time per change for opening and closing, the mean number of positions whose
+ * distance changed, and for comparison the time to compute distances and the tree of
+ * BSP nodes for the whole maze as MazeBuilder does, measured before the changes.
+ * With verify, the distances and next hops are compared after each change with values
+ * computed from scratch by a breadth first search from the exit, and at the end the walls
+ * that the segments in the tree cover with the walls of the cells, all outside of the timing.
+ *
+ * Lives with the unit tests so it does not ship with the app. Runs on a plain JVM with
+ * the compiled classes and test classes, e.g.
+ * java -cp classes:test-classes edu.wm.cs.cs301.elise.amazebyelise.generation.DynamicMazeBenchmark 5 15 changes=2000 bsp=eager verify
+ * with skill levels as arguments, default 15, the number of timed changes, how to build
+ * the BSP tree (lazy or eager, default as in Constants.LAZY_BSP) and an optional verify.
+ */
+public class DynamicMazeBenchmark {
+    static final int WARMUP = 500; // changes before timing starts
+    static final int FULL_ROUNDS = 3; // computations from scratch to average
+
+    public static void main(String[] args) throws InterruptedException {
+        ArrayList<Integer> levels = new ArrayList<Integer>();
+        int changes = 2000;
+        boolean lazy = Constants.LAZY_BSP;
+        boolean verify = false;
+        for (String arg : args) {
+            if (arg.startsWith("changes="))
+                changes = Integer.parseInt(arg.substring("changes=".length()));
+            else if (arg.equals("bsp=lazy"))
+                lazy = true;
+            else if (arg.equals("bsp=eager"))
+                lazy = false;
+            else if (arg.equals("verify"))
+                verify = true;
+            else
+                levels.add(Integer.parseInt(arg));
+        }
+        if (levels.isEmpty())
+            levels.add(15);
+        for (int level : levels) {
+            MazeConfiguration mazeConfig = RenderBenchmark.buildMaze(level, Order.Renderer.BSP, lazy,
+                    Order.Partition.Balanced);
+            System.out.println("skill " + level + " (" + mazeConfig.getWidth() + "x" + mazeConfig.getHeight() + "), "
+                    + (lazy ? "lazy" : "eager") + " tree: " + run(mazeConfig, changes, level, verify));
+        }
+    }
+
+    /**
+     * Toggles random walls of the maze, times each change.
+     * @param mazeConfig maze with distances and a tree of BSP nodes, gets changed
+     * @param changes number of timed changes
+     * @param seed for the choice of walls
+     * @param verify true to check distances, next hops and the tree
+     * @return description of the results
+     */
+    public static String run(MazeConfiguration mazeConfig, int changes, long seed, boolean verify)
+            throws InterruptedException {
+        final int width = mazeConfig.getWidth();
+        final int height = mazeConfig.getHeight();
+        final Cells cells = mazeConfig.getMazecells();
+        final Distance distance = mazeConfig.getMazedists();
+        // computation from scratch for comparison, on the maze as built since
+        // Distance.computeDistances expects that all positions reach the exit
+        long distanceNanos = 0;
+        long treeNanos = 0;
+        for (int i = 0; i != FULL_ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            Distance full = new Distance(width, height);
+            full.computeDistances(cells);
+            full.computeNextHops(cells);
+            long t1 = System.nanoTime();
+            new BSPBuilder(null, full, cells, width, height, mazeConfig.getColorChange(), 0).generateBSPNodes(false);
+            long t2 = System.nanoTime();
+            distanceNanos += t1 - t0;
+            treeNanos += t2 - t1;
+        }
+        distance.computeNextHops(cells);
+        DynamicMaze dynamic = new DynamicMaze(mazeConfig);
+        Random random = new Random(seed);
+        long[] opened = new long[changes];
+        long[] closed = new long[changes];
+        int openCount = 0;
+        int closeCount = 0;
+        long changedDistances = 0;
+        for (int i = 0; i != WARMUP + changes; i++) {
+            final int x = random.nextInt(width);
+            final int y = random.nextInt(height);
+            final CardinalDirection cd = random.nextBoolean() ? CardinalDirection.East : CardinalDirection.South;
+            if (!dynamic.isInternal(x, y, cd)) {
+                i--;
+                continue;
+            }
+            final boolean open = cells.hasWall(x, y, cd);
+            long t0 = System.nanoTime();
+            if (open)
+                dynamic.openWall(x, y, cd);
+            else
+                dynamic.closeWall(x, y, cd);
+            long t1 = System.nanoTime();
+            if (i >= WARMUP) {
+                if (open)
+                    opened[openCount++] = t1 - t0;
+                else
+                    closed[closeCount++] = t1 - t0;
+                changedDistances += dynamic.getChangedDistanceCount();
+            }
+            if (verify)
+                verifyDistances(mazeConfig, x, y, cd);
+        }
+        if (verify)
+            verifyTree(mazeConfig);
+
+        return "open " + describe(opened, openCount) + ", close " + describe(closed, closeCount)
+                + ", " + String.format("%.1f", (double) changedDistances / changes) + " distances changed per change"
+                + ", from scratch: distances " + distanceNanos / FULL_ROUNDS / 1000 + "us, tree "
+                + treeNanos / FULL_ROUNDS / 1000 + "us" + (verify ? ", verified" : "");
+    }
+
+    /**
+     * Describes the times of changes in microseconds.
+     */
+    private static String describe(long[] nanos, int count) {
+        if (0 == count)
+            return "none";
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long n : sorted)
+            sum += n;
+        return count + "x mean " + String.format("%.1f", sum / 1000.0 / count) + "us median "
+                + String.format("%.1f", sorted[count/2] / 1000.0) + "us p99 "
+                + String.format("%.1f", sorted[Math.min(count-1, count*99/100)] / 1000.0) + "us max "
+                + String.format("%.1f", sorted[count-1] / 1000.0) + "us";
+    }
+
+    /**
+     * Compares distances and next hops with a breadth first search from the exit.
+     * @throws RuntimeException if they differ
+     */
+    private static void verifyDistances(MazeConfiguration mazeConfig, int wx, int wy, CardinalDirection wcd) {
+        final int width = mazeConfig.getWidth();
+        final int height = mazeConfig.getHeight();
+        final Cells cells = mazeConfig.getMazecells();
+        final Distance distance = mazeConfig.getMazedists();
+        int[][] expected = new int[width][height];
+        for (int[] column : expected)
+            Arrays.fill(column, Distance.INFINITY);
+        int[] exit = distance.getExitPosition();
+        int[] queue = new int[width*height];
+        int head = 0;
+        int tail = 0;
+        expected[exit[0]][exit[1]] = 1;
+        queue[tail++] = exit[0] + exit[1]*width;
+        while (head < tail) {
+            final int x = queue[head] % width;
+            final int y = queue[head++] / width;
+            for (CardinalDirection cd : CardinalDirection.values()) {
+                int[] d = cd.getDirection();
+                if (cells.hasNoWall(x, y, cd) && mazeConfig.isValidPosition(x+d[0], y+d[1])
+                        && expected[x+d[0]][y+d[1]] == Distance.INFINITY) {
+                    expected[x+d[0]][y+d[1]] = expected[x][y] + 1;
+                    queue[tail++] = x+d[0] + (y+d[1])*width;
+                }
+            }
+        }
+        int[][] copy = new int[width][];
+        for (int x = 0; x != width; x++)
+            copy[x] = expected[x].clone();
+        Distance hops = new Distance(copy);
+        hops.computeNextHops(cells);
+        for (int x = 0; x != width; x++) {
+            for (int y = 0; y != height; y++) {
+                if (distance.getDistance(x, y) != expected[x][y] || distance.getNextHop(x, y) != hops.getNextHop(x, y))
+                    throw new RuntimeException("DynamicMazeBenchmark: wrong distance or next hop at (" + x + "," + y
+                            + "): " + distance.getDistance(x, y) + " " + distance.getNextHop(x, y) + " instead of "
+                            + expected[x][y] + " " + hops.getNextHop(x, y) + " after change of wall at ("
+                            + wx + "," + wy + ") " + wcd);
+            }
+        }
+    }
+
+    /**
+     * Checks that the segments in the tree cover each wall of the cells exactly once
+     * and nothing else. Builds all subtrees of a lazy tree.
+     * @throws RuntimeException if they do not
+     */
+    private static void verifyTree(MazeConfiguration mazeConfig) {
+        final int width = mazeConfig.getWidth();
+        final int height = mazeConfig.getHeight();
+        final Cells cells = mazeConfig.getMazecells();
+        int[] covered = new int[width*height*4];
+        countCoveredWalls(mazeConfig.getRootnode(), width, height, covered);
+        for (int x = 0; x != width; x++) {
+            for (int y = 0; y != height; y++) {
+                for (CardinalDirection cd : CardinalDirection.values()) {
+                    final int n = covered[((x + y*width) << 2) + cd.ordinal()];
+                    if (n != (cells.hasWall(x, y, cd) ? 1 : 0))
+                        throw new RuntimeException("DynamicMazeBenchmark: wall at (" + x + "," + y + ") " + cd
+                                + " is covered by " + n + " segments, has wall " + cells.hasWall(x, y, cd));
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts for each wall of each cell the segments of the subtree that cover it,
+     * with the same mapping from segments to walls as the RaycastDrawer.
+     */
+    private static void countCoveredWalls(BSPNode node, int width, int height, int[] covered) {
+        if (node instanceof BSPLazyNode)
+            node = ((BSPLazyNode) node).expand();
+        if (node instanceof BSPBranch) {
+            countCoveredWalls(((BSPBranch) node).getLeftBranch(), width, height, covered);
+            countCoveredWalls(((BSPBranch) node).getRightBranch(), width, height, covered);
+            return;
+        }
+        final int mu = Constants.MAP_UNIT;
+        for (Seg seg : ((BSPLeaf) node).getSlist()) {
+            final int sx = seg.getStartPositionX();
+            final int sy = seg.getStartPositionY();
+            final int dx = seg.getExtensionX();
+            final int dy = seg.getExtensionY();
+            if (0 == dx) {
+                final int x = (dy > 0) ? sx/mu : sx/mu - 1;
+                final CardinalDirection side = (dy > 0) ? CardinalDirection.West : CardinalDirection.East;
+                for (int y = Math.min(sy, sy+dy)/mu; y < Math.max(sy, sy+dy)/mu; y++)
+                    if (0 <= x && x < width && 0 <= y && y < height)
+                        covered[((x + y*width) << 2) + side.ordinal()]++;
+            } else {
+                final int y = (dx < 0) ? sy/mu : sy/mu - 1;
+                final CardinalDirection side = (dx < 0) ? CardinalDirection.North : CardinalDirection.South;
+                for (int x = Math.min(sx, sx+dx)/mu; x < Math.max(sx, sx+dx)/mu; x++)
+                    if (0 <= x && x < width && 0 <= y && y < height)
+                        covered[((x + y*width) << 2) + side.ordinal()]++;
+            }
+        }
+    }
+}
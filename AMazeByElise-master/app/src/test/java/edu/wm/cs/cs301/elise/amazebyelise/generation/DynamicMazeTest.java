@@ -0,0 +1,197 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the distances repaired after a wall opens or closes are the ones
+ * a breadth first search from the exit gives, and that the map shows the
+ * solution for the changed walls, none if they cut off the current position.
+ */
+public class DynamicMazeTest {
+    private static final int SKILL_LEVEL = 3;
+    private static final int CHANGES = 100; // fewer than the 214 walls of the maze that can open
+
+    private MazeConfiguration maze; // built again for each test as tests change it
+    private Cells cells;
+    private Distance distance;
+
+    @Before
+    public void buildMaze() {
+        maze = RobotSimulation.buildMaze(SKILL_LEVEL);
+        cells = maze.getMazecells();
+        distance = maze.getMazedists();
+        distance.computeNextHops(cells);
+    }
+
+    /**
+     * Gives the distances of a breadth first search from the exit,
+     * Distance.INFINITY for positions that can not reach the exit.
+     */
+    private int[][] breadthFirstDistances() {
+        final int width = maze.getWidth();
+        final int height = maze.getHeight();
+        int[][] expected = new int[width][height];
+        for (int[] column : expected)
+            Arrays.fill(column, Distance.INFINITY);
+        int[] exit = distance.getExitPosition();
+        int[] queue = new int[width*height];
+        int head = 0;
+        int tail = 0;
+        expected[exit[0]][exit[1]] = 1;
+        queue[tail++] = exit[0] + exit[1]*width;
+        while (head < tail) {
+            final int x = queue[head] % width;
+            final int y = queue[head++] / width;
+            for (CardinalDirection cd : CardinalDirection.values()) {
+                int[] d = cd.getDirection();
+                if (cells.hasNoWall(x, y, cd) && maze.isValidPosition(x+d[0], y+d[1])
+                        && expected[x+d[0]][y+d[1]] == Distance.INFINITY) {
+                    expected[x+d[0]][y+d[1]] = expected[x][y] + 1;
+                    queue[tail++] = x+d[0] + (y+d[1])*width;
+                }
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Compares distances and next hops with the ones computed from scratch.
+     */
+    private void assertBreadthFirst(String change) {
+        int[][] expected = breadthFirstDistances();
+        int[][] copy = new int[expected.length][];
+        for (int x = 0; x != expected.length; x++)
+            copy[x] = expected[x].clone();
+        Distance hops = new Distance(copy);
+        hops.computeNextHops(cells);
+        for (int x = 0; x != maze.getWidth(); x++) {
+            for (int y = 0; y != maze.getHeight(); y++) {
+                assertEquals("distance at (" + x + "," + y + ") after " + change,
+                        expected[x][y], distance.getDistance(x, y));
+                assertEquals("next hop at (" + x + "," + y + ") after " + change,
+                        hops.getNextHop(x, y), distance.getNextHop(x, y));
+            }
+        }
+    }
+
+    /**
+     * Opens or closes random internal walls, repairs the distances
+     * and compares them after each change.
+     * @param open true to open walls, false to close them
+     */
+    private void changeWalls(boolean open) {
+        Random random = new Random(open ? 1 : 2);
+        int changes = 0;
+        while (changes < CHANGES) {
+            final int x = random.nextInt(maze.getWidth());
+            final int y = random.nextInt(maze.getHeight());
+            final CardinalDirection cd = random.nextBoolean() ? CardinalDirection.East : CardinalDirection.South;
+            int[] d = cd.getDirection();
+            if (!maze.isValidPosition(x+d[0], y+d[1]) || cells.hasWall(x, y, cd) != open)
+                continue;
+            if (open) {
+                cells.deleteWall(new Wall(x, y, cd));
+                distance.repairOpenedWall(cells, x, y, cd);
+            } else {
+                cells.addWall(new Wall(x, y, cd), true);
+                distance.repairClosedWall(cells, x, y, cd);
+            }
+            assertBreadthFirst((open ? "opening" : "closing") + " wall at (" + x + "," + y + ") " + cd);
+            changes++;
+        }
+    }
+
+    @Test
+    public void repairOpenedWallGivesBreadthFirstDistances() {
+        changeWalls(true);
+    }
+
+    @Test
+    public void repairClosedWallGivesBreadthFirstDistances() {
+        changeWalls(false);
+    }
+
+    @Test
+    public void openAndCloseKeepBreadthFirstDistances() {
+        DynamicMaze dynamic = new DynamicMaze(maze);
+        Random random = new Random(3);
+        for (int i = 0; i != CHANGES; i++) {
+            final int x = random.nextInt(maze.getWidth());
+            final int y = random.nextInt(maze.getHeight());
+            final CardinalDirection cd = random.nextBoolean() ? CardinalDirection.East : CardinalDirection.South;
+            if (!dynamic.isInternal(x, y, cd))
+                continue;
+            if (cells.hasWall(x, y, cd))
+                assertTrue(dynamic.openWall(x, y, cd));
+            else
+                assertTrue(dynamic.closeWall(x, y, cd));
+            assertBreadthFirst("change of wall at (" + x + "," + y + ") " + cd);
+        }
+    }
+
+    /**
+     * Draws the map with the whole maze and the solution for the starting position.
+     */
+    private static long drawMap(MapDrawer mapView, ViewState s) {
+        FrameBuffer frame = new FrameBuffer(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT);
+        frame.clear(MazeColors.BLACK);
+        mapView.draw_map(frame, s.px, s.py, s.walkStep, s.viewdx, s.viewdy, true, true);
+        return frame.checksum();
+    }
+
+    @Test
+    public void mapShowsTheSolutionForChangedWalls() {
+        ViewState start = CameraPath.followSolution(maze, 1).get(0);
+        Cells seencells = new Cells(maze.getWidth()+1, maze.getHeight()+1);
+        MapDrawer mapView = new MapDrawer(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
+                Constants.STEP_SIZE, seencells, 10, maze);
+        final long before = drawMap(mapView, start);
+        // open the first wall that gives the starting position a shorter way out
+        DynamicMaze dynamic = new DynamicMaze(maze);
+        final int startDistance = distance.getDistance(start.px, start.py);
+        boolean shorter = false;
+        for (int x = 0; x != maze.getWidth() && !shorter; x++) {
+            for (int y = 0; y != maze.getHeight() && !shorter; y++) {
+                if (dynamic.isInternal(x, y, CardinalDirection.East) && cells.hasWall(x, y, CardinalDirection.East)) {
+                    dynamic.openWall(x, y, CardinalDirection.East);
+                    shorter = distance.getDistance(start.px, start.py) < startDistance;
+                    if (!shorter)
+                        dynamic.closeWall(x, y, CardinalDirection.East);
+                }
+            }
+        }
+        assertTrue("no wall gives a shorter way out", shorter);
+        // the drawer that showed the old solution has to show the same as a new one
+        Cells newSeencells = new Cells(maze.getWidth()+1, maze.getHeight()+1);
+        MapDrawer newMapView = new MapDrawer(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
+                Constants.STEP_SIZE, newSeencells, 10, maze);
+        final long after = drawMap(newMapView, start);
+        assertNotEquals(before, after);
+        assertEquals(after, drawMap(mapView, start));
+    }
+
+    @Test
+    public void mapShowsNoSolutionForAPositionCutOffFromTheExit() {
+        ViewState start = CameraPath.followSolution(maze, 1).get(0);
+        Cells seencells = new Cells(maze.getWidth()+1, maze.getHeight()+1);
+        MapDrawer mapView = new MapDrawer(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
+                Constants.STEP_SIZE, seencells, 10, maze);
+        drawMap(mapView, start);
+        assertTrue(mapView.solutionPath.size() > 1);
+        // close the walls around the starting position
+        DynamicMaze dynamic = new DynamicMaze(maze);
+        for (CardinalDirection cd : CardinalDirection.values()) {
+            if (dynamic.isInternal(start.px, start.py, cd))
+                dynamic.closeWall(start.px, start.py, cd);
+        }
+        assertEquals(Distance.INFINITY, distance.getDistance(start.px, start.py));
+        drawMap(mapView, start);
+        assertEquals(0, mapView.solutionPath.size());
+    }
+}
@@ -0,0 +1,114 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the rasterization rules and the checksum of the FrameBuffer,
+ * runs on the development machine without the Android framework.
+ */
+public class FrameBufferTest {
+    private static final int RED = MazeColors.RED;
+
+    /**
+     * Counts the pixels of the given color.
+     */
+    private static int count(FrameBuffer frame, int color) {
+        int n = 0;
+        for (int p : frame.getPixels())
+            if (p == color)
+                n++;
+        return n;
+    }
+
+    @Test
+    public void fillRectFillsExactlyTheRectangle() {
+        FrameBuffer frame = new FrameBuffer(20, 10);
+        frame.setColor(RED);
+        frame.fillRect(2, 3, 5, 4);
+        assertEquals(20, count(frame, RED));
+        assertEquals(RED, frame.getPixels()[2 + 3*20]);
+        assertEquals(RED, frame.getPixels()[6 + 6*20]);
+        assertNotEquals(RED, frame.getPixels()[7 + 6*20]);
+        assertNotEquals(RED, frame.getPixels()[6 + 7*20]);
+    }
+
+    @Test
+    public void unknownColorNameKeepsTheColor() {
+        FrameBuffer frame = new FrameBuffer(20, 10);
+        frame.setColor("Red");
+        frame.setColor("Purple");
+        frame.fillRect(0, 0, 2, 2);
+        assertEquals(4, count(frame, RED));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownColorNameHasNoEncoding() {
+        MazeColors.getColorEncoding("Purple");
+    }
+
+    @Test
+    public void fillRectIsClippedToTheFrame() {
+        FrameBuffer frame = new FrameBuffer(20, 10);
+        frame.setColor(RED);
+        frame.fillRect(-5, -5, 10, 10);
+        assertEquals(25, count(frame, RED));
+        frame.fillRect(30, 30, 10, 10); // outside, nothing to do
+        assertEquals(25, count(frame, RED));
+    }
+
+    @Test
+    public void drawLineIncludesBothEndPoints() {
+        FrameBuffer frame = new FrameBuffer(20, 10);
+        frame.setColor(RED);
+        frame.drawLine(3, 4, 12, 4);
+        assertEquals(10, count(frame, RED));
+        frame.clear(MazeColors.BLACK);
+        frame.drawLine(0, 0, 9, 9);
+        assertEquals(10, count(frame, RED));
+        assertEquals(RED, frame.getPixels()[9 + 9*20]);
+    }
+
+    @Test
+    public void fillPolygonFillsPixelCentersInside() {
+        FrameBuffer frame = new FrameBuffer(20, 10);
+        frame.setColor(RED);
+        // a square of 4 by 4 pixels given as a polygon fills the same pixels as fillRect
+        frame.fillPolygon(new int[] {2, 6, 6, 2}, new int[] {3, 3, 7, 7}, 4);
+        FrameBuffer rect = new FrameBuffer(20, 10);
+        rect.setColor(RED);
+        rect.fillRect(2, 3, 4, 4);
+        assertEquals(rect.checksum(), frame.checksum());
+    }
+
+    @Test
+    public void batchedPrimitivesKeepTheCurrentColor() {
+        FrameBuffer frame = new FrameBuffer(20, 10);
+        frame.setColor(RED);
+        frame.addLine(MazeColors.WHITE, 0, 0, 5, 0);
+        frame.addQuad(MazeColors.WHITE, 0, 2, 4, 2, 4, 6, 0, 6);
+        frame.flushBatches();
+        assertEquals(RED, frame.getColor());
+        assertEquals(6 + 16, count(frame, MazeColors.WHITE));
+    }
+
+    @Test
+    public void checksumDependsOnEveryPixel() {
+        FrameBuffer a = new FrameBuffer(20, 10);
+        FrameBuffer b = new FrameBuffer(20, 10);
+        a.setColor(RED);
+        b.setColor(RED);
+        a.fillRect(1, 1, 8, 8);
+        b.fillRect(1, 1, 8, 8);
+        assertEquals(a.checksum(), b.checksum());
+        b.setColor(MazeColors.WHITE);
+        b.drawLine(19, 9, 19, 9);
+        assertNotEquals(a.checksum(), b.checksum());
+    }
+
+    @Test
+    public void drawsTheMapWallByWall() {
+        assertNull(new FrameBuffer(20, 10).createMapTiles(null, null, 20, 10));
+    }
+}
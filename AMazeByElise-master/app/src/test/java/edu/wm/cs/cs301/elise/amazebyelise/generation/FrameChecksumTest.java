@@ -0,0 +1,140 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Draws frames of the first person view and the map into a FrameBuffer and
+ * compares them by checksum, runs on the development machine without the Android framework.
+ * The renderers have settings that must not change what is on the screen,
+ * e.g. the number of strips or building the tree of BSP nodes on demand,
+ * the frames for a walk along the solution have to be the same for all of them.
+ */
+public class FrameChecksumTest {
+    private static final int SKILL_LEVEL = 3;
+    private static final int VIEWS = 120; // views of the walk that are drawn
+    // a small view keeps the test fast, drawers work for any size
+    private static final int WIDTH = 220;
+    private static final int HEIGHT = 310;
+
+    private static MazeConfiguration eager; // with a tree of BSP nodes that is built completely
+    private static MazeConfiguration lazy; // same maze with a tree that is built on demand
+    private static CameraPath path;
+
+    @BeforeClass
+    public static void buildMaze() throws InterruptedException {
+        MazeFactory factory = new MazeFactory(true);
+        StubOrder order = new StubOrder(Order.Builder.DFS, SKILL_LEVEL, false, Order.Renderer.Raycast);
+        assertTrue(factory.order(order));
+        factory.waitTillDelivered();
+        MazeConfiguration mazeConfig = order.getMazeConfiguration();
+        eager = withTree(mazeConfig, false);
+        lazy = withTree(mazeConfig, true);
+        path = CameraPath.followSolution(eager, VIEWS);
+    }
+
+    /**
+     * Gives a maze with the cells and distances of the given one and a new tree of BSP nodes.
+     */
+    private static MazeConfiguration withTree(MazeConfiguration mazeConfig, boolean onDemand)
+            throws InterruptedException {
+        MazeConfiguration result = new MazeContainer();
+        result.setWidth(mazeConfig.getWidth());
+        result.setHeight(mazeConfig.getHeight());
+        result.setMazecells(mazeConfig.getMazecells());
+        result.setMazedists(mazeConfig.getMazedists());
+        result.setColorChange(mazeConfig.getColorChange());
+        int[] start = mazeConfig.getStartingPosition();
+        result.setStartingPosition(start[0], start[1]);
+        BSPBuilder builder = new BSPBuilder(null, mazeConfig.getMazedists(), mazeConfig.getMazecells(),
+                mazeConfig.getWidth(), mazeConfig.getHeight(), mazeConfig.getColorChange(), 0);
+        result.setRootnode(builder.generateBSPNodes(onDemand));
+        return result;
+    }
+
+    /**
+     * Draws all views of the path with a new FirstPersonDrawer that starts with nothing seen.
+     * @return checksums of all frames
+     */
+    private static long[] drawFirstPerson(MazeConfiguration mazeConfig, int strips) {
+        Cells seencells = new Cells(mazeConfig.getWidth()+1, mazeConfig.getHeight()+1);
+        FirstPersonDrawer drawer = new FirstPersonDrawer(WIDTH, HEIGHT, Constants.MAP_UNIT,
+                Constants.STEP_SIZE, seencells, mazeConfig.getRootnode());
+        drawer.setStripCount(strips);
+        FrameBuffer frame = new FrameBuffer(WIDTH, HEIGHT);
+        long[] checksums = new long[path.size()];
+        try {
+            for (int i = 0; i != path.size(); i++) {
+                ViewState s = path.get(i);
+                drawer.redraw(frame, Constants.StateGUI.STATE_PLAY, s.px, s.py, s.viewdx, s.viewdy,
+                        s.walkStep, Constants.VIEW_OFFSET, new RangeSet(), s.angle);
+                checksums[i] = frame.checksum();
+            }
+        } finally {
+            drawer.shutdown();
+        }
+        return checksums;
+    }
+
+    /**
+     * Draws the map for all views of the path with the whole maze and the solution on display.
+     * @return checksums of all frames
+     */
+    private static long[] drawMap(MazeConfiguration mazeConfig, int mapScale) {
+        Cells seencells = new Cells(mazeConfig.getWidth()+1, mazeConfig.getHeight()+1);
+        MapDrawer mapView = new MapDrawer(WIDTH, HEIGHT, Constants.MAP_UNIT,
+                Constants.STEP_SIZE, seencells, mapScale, mazeConfig);
+        FrameBuffer frame = new FrameBuffer(WIDTH, HEIGHT);
+        long[] checksums = new long[path.size()];
+        for (int i = 0; i != path.size(); i++) {
+            ViewState s = path.get(i);
+            frame.clear(MazeColors.BLACK);
+            mapView.draw_map(frame, s.px, s.py, s.walkStep, s.viewdx, s.viewdy, true, true);
+            mapView.draw_currentlocation(frame, s.viewdx, s.viewdy);
+            checksums[i] = frame.checksum();
+        }
+        return checksums;
+    }
+
+    @Test
+    public void pathHasEnoughViews() {
+        // the solution of the maze is longer than the views, the path stops at the limit
+        assertEquals(VIEWS, path.size());
+    }
+
+    @Test
+    public void sameFramesForRepeatedDrawing() {
+        assertArrayEquals(drawFirstPerson(eager, 1), drawFirstPerson(eager, 1));
+        assertArrayEquals(drawMap(eager, 10), drawMap(eager, 10));
+    }
+
+    @Test
+    public void framesChangeWithTheView() {
+        long[] checksums = drawFirstPerson(eager, 1);
+        // consecutive views differ in position or angle, so do their frames
+        int same = 0;
+        for (int i = 1; i != checksums.length; i++)
+            if (checksums[i] == checksums[i-1])
+                same++;
+        assertTrue("frames do not change with the view: " + same, same < checksums.length / 10);
+    }
+
+    @Test
+    public void stripsGiveSameFrames() {
+        long[] expected = drawFirstPerson(eager, 1);
+        assertArrayEquals(expected, drawFirstPerson(eager, 2));
+        assertArrayEquals(expected, drawFirstPerson(eager, 4));
+    }
+
+    @Test
+    public void treeBuiltOnDemandGivesSameFrames() {
+        assertArrayEquals(drawFirstPerson(eager, 1), drawFirstPerson(lazy, 1));
+    }
+
+    @Test
+    public void mapChangesWithScale() {
+        assertNotEquals(drawMap(eager, 10)[0], drawMap(eager, 20)[0]);
+    }
+}
@@ -0,0 +1,48 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a MazeSnapshot gives back the same maze and a tree of
+ * BSP nodes if asked for one, also for a maze that was written before
+ * its tree was built.
+ */
+public class MazeSnapshotTest {
+    private static MazeConfiguration maze; // skill 3 without a tree of BSP nodes
+
+    @BeforeClass
+    public static void buildMaze() {
+        maze = RobotSimulation.buildMaze(3);
+        assertNull(maze.getRootnode());
+    }
+
+    private static void assertSameMaze(MazeConfiguration expected, MazeConfiguration actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getColorChange(), actual.getColorChange());
+        assertArrayEquals(expected.getStartingPosition(), actual.getStartingPosition());
+        for (int x = 0; x < expected.getWidth(); x++) {
+            assertArrayEquals(expected.getMazedists().getDists()[x], actual.getMazedists().getDists()[x]);
+            for (int y = 0; y < expected.getHeight(); y++)
+                assertEquals(expected.getMazecells().getValueOfCell(x, y), actual.getMazecells().getValueOfCell(x, y));
+        }
+        assertEquals(expected.getMazecells().getFingerprint(), actual.getMazecells().getFingerprint());
+    }
+
+    @Test
+    public void readGivesTheWrittenMaze() {
+        MazeConfiguration restored = MazeSnapshot.read(MazeSnapshot.write(maze));
+        assertSameMaze(maze, restored);
+        assertNull(restored.getRootnode());
+    }
+
+    @Test
+    public void readBuildsTheTreeForAMazeWrittenBeforeItsTree() {
+        MazeConfiguration restored = MazeSnapshot.read(MazeSnapshot.write(maze, true));
+        assertSameMaze(maze, restored);
+        assertNotNull(restored.getRootnode());
+    }
+}
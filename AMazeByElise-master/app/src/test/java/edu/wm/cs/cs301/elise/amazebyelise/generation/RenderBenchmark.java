@@ -0,0 +1,317 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Measures how long the first person renderers and the MapDrawer take to draw frames.
+ *
+ * For each requested skill level and renderer the benchmark builds a maze with a fixed
+ * seed, records a camera path along the solution with CameraPath and replays it on a
+ * FrameBuffer. The first replay warms up the JVM, the following replays are timed.
+ * Reported are the time to build the maze, which includes the tree of BSP nodes only for
+ * the BSP renderer, frame times for the first person view and the map, BSP nodes or grid
+ * cells visited, segments drawn and polygons emitted per frame as counted in RenderStats,
+ * and a checksum over all frames of a replay that changes if any frame looks different,
+ * so a speed up can be checked for unchanged output. Both renderers draw the same maze
+ * for a skill level, so their results can be compared directly. For the BSP renderer
+ * the number of tree nodes that exist after all replays, their depth and the number of
+ * segments in leaves are reported, the latter grows with each segment that a partition splits.
+ * Only the part of the tree that was built counts if subtrees are built on demand,
+ * so partition heuristics are best compared with an eager tree.
+ *
+ * Lives with the unit tests so it does not ship with the app. Runs on a plain JVM with
+ * the compiled classes and test classes, no Android framework needed, e.g.
+ * java -cp classes:test-classes edu.wm.cs.cs301.elise.amazebyelise.generation.RenderBenchmark 1 5 9 renderer=both strips=4 bsp=eager partition=coverage
+ * with skill levels as arguments, the renderer to measure (bsp, raycast or both, the default),
+ * an optional number of strips for the FirstPersonDrawer, how to build the BSP tree
+ * (lazy or eager, default as in Constants.LAZY_BSP) and the partition heuristics to
+ * measure (balanced, coverage or both, default balanced).
+ */
+public class RenderBenchmark {
+    static final int MAX_VIEWS = 2000; // upper limit on frames per replay
+    static final int ROUNDS = 5; // timed replays per maze
+    static final int MAP_SCALE = 10; // zoomed out such that the map shows many walls
+
+    public static void main(String[] args) {
+        ArrayList<Integer> levels = new ArrayList<Integer>();
+        ArrayList<Order.Renderer> renderers = new ArrayList<Order.Renderer>();
+        int strips = 1;
+        boolean lazy = Constants.LAZY_BSP;
+        ArrayList<Order.Partition> partitions = new ArrayList<Order.Partition>();
+        for (String arg : args) {
+            if (arg.equals("partition=balanced"))
+                partitions.add(Order.Partition.Balanced);
+            else if (arg.equals("partition=coverage"))
+                partitions.add(Order.Partition.Coverage);
+            else if (arg.equals("partition=both"))
+                partitions.addAll(Arrays.asList(Order.Partition.values()));
+            else if (arg.equals("bsp=lazy"))
+                lazy = true;
+            else if (arg.equals("bsp=eager"))
+                lazy = false;
+            else if (arg.startsWith("strips="))
+                strips = Integer.parseInt(arg.substring("strips=".length()));
+            else if (arg.equals("renderer=bsp"))
+                renderers.add(Order.Renderer.BSP);
+            else if (arg.equals("renderer=raycast"))
+                renderers.add(Order.Renderer.Raycast);
+            else if (arg.equals("renderer=both"))
+                renderers.addAll(Arrays.asList(Order.Renderer.values()));
+            else
+                levels.add(Integer.parseInt(arg));
+        }
+        if (levels.isEmpty())
+            levels.addAll(Arrays.asList(1, 5, 9));
+        if (renderers.isEmpty())
+            renderers.addAll(Arrays.asList(Order.Renderer.values()));
+        if (partitions.isEmpty())
+            partitions.add(Order.Partition.Balanced);
+        for (int level : levels) {
+            for (Order.Renderer renderer : renderers) {
+                // the partition heuristic only matters for the BSP renderer
+                for (Order.Partition partition : (Order.Renderer.BSP == renderer) ? partitions
+                        : Arrays.asList(Order.Partition.Balanced)) {
+                    long t0 = System.nanoTime();
+                    MazeConfiguration mazeConfig = buildMaze(level, renderer, lazy, partition);
+                    long buildMillis = (System.nanoTime() - t0) / 1000000;
+                    Result result = run(mazeConfig, CameraPath.followSolution(mazeConfig, MAX_VIEWS), ROUNDS,
+                            renderer, strips);
+                    System.out.println("skill " + level + " (" + mazeConfig.getWidth() + "x" + mazeConfig.getHeight()
+                            + "), " + renderer + ((Order.Renderer.BSP == renderer) ? " " + strips + " strips"
+                            + (lazy ? " lazy " : " eager ") + partition : "")
+                            + ": build " + buildMillis + "ms, " + result
+                            + ((Order.Renderer.BSP == renderer) ? ", " + describeTree(mazeConfig.getRootnode()) : ""));
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a maze for the given skill level with a fixed seed,
+     * so repeated runs measure the same maze.
+     * @param skillLevel 0 to 15
+     * @return the maze
+     */
+    public static MazeConfiguration buildMaze(int skillLevel) {
+        return buildMaze(skillLevel, Order.Renderer.BSP);
+    }
+
+    /**
+     * Builds a maze for the given skill level with a fixed seed and
+     * the data the given renderer needs.
+     * @param skillLevel 0 to 15
+     * @param renderer that is going to draw the maze
+     * @return the maze
+     */
+    public static MazeConfiguration buildMaze(int skillLevel, Order.Renderer renderer) {
+        return buildMaze(skillLevel, renderer, Order.Partition.Balanced);
+    }
+
+    /**
+     * Builds a maze for the given skill level with a fixed seed and
+     * the data the given renderer needs.
+     * @param skillLevel 0 to 15
+     * @param renderer that is going to draw the maze
+     * @param partition heuristic for the tree of BSP nodes
+     * @return the maze
+     */
+    public static MazeConfiguration buildMaze(int skillLevel, Order.Renderer renderer, Order.Partition partition) {
+        MazeFactory factory = new MazeFactory(true);
+        StubOrder order = new StubOrder(Order.Builder.DFS, skillLevel, false, renderer, partition);
+        factory.order(order);
+        factory.waitTillDelivered();
+        return order.getMazeConfiguration();
+    }
+
+    /**
+     * Builds a maze for the given skill level with a fixed seed and
+     * a tree of BSP nodes that is built completely or on demand
+     * for the BSP renderer.
+     * @param skillLevel 0 to 15
+     * @param renderer that is going to draw the maze
+     * @param lazy true to build subtrees on demand
+     * @param partition heuristic for the tree of BSP nodes
+     * @return the maze
+     */
+    public static MazeConfiguration buildMaze(int skillLevel, Order.Renderer renderer, boolean lazy,
+                                              Order.Partition partition) {
+        if (Order.Renderer.Raycast == renderer || lazy == Constants.LAZY_BSP)
+            return buildMaze(skillLevel, renderer, partition);
+        // the factory builds the tree as set in Constants, build the other variant here
+        MazeConfiguration mazeConfig = buildMaze(skillLevel, Order.Renderer.Raycast);
+        BSPBuilder builder = new BSPBuilder(null, mazeConfig.getMazedists(), mazeConfig.getMazecells(),
+                mazeConfig.getWidth(), mazeConfig.getHeight(), mazeConfig.getColorChange(), 0);
+        builder.setPartition(partition);
+        try {
+            mazeConfig.setRootnode(builder.generateBSPNodes(lazy));
+        } catch (InterruptedException e) {
+            throw new RuntimeException("RenderBenchmark: BSP tree construction interrupted", e);
+        }
+        return mazeConfig;
+    }
+
+    /**
+     * Describes the part of a tree of BSP nodes that has been built,
+     * subtrees of a lazy tree that were never traversed do not count.
+     * @param root of the tree
+     * @return number of branches and leaves, depth and number of segments in leaves
+     */
+    static String describeTree(BSPNode root) {
+        int[] counts = new int[3]; // nodes, depth, segments
+        countBuiltNodes(root, 1, counts);
+        return "tree nodes " + counts[0] + " depth " + counts[1] + " leaf segments " + counts[2];
+    }
+
+    private static void countBuiltNodes(BSPNode node, int depth, int[] counts) {
+        if (node instanceof BSPLazyNode) {
+            BSPLazyNode lazy = (BSPLazyNode) node;
+            if (lazy.isExpanded())
+                countBuiltNodes(lazy.expand(), depth, counts);
+            return;
+        }
+        if (null == node)
+            return;
+        counts[0]++;
+        counts[1] = Math.max(counts[1], depth);
+        if (node instanceof BSPBranch) {
+            BSPBranch branch = (BSPBranch) node;
+            countBuiltNodes(branch.getLeftBranch(), depth+1, counts);
+            countBuiltNodes(branch.getRightBranch(), depth+1, counts);
+        } else {
+            counts[2] += ((BSPLeaf) node).getSlist().size();
+        }
+    }
+
+    /**
+     * Replays the camera path once without measurements and then
+     * the given number of times with measurements.
+     * @param mazeConfig the maze to draw
+     * @param path views to draw
+     * @param rounds number of timed replays
+     * @param renderer for the first person view
+     * @param strips number of strips the FirstPersonDrawer splits the view into
+     * @return measurements over all timed replays
+     */
+    public static Result run(MazeConfiguration mazeConfig, CameraPath path, int rounds,
+                             Order.Renderer renderer, int strips) {
+        Result result = new Result(path.size() * rounds);
+        replay(mazeConfig, path, renderer, strips, null);
+        for (int r = 0; r != rounds; r++)
+            replay(mazeConfig, path, renderer, strips, result);
+        return result;
+    }
+
+    /**
+     * Draws all views of the path with new drawers that start with nothing seen.
+     * @param result receives measurements, null for a warm up
+     */
+    private static void replay(MazeConfiguration mazeConfig, CameraPath path, Order.Renderer renderer,
+                               int strips, Result result) {
+        final int w = Constants.VIEW_WIDTH;
+        final int h = Constants.VIEW_HEIGHT;
+        Cells seencells = new Cells(mazeConfig.getWidth()+1, mazeConfig.getHeight()+1);
+        FirstPersonView firstPersonView;
+        if (Order.Renderer.Raycast == renderer) {
+            firstPersonView = new RaycastDrawer(w, h, Constants.MAP_UNIT,
+                    Constants.STEP_SIZE, seencells, mazeConfig);
+        } else {
+            FirstPersonDrawer drawer = new FirstPersonDrawer(w, h, Constants.MAP_UNIT,
+                    Constants.STEP_SIZE, seencells, mazeConfig.getRootnode());
+            drawer.setStripCount(strips);
+            firstPersonView = drawer;
+        }
+        firstPersonView.setStatsEnabled(true);
+        MapDrawer mapView = new MapDrawer(w, h, Constants.MAP_UNIT,
+                Constants.STEP_SIZE, seencells, MAP_SCALE, mazeConfig);
+        FrameBuffer frame = new FrameBuffer(w, h);
+        RangeSet rset = new RangeSet();
+        long checksum = 0;
+        for (int i = 0; i != path.size(); i++) {
+            ViewState s = path.get(i);
+            long t0 = System.nanoTime();
+            firstPersonView.redraw(frame, Constants.StateGUI.STATE_PLAY, s.px, s.py, s.viewdx, s.viewdy,
+                    s.walkStep, Constants.VIEW_OFFSET, rset, s.angle);
+            long t1 = System.nanoTime();
+            mapView.draw_map(frame, s.px, s.py, s.walkStep, s.viewdx, s.viewdy, true, true);
+            mapView.draw_currentlocation(frame, s.viewdx, s.viewdy);
+            long t2 = System.nanoTime();
+            if (null != result) {
+                result.add(t1 - t0, t2 - t1, firstPersonView.getLastFrameStats());
+                checksum = 31*checksum + frame.checksum();
+            }
+        }
+        firstPersonView.shutdown();
+        if (null != result)
+            result.checksum = checksum;
+    }
+
+    /**
+     * Measurements for a number of frames.
+     */
+    public static class Result {
+        private final long[] firstPersonNanos;
+        private final long[] mapNanos;
+        private int frames;
+        private long nodes; // BSP nodes visited, sum over all frames
+        private long cells; // grid cells visited by rays, sum over all frames
+        private long segments; // segments drawn, sum over all frames
+        private long polygons; // polygons emitted, sum over all frames
+        long checksum; // over all frames of the last replay
+
+        Result(int capacity) {
+            firstPersonNanos = new long[capacity];
+            mapNanos = new long[capacity];
+        }
+
+        void add(long firstPerson, long map, RenderStats stats) {
+            firstPersonNanos[frames] = firstPerson;
+            mapNanos[frames] = map;
+            frames++;
+            nodes += stats.getNodesVisited();
+            cells += stats.getCellsVisited();
+            segments += stats.getSegmentsDrawn();
+            polygons += stats.getPolygonsEmitted();
+        }
+
+        /**
+         * @return number of measured frames
+         */
+        public int getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return checksum over all frames of a replay
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return frames + " frames, first person " + summary(firstPersonNanos)
+                    + ", map " + summary(mapNanos)
+                    + ", nodes/frame " + nodes / Math.max(1, frames)
+                    + ", cells/frame " + cells / Math.max(1, frames)
+                    + ", segments/frame " + segments / Math.max(1, frames)
+                    + ", polygons/frame " + polygons / Math.max(1, frames)
+                    + ", checksum " + Long.toHexString(checksum);
+        }
+
+        /**
+         * @return mean, median and 95th percentile in microseconds
+         */
+        private String summary(long[] nanos) {
+            if (0 == frames)
+                return "-";
+            long[] sorted = Arrays.copyOf(nanos, frames);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long t : sorted)
+                sum += t;
+            return "mean " + sum / frames / 1000 + "us median " + sorted[frames/2] / 1000
+                    + "us p95 " + sorted[Math.min(frames-1, frames*95/100)] / 1000 + "us";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a SavedMaze gives back the same maze by generating it again
+ * from its seed, and that it falls back to its copy or fails if the
+ * regenerated maze does not match.
+ */
+public class SavedMazeTest {
+    private static final int SEED = 4711;
+    private static final int FINGERPRINT_OFFSET = 16; // magic, format, version, builder, skill, perfect, seed
+    private static StubOrder order;
+    private static MazeConfiguration maze;
+
+    @BeforeClass
+    public static void generateMaze() {
+        MazeFactory factory = new MazeFactory(SEED);
+        factory.setQuiet(true);
+        order = new StubOrder(Order.Builder.Prim, 2, false, Order.Renderer.Raycast);
+        assertTrue(factory.order(order));
+        factory.waitTillDelivered();
+        maze = order.getMazeConfiguration();
+        assertNotNull(maze);
+    }
+
+    /**
+     * Changes the stored fingerprint such that the regenerated maze does not match.
+     */
+    private static byte[] withWrongFingerprint(byte[] saved) {
+        byte[] changed = saved.clone();
+        changed[FINGERPRINT_OFFSET] ^= 1;
+        return changed;
+    }
+
+    @Test
+    public void readGeneratesTheSameMazeAgain() {
+        byte[] saved = SavedMaze.write(order, SEED, maze, false);
+        assertTrue(saved.length < 40);
+        MazeConfiguration restored = SavedMaze.read(saved, Order.Renderer.Raycast);
+        assertNotSame(maze, restored);
+        assertEquals(maze.getMazecells().getFingerprint(), restored.getMazecells().getFingerprint());
+        assertArrayEquals(maze.getStartingPosition(), restored.getStartingPosition());
+        assertNull(restored.getRootnode());
+    }
+
+    @Test
+    public void readGivesATreeForTheBspRenderer() {
+        byte[] saved = SavedMaze.write(order, SEED, maze, false);
+        MazeConfiguration restored = SavedMaze.read(saved, Order.Renderer.BSP);
+        assertEquals(maze.getMazecells().getFingerprint(), restored.getMazecells().getFingerprint());
+        assertNotNull(restored.getRootnode());
+    }
+
+    @Test
+    public void readUsesTheCopyIfTheMazeDoesNotMatch() {
+        byte[] saved = withWrongFingerprint(SavedMaze.write(order, SEED, maze, true));
+        MazeConfiguration restored = SavedMaze.read(saved, Order.Renderer.Raycast);
+        assertEquals(maze.getMazecells().getFingerprint(), restored.getMazecells().getFingerprint());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void readFailsIfTheMazeDoesNotMatchAndThereIsNoCopy() {
+        SavedMaze.read(withWrongFingerprint(SavedMaze.write(order, SEED, maze, false)), Order.Renderer.Raycast);
+    }
+
+    @Test
+    public void readRejectsTheFirstFormatWithItsChecksum() {
+        byte[] saved = SavedMaze.write(order, SEED, maze, false);
+        saved[4] = 1; // format 1 stored a CRC32 of the cells instead of the fingerprint
+        try {
+            SavedMaze.read(saved, Order.Renderer.Raycast);
+            fail("format 1 accepted");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("unsupported format"));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void readRejectsOtherBytes() {
+        SavedMaze.read(MazeSnapshot.write(maze), Order.Renderer.Raycast);
+    }
+}
@@ -0,0 +1,49 @@
+package edu.wm.cs.cs301.elise.amazebyelise.generation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a SolutionPath leads from a position to the exit and
+ * is empty for a position that a closed wall cut off from the exit.
+ */
+public class SolutionPathTest {
+    private MazeConfiguration maze; // built again for each test as tests change it
+
+    @Before
+    public void buildMaze() {
+        maze = RobotSimulation.buildMaze(3);
+        maze.getMazedists().computeNextHops(maze.getMazecells());
+    }
+
+    @Test
+    public void pathLeadsFromTheStartToTheExit() {
+        int[] start = maze.getStartingPosition();
+        SolutionPath path = new SolutionPath(maze);
+        path.update(start[0], start[1]);
+        assertEquals(maze.getDistanceToExit(start[0], start[1]), path.size());
+        assertEquals(start[0], path.getX(0));
+        assertEquals(start[1], path.getY(0));
+        int[] exit = maze.getMazedists().getExitPosition();
+        assertEquals(exit[0], path.getX(path.size()-1));
+        assertEquals(exit[1], path.getY(path.size()-1));
+    }
+
+    @Test
+    public void pathIsEmptyForAPositionCutOffFromTheExit() {
+        int[] start = maze.getStartingPosition();
+        DynamicMaze dynamic = new DynamicMaze(maze);
+        for (CardinalDirection cd : CardinalDirection.values()) {
+            if (dynamic.isInternal(start[0], start[1], cd))
+                dynamic.closeWall(start[0], start[1], cd);
+        }
+        assertEquals(Distance.INFINITY, maze.getDistanceToExit(start[0], start[1]));
+        SolutionPath path = new SolutionPath(maze);
+        path.update(start[0], start[1]);
+        assertEquals(0, path.size());
+        path.update(start[0], start[1]); // same position again
+        assertEquals(0, path.size());
+    }
+}